@@ -0,0 +1,80 @@
+package it.unive.scsr;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAConfiguration;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+
+/**
+ * Runs a whole analysis, fixpoint and dump of the results included, on the
+ * programs in {@code inputs/}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AnalysisBenchmark {
+
+	@Param({ "signs", "ext-sign-eval", "ae-eval", "reaching-definitions" })
+	public String program;
+
+	@Param
+	public AnalysisDomain domain;
+
+	private Path workdir;
+	private Program parsed;
+
+	@Setup(Level.Trial)
+	public void createWorkdir() throws IOException {
+		workdir = Files.createTempDirectory("scsr-bench");
+	}
+
+	@Setup(Level.Invocation)
+	public void parse() throws ParsingException {
+		// the program is parsed at every invocation since LiSA
+		// modifies it while analyzing it
+		parsed = IMPFrontend.processFile("inputs/" + program + ".imp");
+	}
+
+	@Benchmark
+	public void analyze() throws AnalysisException {
+		LiSAConfiguration conf = new LiSAConfiguration();
+		conf.jsonOutput = true;
+		conf.serializeResults = true;
+		conf.workdir = workdir.toString();
+		conf.abstractState = domain.abstractState();
+		new LiSA(conf).run(parsed);
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteWorkdir() throws IOException {
+		try (Stream<Path> files = Files.walk(workdir)) {
+			files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+		}
+	}
+}
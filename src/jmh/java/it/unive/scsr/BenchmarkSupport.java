@@ -0,0 +1,54 @@
+package it.unive.scsr;
+
+import java.util.Comparator;
+
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.SyntheticLocation;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.BinaryExpression;
+import it.unive.lisa.symbolic.value.Constant;
+import it.unive.lisa.symbolic.value.ValueExpression;
+import it.unive.lisa.symbolic.value.Variable;
+import it.unive.lisa.symbolic.value.operator.binary.BinaryOperator;
+import it.unive.lisa.type.common.Int32Type;
+
+/**
+ * Helpers for building the symbolic expressions and program points used by
+ * the micro-benchmarks.
+ */
+final class BenchmarkSupport {
+
+	private BenchmarkSupport() {
+	}
+
+	static Variable variable(String name) {
+		return new Variable(Int32Type.INSTANCE, name, SyntheticLocation.INSTANCE);
+	}
+
+	static Variable[] variables(int count) {
+		Variable[] result = new Variable[count];
+		for (int i = 0; i < count; i++)
+			result[i] = variable("x" + i);
+		return result;
+	}
+
+	static Constant constant(int value) {
+		return new Constant(Int32Type.INSTANCE, value, SyntheticLocation.INSTANCE);
+	}
+
+	static BinaryExpression binary(BinaryOperator operator, ValueExpression left, ValueExpression right) {
+		return new BinaryExpression(Int32Type.INSTANCE, left, right, operator, SyntheticLocation.INSTANCE);
+	}
+
+	/**
+	 * Yields the program points of a real CFG (the largest one of
+	 * {@code signs.imp}), as some domains use the location of the program
+	 * point in their results, and others index their elements by CFG.
+	 */
+	static ProgramPoint[] programPoints() throws ParsingException {
+		return IMPFrontend.processFile("inputs/signs.imp").getAllCFGs().stream()
+				.max(Comparator.comparingInt(cfg -> cfg.getNodes().size()))
+				.get().getNodes().toArray(new ProgramPoint[0]);
+	}
+}
@@ -0,0 +1,141 @@
+package it.unive.scsr;
+
+import static it.unive.scsr.BenchmarkSupport.binary;
+import static it.unive.scsr.BenchmarkSupport.constant;
+import static it.unive.scsr.BenchmarkSupport.programPoints;
+import static it.unive.scsr.BenchmarkSupport.variables;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.dataflow.DefiniteForwardDataflowDomain;
+import it.unive.lisa.analysis.dataflow.PossibleForwardDataflowDomain;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.ValueExpression;
+import it.unive.lisa.symbolic.value.Variable;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingAdd;
+
+/**
+ * Measures the lattice operations and the gen/kill transfer of
+ * {@link ReachingDefinitions}, {@link BitVectorReachingDefinitions} and
+ * {@link AvailExprsSolution} on states built by a sequence of assignments.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataflowBenchmark {
+
+	/**
+	 * The number of variables that are assigned
+	 */
+	@Param({ "8", "64", "256" })
+	public int variables;
+
+	private ProgramPoint[] pps;
+	private Variable target;
+	private ValueExpression expression;
+
+	private PossibleForwardDataflowDomain<ReachingDefinitions> rdLeft;
+	private PossibleForwardDataflowDomain<ReachingDefinitions> rdRight;
+	private BitVectorReachingDefinitions bitsLeft;
+	private BitVectorReachingDefinitions bitsRight;
+	private DefiniteForwardDataflowDomain<AvailExprsSolution> aeLeft;
+	private DefiniteForwardDataflowDomain<AvailExprsSolution> aeRight;
+
+	@Setup
+	public void setup() throws Exception {
+		pps = programPoints();
+		Variable[] ids = variables(variables);
+		target = ids[0];
+		expression = binary(NumericNonOverflowingAdd.INSTANCE, ids[variables - 1], constant(1));
+
+		rdLeft = assignments(new PossibleForwardDataflowDomain<>(new ReachingDefinitions()), ids, 0);
+		rdRight = assignments(rdLeft, ids, 1);
+		bitsLeft = assignments(new BitVectorReachingDefinitions(), ids, 0);
+		bitsRight = assignments(bitsLeft, ids, 1);
+		aeLeft = assignments(new DefiniteForwardDataflowDomain<>(new AvailExprsSolution()), ids, 0);
+		aeRight = assignments(aeLeft, ids, 1);
+	}
+
+	/**
+	 * Assigns {@code xi = x(i-1) + i} to every other variable starting from
+	 * {@code offset}, at different program points.
+	 */
+	private <T extends ValueDomain<T>> T assignments(T state, Variable[] ids, int offset) throws SemanticException {
+		for (int i = offset + 1; i < ids.length; i += 2)
+			state = state.assign(ids[i], binary(NumericNonOverflowingAdd.INSTANCE, ids[i - 1], constant(i)),
+					pps[(i + offset) % pps.length]);
+		return state;
+	}
+
+	@Benchmark
+	public PossibleForwardDataflowDomain<ReachingDefinitions> rdLub() throws SemanticException {
+		return rdLeft.lub(rdRight);
+	}
+
+	@Benchmark
+	public PossibleForwardDataflowDomain<ReachingDefinitions> rdWidening() throws SemanticException {
+		return rdLeft.widening(rdRight);
+	}
+
+	@Benchmark
+	public boolean rdLessOrEqual() throws SemanticException {
+		return rdLeft.lessOrEqual(rdRight);
+	}
+
+	@Benchmark
+	public PossibleForwardDataflowDomain<ReachingDefinitions> rdAssign() throws SemanticException {
+		return rdRight.assign(target, expression, pps[0]);
+	}
+
+	@Benchmark
+	public BitVectorReachingDefinitions bitsLub() throws SemanticException {
+		return bitsLeft.lub(bitsRight);
+	}
+
+	@Benchmark
+	public boolean bitsLessOrEqual() throws SemanticException {
+		return bitsLeft.lessOrEqual(bitsRight);
+	}
+
+	@Benchmark
+	public BitVectorReachingDefinitions bitsAssign() throws SemanticException {
+		return bitsRight.assign(target, expression, pps[0]);
+	}
+
+	@Benchmark
+	public DefiniteForwardDataflowDomain<AvailExprsSolution> aeLub() throws SemanticException {
+		return aeLeft.lub(aeRight);
+	}
+
+	@Benchmark
+	public DefiniteForwardDataflowDomain<AvailExprsSolution> aeWidening() throws SemanticException {
+		return aeLeft.widening(aeRight);
+	}
+
+	@Benchmark
+	public boolean aeLessOrEqual() throws SemanticException {
+		return aeLeft.lessOrEqual(aeRight);
+	}
+
+	@Benchmark
+	public DefiniteForwardDataflowDomain<AvailExprsSolution> aeAssign() throws SemanticException {
+		return aeRight.assign(target, expression, pps[0]);
+	}
+}
@@ -0,0 +1,103 @@
+package it.unive.scsr;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAConfiguration;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.heap.MonolithicHeap;
+import it.unive.lisa.analysis.nonrelational.value.TypeEnvironment;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.analysis.types.InferredTypes;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+
+/**
+ * Compares the table-driven {@link ExtSignDomainSolution} with the original,
+ * branch-based implementation ({@link OriginalExtSignDomainSolution}) on the
+ * fixpoint of {@code inputs/ext-sign-eval.imp} scaled up: the program is made
+ * of {@code scale} copies of each of its methods.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ExtSignAnalysisBenchmark {
+
+	@Param({ "1", "16", "128" })
+	public int scale;
+
+	@Param({ "TABLES", "ORIGINAL" })
+	public String implementation;
+
+	private String source;
+	private Path workdir;
+	private Program parsed;
+
+	@Setup(Level.Trial)
+	public void scale() throws IOException {
+		String text = new String(Files.readAllBytes(Paths.get("inputs", "ext-sign-eval.imp")),
+				StandardCharsets.UTF_8);
+		String body = text.substring(text.indexOf('{') + 1, text.lastIndexOf('}'));
+		StringBuilder scaled = new StringBuilder("class extsign {\n");
+		for (int copy = 0; copy < scale; copy++)
+			scaled.append(body.replaceAll("\\bf(\\d+)\\(", "f$1_" + copy + "("));
+		source = scaled.append("}\n").toString();
+		workdir = Files.createTempDirectory("scsr-bench");
+	}
+
+	@Setup(Level.Invocation)
+	public void parse() throws ParsingException {
+		// the program is parsed at every invocation since LiSA
+		// modifies it while analyzing it
+		parsed = IMPFrontend.processText(source);
+	}
+
+	@Benchmark
+	public void analyze() throws AnalysisException {
+		LiSAConfiguration conf = new LiSAConfiguration();
+		conf.workdir = workdir.toString();
+		conf.abstractState = implementation.equals("TABLES")
+				? new SimpleAbstractState<>(
+						new MonolithicHeap(),
+						new ValueEnvironment<>(new ExtSignDomainSolution()),
+						new TypeEnvironment<>(new InferredTypes()))
+				: new SimpleAbstractState<>(
+						new MonolithicHeap(),
+						new ValueEnvironment<>(new OriginalExtSignDomainSolution()),
+						new TypeEnvironment<>(new InferredTypes()));
+		new LiSA(conf).run(parsed);
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteWorkdir() throws IOException {
+		try (Stream<Path> files = Files.walk(workdir)) {
+			files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+		}
+	}
+}
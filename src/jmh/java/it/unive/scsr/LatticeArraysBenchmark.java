@@ -0,0 +1,98 @@
+package it.unive.scsr;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Scalar and vectorized joins of array-encoded states; the vectorized
+ * benchmarks require {@code -Pvector} (see {@link LatticeArrays}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LatticeArraysBenchmark {
+
+	/**
+	 * The number of variables of the states
+	 */
+	@Param({ "64", "256", "1024" })
+	public int variables;
+
+	private static final byte[] CANONICAL = { 0, 1, 2, 3, 4, 7, 6, 7 };
+
+	private byte[] leftSigns, rightSigns, signs;
+	private long[] leftBounds, rightBounds, bounds;
+
+	private LatticeArrays.Kernels vector;
+
+	@Setup
+	public void setup() {
+		vector = LatticeArrays.VECTOR;
+		// fixed seed, so that runs are comparable
+		Random random = new Random(42);
+		byte[] valid = { 1, 2, 3, 4, 6, 7 };
+		leftSigns = new byte[variables];
+		rightSigns = new byte[variables];
+		signs = new byte[variables];
+		leftBounds = new long[variables];
+		rightBounds = new long[variables];
+		bounds = new long[variables];
+		for (int i = 0; i < variables; i++) {
+			leftSigns[i] = valid[random.nextInt(valid.length)];
+			// the right state is above the left one, as at loop heads
+			rightSigns[i] = CANONICAL[leftSigns[i] | valid[random.nextInt(valid.length)]];
+			leftBounds[i] = random.nextInt(1000);
+			rightBounds[i] = random.nextInt(1000);
+		}
+	}
+
+	@Benchmark
+	public void scalarSigns(Blackhole bh) {
+		LatticeArrays.scalarLub(leftSigns, rightSigns, signs, 0, variables, CANONICAL);
+		bh.consume(signs);
+		bh.consume(LatticeArrays.scalarLessOrEqual(leftSigns, rightSigns, 0, variables));
+	}
+
+	@Benchmark
+	public void vectorSigns(Blackhole bh) {
+		vector().lub(leftSigns, rightSigns, signs, variables, CANONICAL);
+		bh.consume(signs);
+		bh.consume(vector.lessOrEqual(leftSigns, rightSigns, variables));
+	}
+
+	@Benchmark
+	public void scalarIntervals(Blackhole bh) {
+		LatticeArrays.scalarMin(leftBounds, rightBounds, bounds, 0, variables);
+		LatticeArrays.scalarMax(leftBounds, rightBounds, bounds, 0, variables);
+		bh.consume(bounds);
+	}
+
+	@Benchmark
+	public void vectorIntervals(Blackhole bh) {
+		vector().min(leftBounds, rightBounds, bounds, variables);
+		vector.max(leftBounds, rightBounds, bounds, variables);
+		bh.consume(bounds);
+	}
+
+	private LatticeArrays.Kernels vector() {
+		if (vector == null)
+			throw new IllegalStateException("The vectorized loops are not enabled");
+		return vector;
+	}
+}
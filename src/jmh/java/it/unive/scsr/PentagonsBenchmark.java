@@ -0,0 +1,149 @@
+package it.unive.scsr;
+
+import static it.unive.scsr.BenchmarkSupport.binary;
+import static it.unive.scsr.BenchmarkSupport.constant;
+import static it.unive.scsr.BenchmarkSupport.programPoints;
+import static it.unive.scsr.BenchmarkSupport.variables;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.ValueExpression;
+import it.unive.lisa.symbolic.value.Variable;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingSub;
+
+/**
+ * Compares {@link Pentagons} (also with transitively closed bounds) and
+ * {@link PersistentPentagons} on states where
+ * every variable is bounded by the previous one, that differ only in a few
+ * variables as it happens between consecutive iterations of a fixpoint.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PentagonsBenchmark {
+
+	/**
+	 * The number of variables in each state
+	 */
+	@Param({ "8", "64", "256" })
+	public int variables;
+
+	private ProgramPoint pp;
+	private Variable target;
+	private ValueExpression expression;
+
+	private Pentagons pentagonsLeft;
+	private Pentagons pentagonsRight;
+	private PersistentPentagons persistentLeft;
+	private PersistentPentagons persistentRight;
+	private Pentagons closedLeft;
+	private Pentagons closedRight;
+
+	@Setup
+	public void setup() throws Exception {
+		pp = programPoints()[0];
+		Variable[] ids = variables(variables);
+		target = ids[variables / 2];
+		expression = binary(NumericNonOverflowingSub.INSTANCE, ids[0], constant(1));
+
+		pentagonsLeft = chain(new Pentagons(), ids);
+		pentagonsRight = perturb(pentagonsLeft, ids);
+		persistentLeft = chain(new PersistentPentagons(), ids);
+		persistentRight = perturb(persistentLeft, ids);
+		closedLeft = chain(new Pentagons(true), ids);
+		closedRight = perturb(closedLeft, ids);
+	}
+
+	/**
+	 * Assigns {@code x0 = 0} and {@code xi = x(i-1) - 1} to each following
+	 * variable.
+	 */
+	private <T extends ValueDomain<T>> T chain(T state, Variable[] ids) throws SemanticException {
+		state = state.assign(ids[0], constant(0), pp);
+		for (int i = 1; i < ids.length; i++)
+			state = state.assign(ids[i], binary(NumericNonOverflowingSub.INSTANCE, ids[i - 1], constant(1)), pp);
+		return state;
+	}
+
+	/**
+	 * Reassigns one variable every eight to a constant.
+	 */
+	private <T extends ValueDomain<T>> T perturb(T state, Variable[] ids) throws SemanticException {
+		for (int i = 0; i < ids.length; i += 8)
+			state = state.assign(ids[i], constant(-i), pp);
+		return state;
+	}
+
+	@Benchmark
+	public Pentagons pentagonsLub() throws SemanticException {
+		return pentagonsLeft.lub(pentagonsRight);
+	}
+
+	@Benchmark
+	public Pentagons pentagonsWidening() throws SemanticException {
+		return pentagonsLeft.widening(pentagonsRight);
+	}
+
+	@Benchmark
+	public boolean pentagonsLessOrEqual() throws SemanticException {
+		return pentagonsLeft.lessOrEqual(pentagonsRight);
+	}
+
+	@Benchmark
+	public Pentagons pentagonsAssign() throws SemanticException {
+		return pentagonsLeft.assign(target, expression, pp);
+	}
+
+	@Benchmark
+	public PersistentPentagons persistentLub() throws SemanticException {
+		return persistentLeft.lub(persistentRight);
+	}
+
+	@Benchmark
+	public PersistentPentagons persistentWidening() throws SemanticException {
+		return persistentLeft.widening(persistentRight);
+	}
+
+	@Benchmark
+	public boolean persistentLessOrEqual() throws SemanticException {
+		return persistentLeft.lessOrEqual(persistentRight);
+	}
+
+	@Benchmark
+	public PersistentPentagons persistentAssign() throws SemanticException {
+		return persistentLeft.assign(target, expression, pp);
+	}
+
+	@Benchmark
+	public Pentagons closedLub() throws SemanticException {
+		return closedLeft.lub(closedRight);
+	}
+
+	@Benchmark
+	public boolean closedLessOrEqual() throws SemanticException {
+		return closedLeft.lessOrEqual(closedRight);
+	}
+
+	@Benchmark
+	public Pentagons closedAssign() throws SemanticException {
+		return closedLeft.assign(target, expression, pp);
+	}
+}
@@ -0,0 +1,86 @@
+package it.unive.scsr;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAConfiguration;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+
+/**
+ * Runs whole analyses on programs produced by {@link ImpProgramGenerator},
+ * to chart how each domain scales with the number of variables and the
+ * nesting of loops.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class ScalingBenchmark {
+
+	@Param({ "8", "32", "128" })
+	public int variables;
+
+	@Param({ "1", "2", "3" })
+	public int loopDepth;
+
+	@Param({ "PENTAGONS", "PACKED_PENTAGONS", "REACHING_DEFINITIONS", "AVAILABLE_EXPRESSIONS" })
+	public AnalysisDomain domain;
+
+	private Path workdir;
+	private Path source;
+	private Program parsed;
+
+	@Setup(Level.Trial)
+	public void generate() throws IOException {
+		ImpProgramGenerator generator = new ImpProgramGenerator();
+		generator.variables = variables;
+		generator.loopDepth = loopDepth;
+		generator.statements = variables / 2;
+		workdir = Files.createTempDirectory("scsr-scaling");
+		source = generator.writeTo(workdir.resolve("generated.imp"));
+	}
+
+	@Setup(Level.Invocation)
+	public void parse() throws ParsingException {
+		parsed = IMPFrontend.processFile(source.toString());
+	}
+
+	@Benchmark
+	public void analyze() throws AnalysisException {
+		LiSAConfiguration conf = new LiSAConfiguration();
+		conf.workdir = workdir.resolve("out").toString();
+		conf.abstractState = domain.abstractState();
+		new LiSA(conf).run(parsed);
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteWorkdir() throws IOException {
+		try (Stream<Path> files = Files.walk(workdir)) {
+			files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package it.unive.scsr;
+
+import static it.unive.scsr.BenchmarkSupport.binary;
+import static it.unive.scsr.BenchmarkSupport.constant;
+import static it.unive.scsr.BenchmarkSupport.programPoints;
+import static it.unive.scsr.BenchmarkSupport.variable;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.ValueExpression;
+import it.unive.lisa.symbolic.value.Variable;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingAdd;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingDiv;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingMul;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingSub;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignsBenchmark {
+
+	private Signs[] elements;
+	private ValueEnvironment<Signs> environment;
+	private Variable target;
+	private ValueExpression expression;
+	private ProgramPoint pp;
+
+	// environments with many variables, as maps and as byte arrays
+	private ValueEnvironment<Signs> mapLeft, mapRight;
+	private SignEnvironment<Signs> bytesLeft, bytesRight;
+
+	@Setup
+	public void setup() throws Exception {
+		pp = programPoints()[0];
+		Signs domain = new Signs();
+		elements = new Signs[] {
+				domain.bottom(),
+				domain.evalNonNullConstant(constant(-1), pp),
+				domain.evalNonNullConstant(constant(0), pp),
+				domain.evalNonNullConstant(constant(1), pp),
+				domain.top()
+		};
+
+		Variable x = variable("x");
+		Variable y = variable("y");
+		target = variable("z");
+		environment = new ValueEnvironment<>(domain).top()
+				.assign(x, constant(5), pp)
+				.assign(y, constant(-3), pp);
+		// x * (y - 2) + x / 3
+		expression = binary(NumericNonOverflowingAdd.INSTANCE,
+				binary(NumericNonOverflowingMul.INSTANCE, x,
+						binary(NumericNonOverflowingSub.INSTANCE, y, constant(2))),
+				binary(NumericNonOverflowingDiv.INSTANCE, x, constant(3)));
+
+		mapLeft = mapRight = new ValueEnvironment<>(domain).top();
+		bytesLeft = bytesRight = new SignEnvironment<>(Signs.CODEC).top();
+		for (int i = 0; i < 64; i++) {
+			Variable v = variable("v" + i);
+			mapLeft = mapLeft.assign(v, constant(i % 3 - 1), pp);
+			mapRight = mapRight.assign(v, constant(i % 2), pp);
+			bytesLeft = bytesLeft.assign(v, constant(i % 3 - 1), pp);
+			bytesRight = bytesRight.assign(v, constant(i % 2), pp);
+		}
+	}
+
+	@Benchmark
+	public void lub(Blackhole bh) throws SemanticException {
+		for (Signs left : elements)
+			for (Signs right : elements)
+				bh.consume(left.lub(right));
+	}
+
+	@Benchmark
+	public void widening(Blackhole bh) throws SemanticException {
+		for (Signs left : elements)
+			for (Signs right : elements)
+				bh.consume(left.widening(right));
+	}
+
+	@Benchmark
+	public void lessOrEqual(Blackhole bh) throws SemanticException {
+		for (Signs left : elements)
+			for (Signs right : elements)
+				bh.consume(left.lessOrEqual(right));
+	}
+
+	@Benchmark
+	public ValueEnvironment<Signs> eval() throws SemanticException {
+		return environment.assign(target, expression, pp);
+	}
+
+	@Benchmark
+	public void mapEnvironment(Blackhole bh) throws SemanticException {
+		bh.consume(mapLeft.lub(mapRight));
+		bh.consume(mapLeft.lessOrEqual(mapRight));
+		bh.consume(mapLeft.equals(mapRight));
+	}
+
+	@Benchmark
+	public void byteEnvironment(Blackhole bh) throws SemanticException {
+		bh.consume(bytesLeft.lub(bytesRight));
+		bh.consume(bytesLeft.lessOrEqual(bytesRight));
+		bh.consume(bytesLeft.equals(bytesRight));
+	}
+}
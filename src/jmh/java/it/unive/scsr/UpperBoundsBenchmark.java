@@ -0,0 +1,93 @@
+package it.unive.scsr;
+
+import static it.unive.scsr.BenchmarkSupport.variables;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.Variable;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UpperBoundsBenchmark {
+
+	/**
+	 * The number of variables that can appear in a bound
+	 */
+	@Param({ "8", "64", "512" })
+	public int variables;
+
+	private Variable[] ids;
+	private UpperBounds left;
+	private UpperBounds right;
+
+	@Setup
+	public void setup() {
+		ids = variables(variables);
+		// fixed seed, so that runs are comparable
+		Random random = new Random(42);
+		Set<Identifier> l = new HashSet<>(), r = new HashSet<>();
+		for (Variable id : ids) {
+			if (random.nextBoolean())
+				l.add(id);
+			if (random.nextBoolean())
+				r.add(id);
+		}
+		// elements of the same analysis, sharing their index
+		left = new UpperBounds(true).withBounds(l);
+		right = left.withBounds(r);
+	}
+
+	@Benchmark
+	public UpperBounds lub() throws SemanticException {
+		return left.lub(right);
+	}
+
+	@Benchmark
+	public UpperBounds glb() throws SemanticException {
+		return left.glb(right);
+	}
+
+	@Benchmark
+	public UpperBounds widening() throws SemanticException {
+		return left.widening(right);
+	}
+
+	@Benchmark
+	public boolean lessOrEqual() throws SemanticException {
+		return left.lessOrEqual(right);
+	}
+
+	@Benchmark
+	public void contains(Blackhole bh) {
+		for (Variable id : ids)
+			bh.consume(left.contains(id));
+	}
+
+	@Benchmark
+	public void iterate(Blackhole bh) {
+		for (Identifier id : left)
+			bh.consume(id);
+	}
+}
@@ -0,0 +1,406 @@
+package it.unive.scsr;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import it.unive.lisa.LiSA;
+import it.unive.lisa.analysis.SemanticDomain;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.Parameter;
+import it.unive.lisa.program.cfg.edge.Edge;
+import it.unive.lisa.program.cfg.statement.Statement;
+
+/**
+ * A persistent cache of the outputs of analyses of single {@link CFG}s, so
+ * that CFGs that did not change between two runs (e.g. the same methods
+ * evaluated on different branches) are not analyzed again. Entries are keyed
+ * by {@link #key(CFG, String)}, a hash of the structure of the CFG together
+ * with a description of the analysis configuration, and hold all the files
+ * produced by the analysis of that CFG, with json files stored through
+ * {@link BinaryJson}.<br>
+ * <br>
+ * The cache directory is bounded in size: after each store, the least
+ * recently used entries (the ones with the oldest modification time, that is
+ * updated on every hit) are deleted until the directory fits.
+ */
+public class AnalysisCache {
+
+	/**
+	 * The default maximum size of the cache directory, in bytes
+	 */
+	public static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+
+	/**
+	 * Bumped whenever the contents of the entries, or what is hashed in the
+	 * keys, changes
+	 */
+	private static final String VERSION = "4";
+
+	private static final byte[] MAGIC = { 'S', 'A', 'C', '1' };
+
+	private static final String EXTENSION = ".bin";
+
+	private static final byte RAW = 0;
+
+	private static final byte JSON = 1;
+
+	/**
+	 * A class from each of the jars of LiSA: lisa-sdk, lisa-core and lisa-imp
+	 */
+	private static final Class<?>[] LISA = { SemanticDomain.class, LiSA.class, IMPFrontend.class };
+
+	private final Path dir;
+
+	private final long maxSize;
+
+	public AnalysisCache(Path dir) {
+		this(dir, DEFAULT_MAX_SIZE);
+	}
+
+	public AnalysisCache(Path dir, long maxSize) {
+		this.dir = dir;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Yields the key of the results of the analysis of {@code cfg} with the
+	 * given configuration. Two CFGs have the same key if they have the same
+	 * signature and formals, and the same nodes (compared through their
+	 * location and their textual form) connected by the same edges.
+	 *
+	 * @param configuration a description of everything that affects the
+	 *                          results other than the CFG, such as the
+	 *                          abstract domain used
+	 */
+	public static String key(CFG cfg, String configuration) {
+		StringBuilder content = new StringBuilder();
+		content.append(VERSION).append('\n').append(configuration).append('\n');
+		content.append(cfg.getDescriptor().getFullSignature()).append('\n');
+		for (Parameter formal : cfg.getDescriptor().getFormals())
+			content.append(formal.getName()).append(' ').append(formal.getLocation()).append('\n');
+
+		// nodes and edges are sorted, so that the key does not depend on the
+		// iteration order of the cfg
+		Collection<Statement> entrypoints = cfg.getEntrypoints();
+		TreeSet<String> nodes = new TreeSet<>();
+		TreeSet<String> edges = new TreeSet<>();
+		for (Statement node : cfg.getNodes()) {
+			nodes.add((entrypoints.contains(node) ? "> " : "") + node(node));
+			for (Edge edge : cfg.getOutgoingEdges(node))
+				edges.add(node(edge.getSource()) + " -" + edge.getClass().getSimpleName() + "-> "
+						+ node(edge.getDestination()));
+		}
+		for (String node : nodes)
+			content.append(node).append('\n');
+		for (String edge : edges)
+			content.append(edge).append('\n');
+
+		return hash(content.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Yields a description of an analysis configuration for
+	 * {@link #key(CFG, String)}, made of the given name and of the bytecode of
+	 * all the classes of this project's package and of the packages of the
+	 * given classes, so that results computed with a different implementation
+	 * of the domain (e.g. on a different branch) are never reused. Whole
+	 * packages are hashed since the results depend also on nested classes
+	 * and on the helpers that the domains use (e.g. {@link Interner}). The
+	 * jars of LiSA are hashed as well, since the results depend also on its
+	 * version.
+	 */
+	public static String configuration(String name, Class<?>... implementation) throws IOException {
+		StringBuilder configuration = new StringBuilder(name);
+		Map<String, String> packages = new TreeMap<>();
+		hashPackage(AnalysisCache.class, packages);
+		for (Class<?> cls : implementation) {
+			configuration.append('\n').append(cls.getName());
+			hashPackage(cls, packages);
+		}
+		for (Class<?> cls : LISA)
+			hashJar(cls, packages);
+		for (Map.Entry<String, String> pkg : packages.entrySet())
+			configuration.append('\n').append(pkg.getKey()).append(' ').append(pkg.getValue());
+		return configuration.toString();
+	}
+
+	/**
+	 * Hashes the whole jar that {@code cls} has been loaded from, storing
+	 * the result in {@code packages}. Classes that are not loaded from a jar
+	 * (e.g. when LiSA is built from sources) are hashed through
+	 * {@link #hashPackage(Class, Map)}.
+	 */
+	private static void hashJar(Class<?> cls, Map<String, String> packages) throws IOException {
+		Path location = location(cls);
+		if (Files.isDirectory(location)) {
+			hashPackage(cls, packages);
+			return;
+		}
+		String id = "(" + location.getFileName() + ")";
+		if (!packages.containsKey(id))
+			packages.put(id, hash(Files.readAllBytes(location)));
+	}
+
+	private static Path location(Class<?> cls) throws IOException {
+		CodeSource source = cls.getProtectionDomain().getCodeSource();
+		if (source == null)
+			throw new IOException("Unable to find the bytecode of " + cls.getName());
+		try {
+			return Paths.get(source.getLocation().toURI());
+		} catch (URISyntaxException e) {
+			throw new IOException("Unable to find the bytecode of " + cls.getName(), e);
+		}
+	}
+
+	/**
+	 * Hashes the bytecode of all the classes in the package of {@code cls},
+	 * as found in the directory or in the jar that {@code cls} has been
+	 * loaded from, storing the result in {@code packages}.
+	 */
+	private static void hashPackage(Class<?> cls, Map<String, String> packages) throws IOException {
+		Path location = location(cls);
+		String prefix = cls.getPackage() == null ? "" : cls.getPackage().getName().replace('.', '/') + "/";
+		// the full location is not part of the configuration, since it differs
+		// between checkouts of the same sources
+		String id = prefix + " (" + location.getFileName() + ")";
+		if (packages.containsKey(id))
+			return;
+
+		// classes are sorted by name, so that the hash does not depend on the
+		// order of the directory or of the jar
+		Map<String, byte[]> classes = new TreeMap<>();
+		if (Files.isDirectory(location))
+			try (Stream<Path> list = Files.list(location.resolve(prefix))) {
+				for (Path file : (Iterable<Path>) list::iterator)
+					if (file.getFileName().toString().endsWith(".class"))
+						classes.put(file.getFileName().toString(), Files.readAllBytes(file));
+			}
+		else
+			try (JarFile jar = new JarFile(location.toFile())) {
+				for (JarEntry entry : Collections.list(jar.entries())) {
+					String entryName = entry.getName();
+					if (entryName.startsWith(prefix) && entryName.endsWith(".class")
+							&& entryName.indexOf('/', prefix.length()) < 0)
+						try (InputStream bytecode = jar.getInputStream(entry)) {
+							classes.put(entryName.substring(prefix.length()), readAll(bytecode));
+						}
+				}
+			}
+
+		StringBuilder content = new StringBuilder();
+		for (Map.Entry<String, byte[]> bytecode : classes.entrySet())
+			content.append(bytecode.getKey()).append(' ').append(hash(bytecode.getValue())).append('\n');
+		packages.put(id, hash(content.toString().getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		for (int read; (read = in.read(buffer)) >= 0;)
+			out.write(buffer, 0, read);
+		return out.toByteArray();
+	}
+
+	private static String hash(byte[] content) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(content);
+			StringBuilder result = new StringBuilder();
+			for (byte b : hash)
+				result.append(String.format("%02x", b));
+			return result.toString();
+		} catch (NoSuchAlgorithmException e) {
+			// every java platform is required to support sha-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String node(Statement node) {
+		return node.getLocation() + " " + node;
+	}
+
+	private Path entry(String key) {
+		return dir.resolve(key + EXTENSION);
+	}
+
+	/**
+	 * Restores the files stored under {@code key} inside {@code target}.
+	 *
+	 * @return {@code true} if the entry was found, {@code false} otherwise
+	 */
+	public boolean restore(String key, Path target) throws IOException {
+		Path entry = entry(key);
+		byte[] content;
+		try {
+			content = Files.readAllBytes(entry);
+		} catch (NoSuchFileException e) {
+			return false;
+		}
+
+		// everything is decoded before writing, so that a corrupted entry
+		// leaves nothing behind
+		Map<Path, byte[]> files = new LinkedHashMap<>();
+		ByteBuffer buffer = ByteBuffer.wrap(content);
+		try {
+			for (byte b : MAGIC)
+				if (buffer.get() != b)
+					throw new IOException("Not a cache entry: " + entry);
+			int count = BinaryJson.readVarint(buffer);
+			for (int i = 0; i < count; i++) {
+				byte[] name = new byte[BinaryJson.readVarint(buffer)];
+				buffer.get(name);
+				byte kind = buffer.get();
+				byte[] data = new byte[BinaryJson.readVarint(buffer)];
+				buffer.get(data);
+				if (kind == JSON) {
+					ByteArrayOutputStream json = new ByteArrayOutputStream(data.length * 4);
+					BinaryJson.decode(ByteBuffer.wrap(data), json);
+					data = json.toByteArray();
+				}
+				files.put(target.resolve(new String(name, StandardCharsets.UTF_8)), data);
+			}
+		} catch (IOException | RuntimeException e) {
+			// a corrupted entry is just a miss
+			Files.deleteIfExists(entry);
+			return false;
+		}
+
+		for (Map.Entry<Path, byte[]> file : files.entrySet()) {
+			if (file.getKey().getParent() != null)
+				Files.createDirectories(file.getKey().getParent());
+			Files.write(file.getKey(), file.getValue());
+		}
+
+		try {
+			Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (NoSuchFileException e) {
+			// evicted by another run in the meantime
+		}
+		return true;
+	}
+
+	/**
+	 * Stores all the files inside {@code source} under {@code key}, evicting
+	 * the least recently used entries if the cache grows too large.
+	 */
+	public void store(String key, Path source) throws IOException {
+		List<Path> files;
+		try (Stream<Path> walk = Files.walk(source)) {
+			files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+		}
+
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		content.write(MAGIC);
+		BinaryJson.writeVarint(content, files.size());
+		for (Path file : files) {
+			byte[] name = source.relativize(file).toString().replace('\\', '/').getBytes(StandardCharsets.UTF_8);
+			BinaryJson.writeVarint(content, name.length);
+			content.write(name);
+			byte[] data = Files.readAllBytes(file);
+			if (file.getFileName().toString().endsWith(".json")) {
+				content.write(JSON);
+				data = BinaryJson.encode(ByteBuffer.wrap(data));
+			} else
+				content.write(RAW);
+			BinaryJson.writeVarint(content, data.length);
+			content.write(data);
+		}
+
+		// entries appear atomically, so that concurrent runs never read
+		// partial ones
+		Files.createDirectories(dir);
+		Path tmp = Files.createTempFile(dir, key, ".tmp");
+		try {
+			Files.write(tmp, content.toByteArray());
+			try {
+				Files.move(tmp, entry(key), StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp, entry(key), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+
+		evict(entry(key));
+	}
+
+	/**
+	 * Deletes the least recently used entries until the cache fits, except
+	 * for {@code stored}, the entry that has just been stored, that is kept
+	 * even if it is larger than the cache alone.
+	 */
+	private synchronized void evict(Path stored) throws IOException {
+		Map<Path, FileTime> times = new HashMap<>();
+		long size = 0;
+		try (Stream<Path> list = Files.list(dir)) {
+			for (Path entry : (Iterable<Path>) list::iterator)
+				if (entry.getFileName().toString().endsWith(EXTENSION))
+					try {
+						times.put(entry, Files.getLastModifiedTime(entry));
+						size += Files.size(entry);
+					} catch (NoSuchFileException e) {
+						// evicted by another run
+						times.remove(entry);
+					}
+		}
+
+		List<Path> entries = new ArrayList<>(times.keySet());
+		entries.sort(Comparator.comparing(times::get));
+		for (Path entry : entries) {
+			if (size <= maxSize)
+				break;
+			if (entry.equals(stored))
+				continue;
+			try {
+				long entrySize = Files.size(entry);
+				Files.delete(entry);
+				size -= entrySize;
+			} catch (NoSuchFileException e) {
+				// evicted by another run
+			}
+		}
+	}
+
+	/**
+	 * Yields the size of the cache directory, in bytes.
+	 */
+	public long size() throws IOException {
+		if (!Files.exists(dir))
+			return 0;
+		long size = 0;
+		try (Stream<Path> list = Files.list(dir)) {
+			for (Path entry : (Iterable<Path>) list::iterator)
+				if (entry.getFileName().toString().endsWith(EXTENSION))
+					size += Files.size(entry);
+		}
+		return size;
+	}
+}
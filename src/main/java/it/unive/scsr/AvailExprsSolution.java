@@ -3,6 +3,10 @@ package it.unive.scsr;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import it.unive.lisa.analysis.ScopeToken;
 import it.unive.lisa.analysis.SemanticException;
@@ -10,6 +14,7 @@ import it.unive.lisa.analysis.dataflow.DataflowElement;
 import it.unive.lisa.analysis.dataflow.DefiniteForwardDataflowDomain;
 import it.unive.lisa.analysis.representation.DomainRepresentation;
 import it.unive.lisa.analysis.representation.StringRepresentation;
+import it.unive.lisa.program.cfg.CFG;
 import it.unive.lisa.program.cfg.ProgramPoint;
 import it.unive.lisa.symbolic.value.BinaryExpression;
 import it.unive.lisa.symbolic.value.Constant;
@@ -37,25 +42,58 @@ public class AvailExprsSolution
 				// as type in fields/methods
 				AvailExprsSolution> {
 
+	/**
+	 * For each CFG, the index of the elements generated while analyzing it
+	 */
+	private static final Map<CFG, ExpressionIndex> INDEXES = Collections.synchronizedMap(new WeakHashMap<>());
+
+	/**
+	 * The canonical instances of the elements, so that all the states of an
+	 * analysis share the same instance for the same expression. Only the
+	 * elements are interned, not their expressions nor the subexpressions of
+	 * these: expressions are built by the semantics of the statements and
+	 * compared only when looking up an element, that is once per expression
+	 * generated by a statement.
+	 */
+	private static final Interner<AvailExprsSolution> ELEMENTS = new Interner<>();
+
 	/**
 	 * The expression being tracked
 	 */
 	private final ValueExpression expression;
 
+	/**
+	 * The hash of {@link #expression}, that is expensive to compute on deep
+	 * expressions
+	 */
+	private final int hash;
+
+	/**
+	 * The variables in {@link #expression}, computed on first use
+	 */
+	private Collection<Identifier> variables;
+
 	public AvailExprsSolution() {
 		this(null);
 	}
 
 	private AvailExprsSolution(ValueExpression expression) {
 		this.expression = expression;
+		this.hash = 31 + ((expression == null) ? 0 : expression.hashCode());
+	}
+
+	/**
+	 * Yields the canonical element tracking {@code expression}: since all
+	 * the elements used in the analysis are canonical, equal elements are the
+	 * same instance, and checking equality costs a comparison of references.
+	 */
+	static AvailExprsSolution of(ValueExpression expression) {
+		return ELEMENTS.intern(new AvailExprsSolution(expression));
 	}
 
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + ((expression == null) ? 0 : expression.hashCode());
-		return result;
+		return hash;
 	}
 
 	@Override
@@ -67,6 +105,8 @@ public class AvailExprsSolution
 		if (getClass() != obj.getClass())
 			return false;
 		AvailExprsSolution other = (AvailExprsSolution) obj;
+		if (hash != other.hash)
+			return false;
 		if (expression == null) {
 			if (other.expression != null)
 				return false;
@@ -77,7 +117,10 @@ public class AvailExprsSolution
 
 	@Override
 	public Collection<Identifier> getInvolvedIdentifiers() {
-		return getVariablesIn(expression);
+		// elements are immutable, so the result can be computed once
+		if (variables == null)
+			variables = Collections.unmodifiableCollection(getVariablesIn(expression));
+		return variables;
 	}
 
 	private static Collection<Identifier> getVariablesIn(ValueExpression expression) {
@@ -108,6 +151,19 @@ public class AvailExprsSolution
 		return result;
 	}
 
+	/**
+	 * Yields the element generated by evaluating {@code expression} at
+	 * {@code pp}, and by assigning it to {@code id} if it is not {@code null},
+	 * or {@code null} if no element is generated.
+	 */
+	static AvailExprsSolution generated(Identifier id, ValueExpression expression, ProgramPoint pp) {
+		if (!filter(expression))
+			return null;
+		AvailExprsSolution ae = index(pp).element(expression, pp);
+		// we don't add an expression if one of its variables is being redefined
+		return id != null && ae.getInvolvedIdentifiers().contains(id) ? null : ae;
+	}
+
 	@Override
 	public Collection<AvailExprsSolution> gen(
 			Identifier id,
@@ -116,9 +172,8 @@ public class AvailExprsSolution
 			DefiniteForwardDataflowDomain<AvailExprsSolution> domain) {
 		// we generate a new element tracking this expression
 		Collection<AvailExprsSolution> result = new HashSet<>();
-		AvailExprsSolution ae = new AvailExprsSolution(expression);
-		// we don't add an expression if one of its variables is being redefined
-		if (!ae.getInvolvedIdentifiers().contains(id) && filter(expression))
+		AvailExprsSolution ae = generated(id, expression, pp);
+		if (ae != null)
 			result.add(ae);
 		return result;
 	}
@@ -130,8 +185,8 @@ public class AvailExprsSolution
 			DefiniteForwardDataflowDomain<AvailExprsSolution> domain) {
 		// we generate a new element tracking this expression
 		Collection<AvailExprsSolution> result = new HashSet<>();
-		AvailExprsSolution ae = new AvailExprsSolution(expression);
-		if (filter(expression))
+		AvailExprsSolution ae = generated(null, expression, pp);
+		if (ae != null)
 			result.add(ae);
 		return result;
 	}
@@ -159,17 +214,71 @@ public class AvailExprsSolution
 			ProgramPoint pp,
 			DefiniteForwardDataflowDomain<AvailExprsSolution> domain) {
 		// we kill all of the elements that refer to expressions using the
-		// variable being assinged
+		// variable being assinged: the index of this cfg knows which of the
+		// elements generated here use the variable, while the others (e.g.
+		// the ones moved to another scope by a call) are checked one by one
+		ExpressionIndex index = index(pp);
+		Set<AvailExprsSolution> using = index.using(id);
 		Collection<AvailExprsSolution> result = new HashSet<>();
+		for (AvailExprsSolution ae : domain.getDataflowElements())
+			if (index.knows(ae) ? using.contains(ae) : ae.getInvolvedIdentifiers().contains(id))
+				result.add(ae);
+		return result;
+	}
 
-		for (AvailExprsSolution ae : domain.getDataflowElements()) {
-			Collection<Identifier> ids = getVariablesIn(ae.expression);
+	private static ExpressionIndex index(ProgramPoint pp) {
+		return INDEXES.computeIfAbsent(pp.getCFG(), cfg -> new ExpressionIndex());
+	}
 
-			if (ids.contains(id))
-				result.add(ae);
+	/**
+	 * The elements generated in a cfg, grouped by the variables they use and
+	 * by the program point that generated them. A program point evaluates the
+	 * same expression at every iteration of the fixpoint, so its last element
+	 * is looked up before building (and hashing) a new one. The same cfg can be analyzed by several threads at once (e.g. by
+	 * analyses running in parallel), so the index is made of concurrent sets
+	 * and maps, and an element is only marked as known once it has been
+	 * added to the groups of all its variables: a state can thus contain an
+	 * element only after the index knows all the variables it uses.
+	 */
+	private static class ExpressionIndex {
+
+		private final Set<AvailExprsSolution> known = ConcurrentHashMap.newKeySet();
+
+		private final Map<Identifier, Set<AvailExprsSolution>> byVariable = new ConcurrentHashMap<>();
+
+		private final Map<ProgramPoint, AvailExprsSolution> bySite = new ConcurrentHashMap<>();
+
+		/**
+		 * Yields the canonical element tracking {@code expression}, generated
+		 * at {@code pp}, adding it to the index.
+		 */
+		private AvailExprsSolution element(ValueExpression expression, ProgramPoint pp) {
+			AvailExprsSolution ae = bySite.get(pp);
+			// if the same instance is evaluated again, no deep comparison
+			// is needed; the element is published after it is indexed
+			if (ae != null && (ae.expression == expression || ae.expression.equals(expression)))
+				return ae;
+			ae = of(expression);
+			add(ae);
+			bySite.put(pp, ae);
+			return ae;
 		}
 
-		return result;
+		private void add(AvailExprsSolution ae) {
+			if (known.contains(ae))
+				return;
+			for (Identifier id : ae.getInvolvedIdentifiers())
+				byVariable.computeIfAbsent(id, k -> ConcurrentHashMap.newKeySet()).add(ae);
+			known.add(ae);
+		}
+
+		private boolean knows(AvailExprsSolution ae) {
+			return known.contains(ae);
+		}
+
+		private Set<AvailExprsSolution> using(Identifier id) {
+			return byVariable.getOrDefault(id, Collections.emptySet());
+		}
 	}
 
 	@Override
@@ -195,11 +304,11 @@ public class AvailExprsSolution
 
 	@Override
 	public AvailExprsSolution pushScope(ScopeToken scope) throws SemanticException {
-		return new AvailExprsSolution((ValueExpression) expression.pushScope(scope));
+		return of((ValueExpression) expression.pushScope(scope));
 	}
 
 	@Override
 	public AvailExprsSolution popScope(ScopeToken scope) throws SemanticException {
-		return new AvailExprsSolution((ValueExpression) expression.popScope(scope));
+		return of((ValueExpression) expression.popScope(scope));
 	}
 }
@@ -0,0 +1,212 @@
+package it.unive.scsr;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * A compact binary encoding of json documents, used to store analysis results
+ * (e.g. the per-CFG files produced with {@code serializeResults}) in a
+ * fraction of their size. Each distinct string or number of the document is
+ * stored once, the first time it appears, and referred to through its index
+ * afterwards, while structural characters are stored as single-byte tags
+ * ({@code :} and {@code ,} are implied by the structure, and are not stored
+ * at all).<br>
+ * <br>
+ * An encoded document is made of the magic bytes {@code SBJ2}, followed by
+ * the tokens of the document up to its end. Strings and numbers are stored
+ * either as a definition tag followed by their length and their bytes, that
+ * adds them to the string table, or as a reference tag followed by their
+ * index in the table. All lengths and indexes are unsigned varints. Since the
+ * table is built as the document is read, documents can be both written
+ * (through {@link BinaryJsonWriter}) and read in a single pass. Strings are
+ * kept exactly as they appear in the source, escapes included, so that
+ * decoding yields the same document, without insignificant whitespace.
+ */
+public class BinaryJson {
+
+	static final byte[] MAGIC = { 'S', 'B', 'J', '2' };
+
+	static final byte OBJECT_START = 1;
+	static final byte OBJECT_END = 2;
+	static final byte ARRAY_START = 3;
+	static final byte ARRAY_END = 4;
+	static final byte STRING = 5;
+	static final byte NUMBER = 6;
+	static final byte TRUE = 7;
+	static final byte FALSE = 8;
+	static final byte NULL = 9;
+	static final byte STRING_DEFINITION = 10;
+	static final byte NUMBER_DEFINITION = 11;
+
+	private static final byte[] TRUE_TEXT = "true".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] FALSE_TEXT = "false".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] NULL_TEXT = "null".getBytes(StandardCharsets.US_ASCII);
+
+	private BinaryJson() {
+	}
+
+	/**
+	 * Encodes the json document between the position and the limit of
+	 * {@code json}, that is consumed.
+	 *
+	 * @throws IOException if the document is not well-formed
+	 */
+	public static byte[] encode(ByteBuffer json) throws IOException {
+		ByteArrayOutputStream result = new ByteArrayOutputStream(Math.max(16, json.remaining() / 4));
+		CharBuffer text = StandardCharsets.UTF_8.decode(json);
+		try (Writer writer = new BinaryJsonWriter(Channels.newChannel(result))) {
+			writer.write(text.array(), text.arrayOffset() + text.position(), text.remaining());
+		}
+		return result.toByteArray();
+	}
+
+	/**
+	 * Decodes the document encoded between the position and the limit of
+	 * {@code binary}, that is consumed, writing it to {@code out} as json.
+	 *
+	 * @throws IOException if the encoded document is malformed, or if writing
+	 *                         fails
+	 */
+	public static void decode(ByteBuffer binary, OutputStream out) throws IOException {
+		try {
+			for (byte b : MAGIC)
+				if (binary.get() != b)
+					throw new IOException("Not an encoded json document");
+			new Decoder(out).decode(binary);
+		} catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+			throw new IOException("Malformed encoded json document", e);
+		}
+	}
+
+	/**
+	 * Writes the tokens of a document, adding back the separators implied by
+	 * the structure
+	 */
+	private static class Decoder {
+
+		private final List<byte[]> table = new ArrayList<>();
+
+		private final OutputStream out;
+
+		/**
+		 * The number of tokens written so far in each open object or array
+		 */
+		private final Deque<int[]> counts = new ArrayDeque<>();
+
+		/**
+		 * Whether each open container is an object ({@code true}) or an array
+		 * ({@code false})
+		 */
+		private final Deque<Boolean> objects = new ArrayDeque<>();
+
+		private Decoder(OutputStream out) {
+			this.out = out;
+		}
+
+		private void decode(ByteBuffer binary) throws IOException {
+			while (binary.hasRemaining()) {
+				byte tag = binary.get();
+				switch (tag) {
+				case OBJECT_START:
+				case ARRAY_START:
+					separator();
+					out.write(tag == OBJECT_START ? '{' : '[');
+					objects.push(tag == OBJECT_START);
+					counts.push(new int[1]);
+					break;
+				case OBJECT_END:
+				case ARRAY_END:
+					if (objects.isEmpty() || objects.pop() != (tag == OBJECT_END))
+						throw new IOException("Unbalanced json document");
+					counts.pop();
+					out.write(tag == OBJECT_END ? '}' : ']');
+					break;
+				case STRING:
+				case STRING_DEFINITION:
+					separator();
+					out.write('"');
+					out.write(entry(tag == STRING_DEFINITION, binary));
+					out.write('"');
+					break;
+				case NUMBER:
+				case NUMBER_DEFINITION:
+					separator();
+					out.write(entry(tag == NUMBER_DEFINITION, binary));
+					break;
+				case TRUE:
+					separator();
+					out.write(TRUE_TEXT);
+					break;
+				case FALSE:
+					separator();
+					out.write(FALSE_TEXT);
+					break;
+				case NULL:
+					separator();
+					out.write(NULL_TEXT);
+					break;
+				default:
+					throw new IOException("Unknown tag " + tag);
+				}
+			}
+			if (!objects.isEmpty())
+				throw new IOException("Unbalanced json document");
+		}
+
+		private byte[] entry(boolean definition, ByteBuffer binary) throws IOException {
+			if (!definition)
+				return table.get(readVarint(binary));
+			byte[] entry = new byte[readVarint(binary)];
+			binary.get(entry);
+			table.add(entry);
+			return entry;
+		}
+
+		/**
+		 * Writes the separator before a new token of the innermost object or
+		 * array
+		 */
+		private void separator() throws IOException {
+			if (counts.isEmpty())
+				return;
+			int count = counts.peek()[0]++;
+			if (count == 0)
+				return;
+			if (objects.peek() && count % 2 == 1)
+				// keys and values alternate
+				out.write(':');
+			else
+				out.write(',');
+		}
+	}
+
+	static void writeVarint(OutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	static int readVarint(ByteBuffer in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			byte b = in.get();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new IOException("Malformed varint");
+	}
+}
@@ -0,0 +1,229 @@
+package it.unive.scsr;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link Writer} that receives a json document as text and writes it, as
+ * it goes, in the format of {@link BinaryJson} to a channel. The text is
+ * never stored as a whole: only the table of the strings and numbers seen
+ * so far is kept in memory, and tokens are written through a fixed-size
+ * buffer, so that code producing json through a {@link Writer} can produce
+ * the binary format directly.<br>
+ * <br>
+ * Closing this writer flushes the buffer and closes the channel.
+ */
+public class BinaryJsonWriter extends Writer {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final int NONE = 0;
+	private static final int STRING = 1;
+	private static final int ESCAPE = 2;
+	private static final int NUMBER = 3;
+	private static final int LITERAL = 4;
+
+	private final WritableByteChannel channel;
+
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+	private final Map<String, Integer> table = new HashMap<>();
+
+	/**
+	 * The text of the string, number or literal being read
+	 */
+	private final StringBuilder token = new StringBuilder();
+
+	private int state = NONE;
+
+	private boolean closed;
+
+	public BinaryJsonWriter(WritableByteChannel channel) throws IOException {
+		this.channel = channel;
+		buffer.put(BinaryJson.MAGIC);
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		if (closed)
+			throw new IOException("Writer closed");
+		for (int i = off; i < off + len; i++)
+			accept(cbuf[i]);
+	}
+
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		if (closed)
+			throw new IOException("Writer closed");
+		for (int i = off; i < off + len; i++)
+			accept(str.charAt(i));
+	}
+
+	private void accept(char c) throws IOException {
+		switch (state) {
+		case STRING:
+			if (c == '"') {
+				entry(BinaryJson.STRING, BinaryJson.STRING_DEFINITION);
+				state = NONE;
+			} else {
+				token.append(c);
+				if (c == '\\')
+					state = ESCAPE;
+			}
+			return;
+		case ESCAPE:
+			token.append(c);
+			state = STRING;
+			return;
+		case NUMBER:
+			if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+				token.append(c);
+				return;
+			}
+			entry(BinaryJson.NUMBER, BinaryJson.NUMBER_DEFINITION);
+			state = NONE;
+			break;
+		case LITERAL:
+			if (c >= 'a' && c <= 'z') {
+				token.append(c);
+				return;
+			}
+			literal();
+			state = NONE;
+			break;
+		default:
+		}
+
+		switch (c) {
+		case ' ':
+		case '\n':
+		case '\r':
+		case '\t':
+		case ':':
+		case ',':
+			// separators are implied by the structure
+			break;
+		case '{':
+			put(BinaryJson.OBJECT_START);
+			break;
+		case '}':
+			put(BinaryJson.OBJECT_END);
+			break;
+		case '[':
+			put(BinaryJson.ARRAY_START);
+			break;
+		case ']':
+			put(BinaryJson.ARRAY_END);
+			break;
+		case '"':
+			state = STRING;
+			break;
+		default:
+			token.append(c);
+			if (c == '-' || (c >= '0' && c <= '9'))
+				state = NUMBER;
+			else if (c >= 'a' && c <= 'z')
+				state = LITERAL;
+			else
+				throw new IOException("Unexpected character '" + c + "'");
+		}
+	}
+
+	private void literal() throws IOException {
+		String literal = token.toString();
+		token.setLength(0);
+		switch (literal) {
+		case "true":
+			put(BinaryJson.TRUE);
+			break;
+		case "false":
+			put(BinaryJson.FALSE);
+			break;
+		case "null":
+			put(BinaryJson.NULL);
+			break;
+		default:
+			throw new IOException("Unexpected literal '" + literal + "'");
+		}
+	}
+
+	/**
+	 * Writes the string or number just read, either as a reference to the
+	 * table or, the first time it is seen, with its contents
+	 */
+	private void entry(byte reference, byte definition) throws IOException {
+		String text = token.toString();
+		token.setLength(0);
+		Integer index = table.get(text);
+		if (index != null) {
+			put(reference);
+			putVarint(index);
+			return;
+		}
+
+		table.put(text, table.size());
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		put(definition);
+		putVarint(bytes.length);
+		for (int written = 0; written < bytes.length;) {
+			if (!buffer.hasRemaining())
+				drain();
+			int length = Math.min(buffer.remaining(), bytes.length - written);
+			buffer.put(bytes, written, length);
+			written += length;
+		}
+	}
+
+	private void put(byte b) throws IOException {
+		if (!buffer.hasRemaining())
+			drain();
+		buffer.put(b);
+	}
+
+	private void putVarint(int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		put((byte) value);
+	}
+
+	private void drain() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	/**
+	 * Writes all the tokens completed so far to the channel.
+	 */
+	@Override
+	public void flush() throws IOException {
+		if (!closed)
+			drain();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed)
+			return;
+		try {
+			if (state == NUMBER)
+				entry(BinaryJson.NUMBER, BinaryJson.NUMBER_DEFINITION);
+			else if (state == LITERAL)
+				literal();
+			else if (state != NONE)
+				throw new IOException("Unterminated string");
+			drain();
+		} finally {
+			closed = true;
+			channel.close();
+		}
+	}
+}
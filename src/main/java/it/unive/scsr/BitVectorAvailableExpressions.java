@@ -0,0 +1,251 @@
+package it.unive.scsr;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.function.Predicate;
+
+import it.unive.lisa.analysis.BaseLattice;
+import it.unive.lisa.analysis.Lattice;
+import it.unive.lisa.analysis.ScopeToken;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.representation.DomainRepresentation;
+import it.unive.lisa.analysis.representation.SetRepresentation;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.ValueExpression;
+
+/**
+ * The available expressions analysis of {@link AvailExprsSolution}, with the
+ * same results of
+ * {@code new DefiniteForwardDataflowDomain<>(new AvailExprsSolution())}, but
+ * with sets of expressions stored as bitsets. The expressions of each CFG are
+ * numbered by a {@link DataflowIndex} of that CFG, so that joins are
+ * word-wise intersections, and assignments are {@code (in & ~kill) | gen}
+ * where {@code kill} is the mask of the expressions using the assigned
+ * variable.
+ */
+public class BitVectorAvailableExpressions extends BaseLattice<BitVectorAvailableExpressions>
+		implements ValueDomain<BitVectorAvailableExpressions> {
+
+	/**
+	 * The expressions of each CFG
+	 */
+	private static final Map<CFG, DataflowIndex<AvailExprsSolution>> UNIVERSES = Collections
+			.synchronizedMap(new WeakHashMap<>());
+
+	/**
+	 * The element used to filter identifiers and expressions as
+	 * {@code DataflowDomain} does
+	 */
+	private static final AvailExprsSolution DOMAIN = new AvailExprsSolution();
+
+	/**
+	 * The index that {@link #expressions} refer to, {@code null} if no
+	 * expression has been generated yet
+	 */
+	private final DataflowIndex<AvailExprsSolution> universe;
+
+	/**
+	 * The available expressions, as slots of {@link #universe}
+	 */
+	private final long[] expressions;
+
+	private final boolean isTop;
+
+	private final boolean isBottom;
+
+	public BitVectorAvailableExpressions() {
+		this(null, Bits.EMPTY, false, false);
+	}
+
+	private BitVectorAvailableExpressions(DataflowIndex<AvailExprsSolution> universe, long[] expressions,
+			boolean isTop, boolean isBottom) {
+		this.universe = universe;
+		this.expressions = expressions;
+		this.isTop = isTop;
+		this.isBottom = isBottom;
+	}
+
+	private static DataflowIndex<AvailExprsSolution> universe(ProgramPoint pp) {
+		return UNIVERSES.computeIfAbsent(pp.getCFG(), cfg -> new DataflowIndex<>());
+	}
+
+	/**
+	 * Yields the expressions of this state as slots of {@code target}, that
+	 * is {@link #expressions} itself unless states coming from different
+	 * CFGs are mixed.
+	 */
+	private long[] in(DataflowIndex<AvailExprsSolution> target) {
+		if (universe == target || universe == null)
+			return expressions;
+		long[] result = Bits.EMPTY;
+		for (int i = Bits.nextSetBit(expressions, 0); i >= 0; i = Bits.nextSetBit(expressions, i + 1))
+			result = Bits.set(result, target.indexOf(universe.get(i)));
+		return result;
+	}
+
+	private BitVectorAvailableExpressions transfer(Identifier id, ValueExpression expression, ProgramPoint pp) {
+		DataflowIndex<AvailExprsSolution> target = universe(pp);
+		long[] result = in(target);
+		if (id != null)
+			// first kill, then gen
+			result = Bits.andNot(result, target.involving(id));
+		AvailExprsSolution generated = AvailExprsSolution.generated(id, expression, pp);
+		if (generated != null)
+			result = Bits.set(result, target.indexOf(generated));
+		return new BitVectorAvailableExpressions(target, result, false, false);
+	}
+
+	@Override
+	public BitVectorAvailableExpressions assign(Identifier id, ValueExpression expression, ProgramPoint pp)
+			throws SemanticException {
+		// as in DataflowDomain, identifiers that are not tracked and
+		// expressions that cannot be processed leave the state unchanged
+		if (!DOMAIN.tracksIdentifiers(id) || !DOMAIN.canProcess(expression))
+			return this;
+		return transfer(id, expression, pp);
+	}
+
+	@Override
+	public BitVectorAvailableExpressions smallStepSemantics(ValueExpression expression, ProgramPoint pp)
+			throws SemanticException {
+		if (!DOMAIN.canProcess(expression))
+			return this;
+		return transfer(null, expression, pp);
+	}
+
+	@Override
+	public BitVectorAvailableExpressions assume(ValueExpression expression, ProgramPoint pp)
+			throws SemanticException {
+		return this;
+	}
+
+	@Override
+	public BitVectorAvailableExpressions forgetIdentifier(Identifier id) throws SemanticException {
+		if (isTop() || universe == null)
+			return this;
+		long[] updated = Bits.andNot(expressions, universe.involving(id));
+		return Arrays.equals(updated, expressions) ? this
+				: new BitVectorAvailableExpressions(universe, updated, false, false);
+	}
+
+	@Override
+	public BitVectorAvailableExpressions forgetIdentifiersIf(Predicate<Identifier> test) throws SemanticException {
+		if (isTop() || universe == null)
+			return this;
+		long[] updated = expressions;
+		for (int i = Bits.nextSetBit(expressions, 0); i >= 0; i = Bits.nextSetBit(expressions, i + 1))
+			for (Identifier id : universe.get(i).getInvolvedIdentifiers())
+				if (test.test(id)) {
+					updated = Bits.clear(updated, i);
+					break;
+				}
+		return updated == expressions ? this : new BitVectorAvailableExpressions(universe, updated, false, false);
+	}
+
+	@Override
+	public Satisfiability satisfies(ValueExpression expression, ProgramPoint pp) throws SemanticException {
+		return Satisfiability.UNKNOWN;
+	}
+
+	@Override
+	public BitVectorAvailableExpressions pushScope(ScopeToken token) throws SemanticException {
+		return this;
+	}
+
+	@Override
+	public BitVectorAvailableExpressions popScope(ScopeToken token) throws SemanticException {
+		return this;
+	}
+
+	/**
+	 * Yields the expressions available at this point.
+	 */
+	public Set<AvailExprsSolution> getDataflowElements() {
+		Set<AvailExprsSolution> elements = new HashSet<>();
+		for (int i = Bits.nextSetBit(expressions, 0); i >= 0; i = Bits.nextSetBit(expressions, i + 1))
+			elements.add(universe.get(i));
+		return elements;
+	}
+
+	@Override
+	public DomainRepresentation representation() {
+		if (isTop())
+			return Lattice.topRepresentation();
+		if (isBottom())
+			return Lattice.bottomRepresentation();
+		// same as DefiniteForwardDataflowDomain
+		return new SetRepresentation(getDataflowElements(), AvailExprsSolution::representation);
+	}
+
+	@Override
+	public BitVectorAvailableExpressions top() {
+		return new BitVectorAvailableExpressions(universe, Bits.EMPTY, true, false);
+	}
+
+	@Override
+	public boolean isTop() {
+		return isTop && expressions.length == 0;
+	}
+
+	@Override
+	public BitVectorAvailableExpressions bottom() {
+		return new BitVectorAvailableExpressions(universe, Bits.EMPTY, false, true);
+	}
+
+	@Override
+	public boolean isBottom() {
+		return isBottom && expressions.length == 0;
+	}
+
+	@Override
+	public BitVectorAvailableExpressions lubAux(BitVectorAvailableExpressions other) throws SemanticException {
+		DataflowIndex<AvailExprsSolution> target = universe == null ? other.universe : universe;
+		return new BitVectorAvailableExpressions(target, Bits.and(in(target), other.in(target)), false, false);
+	}
+
+	@Override
+	public BitVectorAvailableExpressions wideningAux(BitVectorAvailableExpressions other) throws SemanticException {
+		return lubAux(other);
+	}
+
+	@Override
+	public boolean lessOrEqualAux(BitVectorAvailableExpressions other) throws SemanticException {
+		DataflowIndex<AvailExprsSolution> target = universe == null ? other.universe : universe;
+		return Bits.containsAll(in(target), other.in(target));
+	}
+
+	@Override
+	public int hashCode() {
+		// slots are only comparable inside the same universe, see equals
+		return Arrays.hashCode(expressions) + 31 * (31 * Boolean.hashCode(isTop) + Boolean.hashCode(isBottom));
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		BitVectorAvailableExpressions other = (BitVectorAvailableExpressions) obj;
+		if (isTop != other.isTop || isBottom != other.isBottom)
+			return false;
+		// states of different CFGs are never compared by the fixpoint: they
+		// are only equal if they are both empty
+		return (universe == other.universe || expressions.length == 0)
+				&& Arrays.equals(expressions, other.expressions);
+	}
+
+	@Override
+	public String toString() {
+		return representation().toString();
+	}
+}
@@ -0,0 +1,235 @@
+package it.unive.scsr;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.function.Predicate;
+
+import it.unive.lisa.analysis.BaseLattice;
+import it.unive.lisa.analysis.Lattice;
+import it.unive.lisa.analysis.ScopeToken;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.dataflow.PossibleForwardDataflowDomain;
+import it.unive.lisa.analysis.representation.DomainRepresentation;
+import it.unive.lisa.analysis.representation.SetRepresentation;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.ValueExpression;
+
+/**
+ * The reaching definitions analysis of {@link ReachingDefinitions}, with the
+ * same results of
+ * {@code new PossibleForwardDataflowDomain<>(new ReachingDefinitions())}, but
+ * with sets of definitions stored as bitsets. The definitions of each CFG
+ * are numbered by a {@link DataflowIndex} of that CFG the first time they are
+ * generated, and the index keeps the definitions of each variable, so that
+ * an assignment is just {@code (in & ~kill) | gen}, and joins and inclusion
+ * checks work on whole words.
+ */
+public class BitVectorReachingDefinitions extends BaseLattice<BitVectorReachingDefinitions>
+		implements ValueDomain<BitVectorReachingDefinitions> {
+
+	/**
+	 * The definitions of each CFG
+	 */
+	private static final Map<CFG, DataflowIndex<ReachingDefinitions>> UNIVERSES = Collections
+			.synchronizedMap(new WeakHashMap<>());
+
+	/**
+	 * The element whose filters are applied to assignments, as in
+	 * {@link PossibleForwardDataflowDomain}
+	 */
+	private static final ReachingDefinitions DOMAIN = new ReachingDefinitions();
+
+	/**
+	 * The index that {@link #definitions} refer to, {@code null} if no
+	 * definition has been generated yet
+	 */
+	private final DataflowIndex<ReachingDefinitions> universe;
+
+	/**
+	 * The definitions that reach this point, as slots of {@link #universe}
+	 */
+	private final long[] definitions;
+
+	private final boolean isTop;
+
+	public BitVectorReachingDefinitions() {
+		this(null, Bits.EMPTY, false);
+	}
+
+	private BitVectorReachingDefinitions(DataflowIndex<ReachingDefinitions> universe, long[] definitions,
+			boolean isTop) {
+		this.universe = universe;
+		this.definitions = definitions;
+		this.isTop = isTop;
+	}
+
+	/**
+	 * Yields the definitions of this state as slots of {@code target}, that
+	 * is {@link #definitions} itself unless states coming from different
+	 * CFGs are mixed.
+	 */
+	private long[] in(DataflowIndex<ReachingDefinitions> target) {
+		if (universe == target || universe == null)
+			return definitions;
+		long[] result = Bits.EMPTY;
+		for (int i = Bits.nextSetBit(definitions, 0); i >= 0; i = Bits.nextSetBit(definitions, i + 1))
+			result = Bits.set(result, target.indexOf(universe.get(i)));
+		return result;
+	}
+
+	@Override
+	public BitVectorReachingDefinitions assign(Identifier id, ValueExpression expression, ProgramPoint pp)
+			throws SemanticException {
+		// as in DataflowDomain, identifiers that are not tracked and
+		// expressions that cannot be processed leave the state unchanged
+		if (!DOMAIN.tracksIdentifiers(id) || !DOMAIN.canProcess(expression))
+			return this;
+
+		DataflowIndex<ReachingDefinitions> target = UNIVERSES.computeIfAbsent(pp.getCFG(),
+				cfg -> new DataflowIndex<>());
+		// first kill, then gen
+		long[] killed = Bits.andNot(in(target), target.involving(id));
+		int generated = target.indexOf(new ReachingDefinitions(id, pp.getLocation()));
+		return new BitVectorReachingDefinitions(target, Bits.set(killed, generated), false);
+	}
+
+	@Override
+	public BitVectorReachingDefinitions smallStepSemantics(ValueExpression expression, ProgramPoint pp)
+			throws SemanticException {
+		// if no assignment is performed, nothing is generated nor killed
+		return this;
+	}
+
+	@Override
+	public BitVectorReachingDefinitions assume(ValueExpression expression, ProgramPoint pp) throws SemanticException {
+		return this;
+	}
+
+	@Override
+	public BitVectorReachingDefinitions forgetIdentifier(Identifier id) throws SemanticException {
+		if (isTop || universe == null)
+			return this;
+		long[] updated = Bits.andNot(definitions, universe.involving(id));
+		return Arrays.equals(updated, definitions) ? this
+				: new BitVectorReachingDefinitions(universe, updated, false);
+	}
+
+	@Override
+	public BitVectorReachingDefinitions forgetIdentifiersIf(Predicate<Identifier> test) throws SemanticException {
+		if (isTop || universe == null)
+			return this;
+		long[] updated = definitions;
+		for (int i = Bits.nextSetBit(definitions, 0); i >= 0; i = Bits.nextSetBit(definitions, i + 1))
+			for (Identifier id : universe.get(i).getInvolvedIdentifiers())
+				if (test.test(id)) {
+					updated = Bits.clear(updated, i);
+					break;
+				}
+		return updated == definitions ? this : new BitVectorReachingDefinitions(universe, updated, false);
+	}
+
+	@Override
+	public Satisfiability satisfies(ValueExpression expression, ProgramPoint pp) throws SemanticException {
+		return Satisfiability.UNKNOWN;
+	}
+
+	@Override
+	public BitVectorReachingDefinitions pushScope(ScopeToken token) throws SemanticException {
+		return this;
+	}
+
+	@Override
+	public BitVectorReachingDefinitions popScope(ScopeToken token) throws SemanticException {
+		return this;
+	}
+
+	/**
+	 * Yields the definitions that reach this point.
+	 */
+	public Set<ReachingDefinitions> getDataflowElements() {
+		Set<ReachingDefinitions> elements = new HashSet<>();
+		for (int i = Bits.nextSetBit(definitions, 0); i >= 0; i = Bits.nextSetBit(definitions, i + 1))
+			elements.add(universe.get(i));
+		return elements;
+	}
+
+	@Override
+	public DomainRepresentation representation() {
+		if (isTop())
+			return Lattice.topRepresentation();
+		if (isBottom())
+			return Lattice.bottomRepresentation();
+		// same as PossibleForwardDataflowDomain
+		return new SetRepresentation(getDataflowElements(), ReachingDefinitions::representation);
+	}
+
+	@Override
+	public BitVectorReachingDefinitions top() {
+		return new BitVectorReachingDefinitions(universe, Bits.EMPTY, true);
+	}
+
+	@Override
+	public boolean isTop() {
+		return isTop;
+	}
+
+	@Override
+	public BitVectorReachingDefinitions bottom() {
+		return new BitVectorReachingDefinitions(universe, Bits.EMPTY, false);
+	}
+
+	@Override
+	public boolean isBottom() {
+		return !isTop && definitions.length == 0;
+	}
+
+	@Override
+	public BitVectorReachingDefinitions lubAux(BitVectorReachingDefinitions other) throws SemanticException {
+		DataflowIndex<ReachingDefinitions> target = universe == null ? other.universe : universe;
+		return new BitVectorReachingDefinitions(target, Bits.or(in(target), other.in(target)), false);
+	}
+
+	@Override
+	public BitVectorReachingDefinitions wideningAux(BitVectorReachingDefinitions other) throws SemanticException {
+		return lubAux(other);
+	}
+
+	@Override
+	public boolean lessOrEqualAux(BitVectorReachingDefinitions other) throws SemanticException {
+		DataflowIndex<ReachingDefinitions> target = universe == null ? other.universe : universe;
+		return Bits.containsAll(other.in(target), in(target));
+	}
+
+	@Override
+	public int hashCode() {
+		// slots are only comparable inside the same universe, see equals
+		return 31 * Arrays.hashCode(definitions) + Boolean.hashCode(isTop);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		BitVectorReachingDefinitions other = (BitVectorReachingDefinitions) obj;
+		// states of different CFGs are never compared by the fixpoint: they
+		// are only equal if they are both empty
+		return isTop == other.isTop && (universe == other.universe || definitions.length == 0)
+				&& Arrays.equals(definitions, other.definitions);
+	}
+
+	@Override
+	public String toString() {
+		return representation().toString();
+	}
+}
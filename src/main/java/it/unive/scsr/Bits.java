@@ -0,0 +1,116 @@
+package it.unive.scsr;
+
+import java.util.Arrays;
+
+/**
+ * Helpers for manipulating bitsets stored as {@code long[]}. All the
+ * operations that produce a new bitset return it trimmed (that is, without
+ * trailing zero words), so that two bitsets representing the same set are
+ * always equal according to {@link Arrays#equals(long[], long[])}. Arguments
+ * are never modified.
+ */
+final class Bits {
+
+	static final long[] EMPTY = new long[0];
+
+	private Bits() {
+	}
+
+	static boolean get(long[] bits, int index) {
+		int word = index >>> 6;
+		return word < bits.length && (bits[word] & (1L << index)) != 0;
+	}
+
+	static long[] set(long[] bits, int index) {
+		int word = index >>> 6;
+		long[] result = Arrays.copyOf(bits, Math.max(bits.length, word + 1));
+		result[word] |= 1L << index;
+		return result;
+	}
+
+	static long[] clear(long[] bits, int index) {
+		int word = index >>> 6;
+		if (word >= bits.length)
+			return bits;
+		long[] result = bits.clone();
+		result[word] &= ~(1L << index);
+		return trim(result);
+	}
+
+	static long[] and(long[] a, long[] b) {
+		int length = Math.min(a.length, b.length);
+		long[] result = new long[length];
+		for (int i = 0; i < length; i++)
+			result[i] = a[i] & b[i];
+		return trim(result);
+	}
+
+	static long[] or(long[] a, long[] b) {
+		if (a.length < b.length)
+			return or(b, a);
+		long[] result = a.clone();
+		for (int i = 0; i < b.length; i++)
+			result[i] |= b[i];
+		return result;
+	}
+
+	static long[] andNot(long[] a, long[] b) {
+		long[] result = a.clone();
+		int length = Math.min(a.length, b.length);
+		for (int i = 0; i < length; i++)
+			result[i] &= ~b[i];
+		return trim(result);
+	}
+
+	/**
+	 * Yields {@code true} if every bit set in {@code b} is also set in
+	 * {@code a}.
+	 */
+	static boolean containsAll(long[] a, long[] b) {
+		for (int i = 0; i < b.length; i++)
+			if ((b[i] & ~(i < a.length ? a[i] : 0L)) != 0)
+				return false;
+		return true;
+	}
+
+	static boolean isEmpty(long[] bits) {
+		for (long word : bits)
+			if (word != 0)
+				return false;
+		return true;
+	}
+
+	static int cardinality(long[] bits) {
+		int count = 0;
+		for (long word : bits)
+			count += Long.bitCount(word);
+		return count;
+	}
+
+	/**
+	 * Yields the index of the first bit set at or after {@code from}, or
+	 * {@code -1} if there is none.
+	 */
+	static int nextSetBit(long[] bits, int from) {
+		int word = from >>> 6;
+		if (word >= bits.length)
+			return -1;
+		long current = bits[word] & (-1L << from);
+		while (true) {
+			if (current != 0)
+				return (word << 6) + Long.numberOfTrailingZeros(current);
+			if (++word == bits.length)
+				return -1;
+			current = bits[word];
+		}
+	}
+
+	static long[] trim(long[] bits) {
+		int length = bits.length;
+		while (length > 0 && bits[length - 1] == 0)
+			length--;
+		if (length == bits.length)
+			return bits;
+		return length == 0 ? EMPTY : Arrays.copyOf(bits, length);
+	}
+}
@@ -0,0 +1,150 @@
+package it.unive.scsr;
+
+import java.util.Arrays;
+
+/**
+ * The strict upper bound relation of a {@link Pentagons} state as a packed
+ * boolean matrix: row {@code x} is the bitset (see {@link Bits}) of the slots
+ * {@code y} such that {@code x < y}, where slots are local to the state the
+ * matrix is built from. Rows are never modified in place, but copied when
+ * they change: {@link #changed(int)} tells which rows have to be written
+ * back.<br>
+ * <br>
+ * {@link #close()} computes the transitive closure with a bit-parallel
+ * Warshall pass, that is, O(n^3/64) word operations where n is the number of
+ * rows. The other operations keep a closed matrix closed in O(n^2/64).
+ */
+final class BoundsMatrix {
+
+	private long[][] rows;
+
+	private long[] changed = Bits.EMPTY;
+
+	/**
+	 * The slots whose row is not empty, in increasing order
+	 */
+	private int[] present;
+
+	private int size;
+
+	/**
+	 * Builds a matrix with the given rows, indexed by slot ({@code null}
+	 * stands for an empty row). The rows are never modified.
+	 */
+	BoundsMatrix(long[][] rows) {
+		this.rows = rows.clone();
+		this.present = new int[rows.length];
+		for (int slot = 0; slot < rows.length; slot++)
+			if (rows[slot] != null && rows[slot].length > 0)
+				present[size++] = slot;
+	}
+
+	long[] row(int slot) {
+		return slot < rows.length && rows[slot] != null ? rows[slot] : Bits.EMPTY;
+	}
+
+	boolean get(int x, int y) {
+		return Bits.get(row(x), y);
+	}
+
+	/**
+	 * Yields {@code true} if the row of the given slot has been modified.
+	 */
+	boolean changed(int slot) {
+		return Bits.get(changed, slot);
+	}
+
+	/**
+	 * Yields the slots whose row has been modified, as a bitset.
+	 */
+	long[] changed() {
+		return changed;
+	}
+
+	private void set(int slot, long[] row) {
+		if (slot >= rows.length)
+			rows = Arrays.copyOf(rows, Math.max(slot + 1, rows.length * 2));
+		boolean wasEmpty = row(slot).length == 0;
+		rows[slot] = row;
+		changed = Bits.set(changed, slot);
+		if (wasEmpty && row.length > 0) {
+			// keep present sorted
+			if (size == present.length)
+				present = Arrays.copyOf(present, Math.max(4, size * 2));
+			int position = size;
+			while (position > 0 && present[position - 1] > slot)
+				position--;
+			System.arraycopy(present, position, present, position + 1, size - position);
+			present[position] = slot;
+			size++;
+		}
+	}
+
+	/**
+	 * Closes the relation transitively: if {@code x < k} and {@code k < y},
+	 * then {@code x < y}.
+	 */
+	void close() {
+		for (int p = 0; p < size; p++) {
+			int k = present[p];
+			long[] through = rows[k];
+			for (int q = 0; q < size; q++) {
+				int x = present[q];
+				long[] row = rows[x];
+				if (x != k && Bits.get(row, k) && !Bits.containsAll(row, through))
+					set(x, Bits.or(row, through));
+			}
+			// rows added by set() have no bit k, as they were empty
+		}
+	}
+
+	/**
+	 * Yields {@code true} if some slot is bounded by itself, that is, if the
+	 * relation holds a cycle such as {@code x < y} and {@code y < x}, that no
+	 * value satisfies. On a closed matrix, every cycle yields such a slot.
+	 */
+	boolean cyclic() {
+		for (int q = 0; q < size; q++)
+			if (Bits.get(rows[present[q]], present[q]))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Adds {@code x < y} for each slot {@code y} in {@code bounds}, keeping
+	 * the matrix closed if it was.
+	 */
+	void addAll(int x, long[] bounds) {
+		long[] added = bounds;
+		for (int y = Bits.nextSetBit(bounds, 0); y >= 0; y = Bits.nextSetBit(bounds, y + 1))
+			added = Bits.or(added, row(y));
+		if (Bits.containsAll(row(x), added))
+			return;
+
+		for (int q = 0; q < size; q++) {
+			int z = present[q];
+			if (z != x && Bits.get(rows[z], x) && !Bits.containsAll(rows[z], added))
+				set(z, Bits.or(rows[z], added));
+		}
+		set(x, Bits.or(row(x), added));
+	}
+
+	/**
+	 * Replaces the relation of {@code x} after an assignment to it: nothing
+	 * is known to be bounded by {@code x} anymore, and {@code x} is bounded
+	 * by {@code bounds}, closed through their rows. The matrix is kept closed
+	 * if it was.
+	 */
+	void assign(int x, long[] bounds) {
+		for (int q = 0; q < size; q++) {
+			int z = present[q];
+			if (Bits.get(rows[z], x))
+				set(z, Bits.clear(rows[z], x));
+		}
+		long[] direct = Bits.clear(bounds, x);
+		long[] row = direct;
+		for (int y = Bits.nextSetBit(direct, 0); y >= 0; y = Bits.nextSetBit(direct, y + 1))
+			row = Bits.or(row, row(y));
+		set(x, row);
+	}
+}
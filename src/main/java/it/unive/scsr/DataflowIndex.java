@@ -0,0 +1,74 @@
+package it.unive.scsr;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import it.unive.lisa.analysis.dataflow.DataflowElement;
+import it.unive.lisa.symbolic.value.Identifier;
+
+/**
+ * A dense numbering of dataflow elements, so that sets of elements can be
+ * stored as bitsets (see {@link Bits}). Together with the slot of each
+ * element, the index keeps, for each identifier, the bitset of the elements
+ * that involve it: this is exactly the set of elements killed by an
+ * assignment to that identifier in most dataflow analyses.<br>
+ * <br>
+ * Registration is synchronized. Bitsets returned by
+ * {@link #involving(Identifier)} are never modified afterwards, and they
+ * contain all the elements registered before the call.
+ *
+ * @param <E> the type of the elements
+ */
+public class DataflowIndex<E extends DataflowElement<?, E>> {
+
+	private final Map<E, Integer> slots = new HashMap<>();
+
+	private final Map<Identifier, long[]> involving = new HashMap<>();
+
+	private volatile Object[] elements = new Object[16];
+
+	private int size = 0;
+
+	/**
+	 * Yields the slot of the given element, registering it if it was never
+	 * seen before.
+	 */
+	public synchronized int indexOf(E element) {
+		Integer slot = slots.get(element);
+		if (slot != null)
+			return slot;
+
+		Object[] table = elements;
+		if (size == table.length)
+			table = Arrays.copyOf(table, size * 2);
+		table[size] = element;
+		// the volatile write publishes the new slot to lock-free readers
+		elements = table;
+		slots.put(element, size);
+		for (Identifier id : element.getInvolvedIdentifiers())
+			// copy-on-write, as previous masks might be in use
+			involving.put(id, Bits.set(involving.getOrDefault(id, Bits.EMPTY), size));
+		return size++;
+	}
+
+	/**
+	 * Yields the element registered in the given slot.
+	 */
+	@SuppressWarnings("unchecked")
+	public E get(int slot) {
+		return (E) elements[slot];
+	}
+
+	/**
+	 * Yields the bitset of the registered elements whose involved identifiers
+	 * contain {@code id}.
+	 */
+	public synchronized long[] involving(Identifier id) {
+		return involving.getOrDefault(id, Bits.EMPTY);
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+}
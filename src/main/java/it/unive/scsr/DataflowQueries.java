@@ -0,0 +1,203 @@
+package it.unive.scsr;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.program.cfg.statement.Assignment;
+import it.unive.lisa.program.cfg.statement.Expression;
+import it.unive.lisa.program.cfg.statement.NaryExpression;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.program.cfg.statement.VariableRef;
+import it.unive.lisa.program.cfg.statement.call.Call;
+import it.unive.lisa.program.cfg.statement.literal.Literal;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.PushAny;
+import it.unive.lisa.symbolic.value.ValueExpression;
+
+/**
+ * Demand-driven queries about the reaching definitions and the available
+ * expressions at single program points of a {@link CFG}, answered without
+ * running the whole analysis. Each query only explores the part of the CFG
+ * that precedes the queried point, backwards, until the information needed
+ * is found, and its result is memoised.<br>
+ * <br>
+ * Reaching definitions are answered by {@link SparseReachingDefinitions}.
+ * Available expressions are the {@link AvailExprsSolution} elements of the
+ * non-trivial expressions of the CFG (that is, neither literals, variables,
+ * assignments nor calls), translated to value expressions as
+ * {@link ValueDomainTransfer} does: an expression is available before a node
+ * if no path from the entry of the CFG, or from an assignment to one of its
+ * variables, reaches the node without evaluating it again, as in
+ * {@link AvailExprsSolution}.
+ */
+public class DataflowQueries {
+
+	private static final Map<CFG, DataflowQueries> INSTANCES = Collections.synchronizedMap(new WeakHashMap<>());
+
+	private final CFG cfg;
+
+	private SparseReachingDefinitions definitions;
+
+	/**
+	 * The expressions evaluated by each node
+	 */
+	private final Map<Statement, Set<AvailExprsSolution>> evaluated = new HashMap<>();
+
+	/**
+	 * The variable assigned by each node
+	 */
+	private final Map<Statement, Identifier> assigned = new HashMap<>();
+
+	/**
+	 * The expressions evaluated in the cfg
+	 */
+	private final Set<AvailExprsSolution> expressions = new HashSet<>();
+
+	private final Map<Statement, Map<AvailExprsSolution, Boolean>> availableBefore = new HashMap<>();
+
+	/**
+	 * Yields the (shared) queries over the given CFG, so that memoised
+	 * results are reused by all the clients asking about it.
+	 */
+	public static DataflowQueries of(CFG cfg) {
+		return INSTANCES.computeIfAbsent(cfg, DataflowQueries::new);
+	}
+
+	public DataflowQueries(CFG cfg) {
+		this.cfg = cfg;
+		for (Statement node : cfg.getNodes()) {
+			Set<AvailExprsSolution> collected = new LinkedHashSet<>();
+			collect(node, collected);
+			evaluated.put(node, collected);
+			expressions.addAll(collected);
+			if (node instanceof Assignment && ((Assignment) node).getLeft() instanceof VariableRef)
+				assigned.put(node, ((VariableRef) ((Assignment) node).getLeft()).getVariable());
+		}
+	}
+
+	/**
+	 * Collects the non-trivial expressions evaluated by {@code st}.
+	 */
+	private static void collect(Statement st, Set<AvailExprsSolution> collected) {
+		if (!(st instanceof NaryExpression))
+			return;
+		for (Expression sub : ((NaryExpression) st).getSubExpressions())
+			collect(sub, collected);
+		if (!(st instanceof Assignment) && !(st instanceof Call) && !(st instanceof Literal)) {
+			ValueExpression expression = ValueDomainTransfer.translate((Expression) st);
+			if (!(expression instanceof PushAny))
+				collected.add(AvailExprsSolution.of(expression));
+		}
+	}
+
+	private static Statement node(ProgramPoint pp) {
+		if (pp instanceof Expression)
+			return ((Expression) pp).getRootStatement();
+		if (pp instanceof Statement)
+			return (Statement) pp;
+		throw new IllegalArgumentException("Not a statement: " + pp);
+	}
+
+	/**
+	 * Yields the definitions of {@code variable} that reach the end of the
+	 * given program point.
+	 */
+	public synchronized Set<ReachingDefinitions> reachingDefinitions(Identifier variable, ProgramPoint pp) {
+		if (definitions == null)
+			definitions = new SparseReachingDefinitions(cfg);
+		return definitions.reachingAfter(variable, node(pp));
+	}
+
+	/**
+	 * Yields all the definitions that reach the end of the given program
+	 * point.
+	 */
+	public synchronized Set<ReachingDefinitions> reachingDefinitions(ProgramPoint pp) {
+		if (definitions == null)
+			definitions = new SparseReachingDefinitions(cfg);
+		return definitions.reachingAfter(node(pp));
+	}
+
+	/**
+	 * Yields {@code true} if {@code expression} is available at the end of
+	 * the given program point.
+	 */
+	public synchronized boolean isAvailable(AvailExprsSolution expression, ProgramPoint pp) {
+		if (!expressions.contains(expression))
+			// never evaluated in this cfg
+			return false;
+		Statement node = node(pp);
+		if (kills(node, expression))
+			return false;
+		if (evaluated.get(node).contains(expression))
+			return true;
+		return isAvailableBefore(expression, node);
+	}
+
+	/**
+	 * Yields the expressions evaluated in the CFG, that are the only ones
+	 * that can be available.
+	 */
+	public Set<AvailExprsSolution> expressions() {
+		return Collections.unmodifiableSet(expressions);
+	}
+
+	/**
+	 * Yields the expressions available at the end of the given program
+	 * point.
+	 */
+	public synchronized Set<AvailExprsSolution> availableExpressions(ProgramPoint pp) {
+		Set<AvailExprsSolution> result = new HashSet<>();
+		for (AvailExprsSolution expression : expressions)
+			if (isAvailable(expression, pp))
+				result.add(expression);
+		return result;
+	}
+
+	private boolean kills(Statement node, AvailExprsSolution expression) {
+		Identifier variable = assigned.get(node);
+		return variable != null && expression.getInvolvedIdentifiers().contains(variable);
+	}
+
+	private boolean isAvailableBefore(AvailExprsSolution expression, Statement node) {
+		Map<AvailExprsSolution, Boolean> known = availableBefore.computeIfAbsent(node, n -> new HashMap<>());
+		Boolean result = known.get(expression);
+		if (result != null)
+			return result;
+
+		// we look for a path reaching the node that does not evaluate the
+		// expression after its last kill, or after the entry of the cfg
+		boolean found = cfg.getEntrypoints().contains(node);
+		Set<Statement> visited = new HashSet<>();
+		Deque<Statement> worklist = new ArrayDeque<>();
+		worklist.push(node);
+		while (!found && !worklist.isEmpty())
+			for (Statement pred : cfg.predecessorsOf(worklist.pop())) {
+				if (!visited.add(pred))
+					continue;
+				if (kills(pred, expression)) {
+					found = true;
+					break;
+				}
+				if (evaluated.get(pred).contains(expression))
+					continue;
+				if (cfg.getEntrypoints().contains(pred)) {
+					found = true;
+					break;
+				}
+				worklist.push(pred);
+			}
+
+		known.put(expression, !found);
+		return !found;
+	}
+}
@@ -17,6 +17,23 @@ import it.unive.lisa.symbolic.value.operator.unary.UnaryOperator;
 
 public class ExtSignDomainSolution extends BaseNonRelationalValueDomain<ExtSignDomainSolution> {
 
+	// as this is a finite lattice, we keep one canonical element for each
+	// sign, indexed by its ordinal, and never allocate new ones during the
+	// analysis
+	private static final ExtSignDomainSolution[] ELEMENTS;
+
+	static {
+		Sign[] signs = Sign.values();
+		ELEMENTS = new ExtSignDomainSolution[signs.length];
+		for (Sign sign : signs)
+			ELEMENTS[sign.ordinal()] = new ExtSignDomainSolution(sign);
+	}
+
+	// the byte codes of the elements, used by SignEnvironment
+	static final SignCodec<ExtSignDomainSolution> CODEC = new SignCodec<>(
+			of(Sign.BOTTOM), of(Sign.NEG), of(Sign.ZERO), of(Sign.NEG_OR_ZERO),
+			of(Sign.POS), null, of(Sign.POS_OR_ZERO), of(Sign.TOP));
+
 	private final Sign sign;
 
 	public ExtSignDomainSolution() {
@@ -27,443 +44,125 @@ public class ExtSignDomainSolution extends BaseNonRelationalValueDomain<ExtSignD
 		this.sign = sign;
 	}
 
+	static ExtSignDomainSolution of(Sign sign) {
+		return ELEMENTS[sign.ordinal()];
+	}
+
 	enum Sign {
 
-		BOTTOM {
-
-			@Override
-			Sign minus() {
-				return this;
-			}
-
-			@Override
-			Sign add(Sign other) {
-				return this;
-			}
-
-			@Override
-			Sign mul(Sign other) {
-				return this;
-			}
-
-			@Override
-			Sign div(Sign other) {
-				return this;
-			}
-
-			@Override
-			public String toString() {
-				return Lattice.BOTTOM_STRING;
-			}
-		},
-
-		TOP {
-
-			@Override
-			Sign minus() {
-				return this;
-			}
-
-			@Override
-			Sign add(Sign other) {
-				// add(top, bottom) = bottom
-				// add(top, top) = top;
-				// add(top, +) = top
-				// add(top, 0) = top
-				// add(top, -) = top
-				// add(top, 0+) = top
-				// add(top, 0-) = top
-				return other == BOTTOM ? other : this;
-			}
-
-			@Override
-			Sign mul(Sign other) {
-				// mul(top, bottom) = bottom
-				// mul(top, top) = top;
-				// mul(top, +) = top
-				// mul(top, 0) = 0
-				// mul(top, -) = top
-				// mul(top, 0+) = top
-				// mul(top, 0-) = top
-				return other == BOTTOM ? other : other == ZERO ? ZERO : TOP;
-			}
-
-			@Override
-			Sign div(Sign other) {
-				// div(top, bottom) = bottom
-				// div(top, top) = top;
-				// div(top, +) = top
-				// div(top, 0) = bottom
-				// div(top, -) = top
-				// div(top, 0+) = top
-				// div(top, 0-) = top
-				return other == ZERO || other == BOTTOM ? BOTTOM : TOP;
-			}
-
-			@Override
-			public String toString() {
-				return Lattice.TOP_STRING;
-			}
-		},
-
-		POS {
-
-			@Override
-			Sign minus() {
-				return NEG;
-			}
-
-			@Override
-			Sign add(Sign other) {
-				// add(+, bottom) = bottom
-				// add(+, top) = top;
-				// add(+, +) = +
-				// add(+, 0) = +
-				// add(+, -) = top
-				// add(+, 0+) = +
-				// add(+, 0-) = top
-				if (other == TOP || other == BOTTOM)
-					return other;
-				if (other == POS || other == POS_OR_ZERO || other == ZERO)
-					return this;
-
-				return TOP;
-			}
-
-			@Override
-			Sign mul(Sign other) {
-				// mul(+, bottom) = bottom
-				// mul(+, top) = top;
-				// mul(+, +) = +
-				// mul(+, 0) = 0
-				// mul(+, -) = -
-				// mul(+, 0+) = 0+
-				// mul(+, 0-) = 0-
-				return other;
-			}
-
-			@Override
-			Sign div(Sign other) {
-				// div(+, bottom) = bottom
-				// div(+, top) = top;
-				// div(+, +) = +
-				// div(+, 0) = bottom
-				// div(+, -) = -
-				// div(+, 0+) = +
-				// div(+, 0-) = -
-				if (other == TOP || other == BOTTOM)
-					return other;
-				if (other == POS || other == POS_OR_ZERO)
-					return POS;
-				if (other == NEG || other == NEG_OR_ZERO)
-					return NEG;
-				return BOTTOM;
-			}
-
-			@Override
-			public String toString() {
-				return "+";
-			}
-		},
-
-		NEG {
-
-			@Override
-			Sign minus() {
-				return POS;
-			}
-
-			@Override
-			Sign add(Sign other) {
-				// add(-, bottom) = bottom
-				// add(-, top) = top;
-				// add(-, +) = top
-				// add(-, 0) = -
-				// add(-, -) = -
-				// add(-, 0+) = top
-				// add(-, 0-) = -
-				if (other == TOP || other == BOTTOM)
-					return other;
-
-				if (other == NEG || other == ZERO || other == NEG_OR_ZERO)
-					return NEG;
-
-				return TOP;
-			}
-
-			@Override
-			Sign mul(Sign other) {
-				// mul(-, bottom) = bottom
-				// mul(-, top) = top;
-				// mul(-, +) = -
-				// mul(-, 0) = 0
-				// mul(-, -) = +
-				// mul(-, 0+) = 0-
-				// mul(-, 0-) = 0+
-				if (other == TOP || other == BOTTOM)
-					return other;
-
-				if (other == POS)
-					return this;
-
-				if (other == ZERO)
-					return other;
-
-				if (other == NEG)
-					return POS;
-
-				if (other == POS_OR_ZERO)
-					return NEG_OR_ZERO;
-				return POS_OR_ZERO;
-			}
-
-			@Override
-			Sign div(Sign other) {
-				// div(-, bottom) = bottom
-				// div(-, top) = top;
-				// div(-, +) = -
-				// div(-, 0) = bottom
-				// div(-, -) = +
-				// div(-, 0+) = -
-				// div(-, 0-) = +
-				if (other == TOP || other == BOTTOM)
-					return other;
-
-				if (other == POS || other == POS_OR_ZERO)
-					return NEG;
-
-				if (other == NEG || other == NEG_OR_ZERO)
-					return POS;
-
-				return BOTTOM;
-			}
-
-			@Override
-			public String toString() {
-				return "-";
-			}
-		},
-
-		ZERO {
-
-			@Override
-			Sign minus() {
-				return ZERO;
-			}
-
-			@Override
-			Sign add(Sign other) {
-				// add(0, bottom) = bottom
-				// add(0, top) = top;
-				// add(0, +) = +
-				// add(0, 0) = 0
-				// add(0, -) = -
-				// add(0, 0+) = 0+
-				// add(0, 0-) = 0-
-				return other;
-			}
-
-			@Override
-			Sign mul(Sign other) {
-				// mul(0, bottom) = bottom
-				// mul(0, top) = 0;
-				// mul(0, +) = 0
-				// mul(0, 0) = 0
-				// mul(0, -) = 0
-				// mul(0, 0+) = 0
-				// mul(0, 0-) = 0
-				return other == BOTTOM ? other : ZERO;
-			}
-
-			@Override
-			Sign div(Sign other) {
-				// div(0, bottom) = bottom
-				// div(0, top) = 0;
-				// div(0, +) = 0
-				// div(0, 0) = bottom
-				// div(0, -) = 0
-				// div(0, 0+) = 0
-				// div(0, 0-) = 0
-				return other == ZERO || other == BOTTOM ? BOTTOM : ZERO;
-			}
-
-			@Override
-			public String toString() {
-				return "0";
-			}
-		},
-
-		POS_OR_ZERO {
-
-			@Override
-			Sign minus() {
-				return NEG_OR_ZERO;
-			}
-
-			@Override
-			Sign add(Sign other) {
-				// add(0+, bottom) = bottom
-				// add(0+, top) = top;
-				// add(0+, +) = +
-				// add(0+, 0) = 0+
-				// add(0+, -) = top
-				// add(0+, 0+) = 0+
-				// add(0+, 0-) = top
-				if (other == TOP || other == BOTTOM)
-					return other;
-
-				if (other == POS || other == POS_OR_ZERO)
-					return other;
-
-				if (other == ZERO)
-					return POS_OR_ZERO;
-
-				return TOP;
-			}
-
-			@Override
-			Sign mul(Sign other) {
-				// mul(0+, bottom) = bottom
-				// mul(0+, top) = top;
-				// mul(0+, +) = 0+
-				// mul(0+, 0) = 0
-				// mul(0+, -) = 0-
-				// mul(0+, 0+) = 0+
-				// mul(0+, 0-) = 0-
-				if (other == TOP || other == BOTTOM)
-					return other;
-
-				if (other == POS || other == POS_OR_ZERO)
-					return POS_OR_ZERO;
-
-				if (other == NEG || other == NEG_OR_ZERO)
-					return NEG_OR_ZERO;
-
-				return ZERO;
-			}
-
-			@Override
-			Sign div(Sign other) {
-				// div(0+, bottom) = bottom
-				// div(0+, top) = top;
-				// div(0+, +) = 0+
-				// div(0+, 0) = bottom
-				// div(0+, -) = 0-
-				// div(0+, 0+) = 0+
-				// div(0+, 0-) = 0-
-				if (other == TOP || other == BOTTOM)
-					return other;
-
-				if (other == POS || other == POS_OR_ZERO)
-					return POS_OR_ZERO;
-
-				if (other == NEG || other == NEG_OR_ZERO)
-					return NEG_OR_ZERO;
-
-				return BOTTOM;
-			}
-
-			@Override
-			public String toString() {
-				return "0+";
-			}
-		},
-
-		NEG_OR_ZERO {
-
-			@Override
-			Sign minus() {
-				return POS_OR_ZERO;
-			}
-
-			@Override
-			Sign add(Sign other) {
-				// add(0-, bottom) = bottom
-				// add(0-, top) = top;
-				// add(0-, +) = top
-				// add(0-, 0) = 0-
-				// add(0-, -) = -
-				// add(0-, 0+) = top
-				// add(0-, 0-) = 0-
-				if (other == TOP || other == BOTTOM)
-					return other;
-
-				if (other == ZERO || other == NEG_OR_ZERO)
-					return NEG_OR_ZERO;
-
-				if (other == NEG)
-					return other;
-
-				return TOP;
-			}
-
-			@Override
-			Sign mul(Sign other) {
-				// mul(0-, bottom) = bottom
-				// mul(0-, top) = top;
-				// mul(0-, +) = 0-
-				// mul(0-, 0) = 0
-				// mul(0-, -) = 0+
-				// mul(0-, 0+) = 0-
-				// mul(0-, 0-) = 0+
-				if (other == TOP || other == BOTTOM)
-					return other;
-
-				if (other == POS || other == POS_OR_ZERO)
-					return NEG_OR_ZERO;
-
-				if (other == ZERO)
-					return other;
-
-				return POS_OR_ZERO;
-			}
-
-			@Override
-			Sign div(Sign other) {
-				// div(0-, bottom) = bottom
-				// div(0-, top) = top;
-				// div(0-, +) = 0-
-				// div(0-, 0) = bottom
-				// div(0-, -) = 0+
-				// div(0-, 0+) = 0-
-				// div(0-, 0-) = 0+
-				if (other == TOP || other == BOTTOM)
-					return other;
-
-				if (other == POS || other == POS_OR_ZERO)
-					return NEG_OR_ZERO;
-
-				if (other == ZERO)
-					return BOTTOM;
-				return POS_OR_ZERO;
-			}
-
-			@Override
-			public String toString() {
-				return "0-";
-			}
+		BOTTOM(Lattice.BOTTOM_STRING),
+		TOP(Lattice.TOP_STRING),
+		POS("+"),
+		NEG("-"),
+		ZERO("0"),
+		POS_OR_ZERO("0+"),
+		NEG_OR_ZERO("0-");
+
+		private static final int SIZE = 7;
+
+		// the abstract operations are precomputed into lookup tables: binary
+		// ones are indexed by [left.ordinal() * SIZE + right.ordinal()], with
+		// rows and columns following the declaration order of the constants
+		// (_|_, T, +, -, 0, 0+, 0-)
+
+		private static final Sign[] MINUS = {
+				BOTTOM, TOP, NEG, POS, ZERO, NEG_OR_ZERO, POS_OR_ZERO
+		};
+
+		private static final Sign[] ADD = {
+				BOTTOM, BOTTOM, BOTTOM, BOTTOM, BOTTOM, BOTTOM, BOTTOM, // _|_
+				BOTTOM, TOP, TOP, TOP, TOP, TOP, TOP, // T
+				BOTTOM, TOP, POS, TOP, POS, POS, TOP, // +
+				BOTTOM, TOP, TOP, NEG, NEG, TOP, NEG, // -
+				BOTTOM, TOP, POS, NEG, ZERO, POS_OR_ZERO, NEG_OR_ZERO, // 0
+				BOTTOM, TOP, POS, TOP, POS_OR_ZERO, POS_OR_ZERO, TOP, // 0+
+				BOTTOM, TOP, TOP, NEG, NEG_OR_ZERO, TOP, NEG_OR_ZERO, // 0-
 		};
 
-		abstract Sign minus();
+		private static final Sign[] MUL = {
+				BOTTOM, BOTTOM, BOTTOM, BOTTOM, BOTTOM, BOTTOM, BOTTOM, // _|_
+				BOTTOM, TOP, TOP, TOP, ZERO, TOP, TOP, // T
+				BOTTOM, TOP, POS, NEG, ZERO, POS_OR_ZERO, NEG_OR_ZERO, // +
+				BOTTOM, TOP, NEG, POS, ZERO, NEG_OR_ZERO, POS_OR_ZERO, // -
+				BOTTOM, ZERO, ZERO, ZERO, ZERO, ZERO, ZERO, // 0
+				BOTTOM, TOP, POS_OR_ZERO, NEG_OR_ZERO, ZERO, POS_OR_ZERO, NEG_OR_ZERO, // 0+
+				BOTTOM, TOP, NEG_OR_ZERO, POS_OR_ZERO, ZERO, NEG_OR_ZERO, POS_OR_ZERO, // 0-
+		};
+
+		private static final Sign[] DIV = {
+				BOTTOM, BOTTOM, BOTTOM, BOTTOM, BOTTOM, BOTTOM, BOTTOM, // _|_
+				BOTTOM, TOP, TOP, TOP, BOTTOM, TOP, TOP, // T
+				BOTTOM, TOP, POS, NEG, BOTTOM, POS, NEG, // +
+				BOTTOM, TOP, NEG, POS, BOTTOM, NEG, POS, // -
+				BOTTOM, ZERO, ZERO, ZERO, BOTTOM, ZERO, ZERO, // 0
+				BOTTOM, TOP, POS_OR_ZERO, NEG_OR_ZERO, BOTTOM, POS_OR_ZERO, NEG_OR_ZERO, // 0+
+				BOTTOM, TOP, NEG_OR_ZERO, POS_OR_ZERO, BOTTOM, NEG_OR_ZERO, POS_OR_ZERO, // 0-
+		};
+
+		private static final Sign[] LUB = {
+				BOTTOM, TOP, POS, NEG, ZERO, POS_OR_ZERO, NEG_OR_ZERO, // _|_
+				TOP, TOP, TOP, TOP, TOP, TOP, TOP, // T
+				POS, TOP, POS, TOP, POS_OR_ZERO, POS_OR_ZERO, TOP, // +
+				NEG, TOP, TOP, NEG, NEG_OR_ZERO, TOP, NEG_OR_ZERO, // -
+				ZERO, TOP, POS_OR_ZERO, NEG_OR_ZERO, ZERO, POS_OR_ZERO, NEG_OR_ZERO, // 0
+				POS_OR_ZERO, TOP, POS_OR_ZERO, TOP, POS_OR_ZERO, POS_OR_ZERO, TOP, // 0+
+				NEG_OR_ZERO, TOP, TOP, NEG_OR_ZERO, NEG_OR_ZERO, TOP, NEG_OR_ZERO, // 0-
+		};
+
+		private static final boolean[] LEQ = {
+				true, true, true, true, true, true, true, // _|_
+				false, true, false, false, false, false, false, // T
+				false, true, true, false, false, true, false, // +
+				false, true, false, true, false, false, true, // -
+				false, true, false, false, true, true, true, // 0
+				false, true, false, false, false, true, false, // 0+
+				false, true, false, false, false, false, true, // 0-
+		};
+
+		private final String representation;
+
+		Sign(String representation) {
+			this.representation = representation;
+		}
+
+		Sign minus() {
+			return MINUS[ordinal()];
+		}
+
+		Sign add(Sign other) {
+			return ADD[ordinal() * SIZE + other.ordinal()];
+		}
+
+		Sign mul(Sign other) {
+			return MUL[ordinal() * SIZE + other.ordinal()];
+		}
 
-		abstract Sign add(Sign other);
+		Sign div(Sign other) {
+			return DIV[ordinal() * SIZE + other.ordinal()];
+		}
 
-		abstract Sign mul(Sign other);
+		Sign lub(Sign other) {
+			return LUB[ordinal() * SIZE + other.ordinal()];
+		}
 
-		abstract Sign div(Sign other);
+		boolean lessOrEqual(Sign other) {
+			return LEQ[ordinal() * SIZE + other.ordinal()];
+		}
 
 		@Override
-		public abstract String toString();
+		public String toString() {
+			return representation;
+		}
 	}
 
 	@Override
 	public ExtSignDomainSolution top() {
-		return new ExtSignDomainSolution(Sign.TOP);
+		return of(Sign.TOP);
 	}
 
 	@Override
 	public ExtSignDomainSolution bottom() {
-		return new ExtSignDomainSolution(Sign.BOTTOM);
+		return of(Sign.BOTTOM);
 	}
 
 	@Override
@@ -481,11 +180,11 @@ public class ExtSignDomainSolution extends BaseNonRelationalValueDomain<ExtSignD
 		if (constant.getValue() instanceof Integer) {
 			int c = (int) constant.getValue();
 			if (c == 0)
-				return new ExtSignDomainSolution(Sign.ZERO);
+				return of(Sign.ZERO);
 			else if (c > 0)
-				return new ExtSignDomainSolution(Sign.POS);
+				return of(Sign.POS);
 			else
-				return new ExtSignDomainSolution(Sign.NEG);
+				return of(Sign.NEG);
 		}
 		return top();
 	}
@@ -494,7 +193,7 @@ public class ExtSignDomainSolution extends BaseNonRelationalValueDomain<ExtSignD
 	public ExtSignDomainSolution evalUnaryExpression(UnaryOperator operator, ExtSignDomainSolution arg,
 			ProgramPoint pp) {
 		if (operator instanceof NumericNegation)
-			return new ExtSignDomainSolution(arg.sign.minus());
+			return of(arg.sign.minus());
 		return top();
 	}
 
@@ -503,38 +202,19 @@ public class ExtSignDomainSolution extends BaseNonRelationalValueDomain<ExtSignD
 			ExtSignDomainSolution right,
 			ProgramPoint pp) {
 		if (operator instanceof AdditionOperator)
-			return new ExtSignDomainSolution(left.sign.add(right.sign));
+			return of(left.sign.add(right.sign));
 		if (operator instanceof DivisionOperator)
-			return new ExtSignDomainSolution(left.sign.div(right.sign));
+			return of(left.sign.div(right.sign));
 		if (operator instanceof MultiplicationOperator)
-			return new ExtSignDomainSolution(left.sign.mul(right.sign));
+			return of(left.sign.mul(right.sign));
 		if (operator instanceof SubtractionOperator)
-			return new ExtSignDomainSolution(left.sign.add(right.sign.minus()));
+			return of(left.sign.add(right.sign.minus()));
 		return top();
 	}
 
 	@Override
 	public ExtSignDomainSolution lubAux(ExtSignDomainSolution other) throws SemanticException {
-		if (lessOrEqual(other))
-			return other;
-		if (other.lessOrEqual(this))
-			return this;
-
-		if (sign == Sign.ZERO) {
-			if (other.sign == Sign.POS)
-				return new ExtSignDomainSolution(Sign.POS_OR_ZERO);
-			else if (other.sign == Sign.NEG)
-				return new ExtSignDomainSolution(Sign.NEG_OR_ZERO);
-		}
-
-		if (other.sign == Sign.ZERO) {
-			if (sign == Sign.POS)
-				return new ExtSignDomainSolution(Sign.POS_OR_ZERO);
-			else if (sign == Sign.NEG)
-				return new ExtSignDomainSolution(Sign.NEG_OR_ZERO);
-		}
-
-		return top();
+		return of(sign.lub(other.sign));
 	}
 
 	@Override
@@ -544,22 +224,7 @@ public class ExtSignDomainSolution extends BaseNonRelationalValueDomain<ExtSignD
 
 	@Override
 	public boolean lessOrEqualAux(ExtSignDomainSolution other) throws SemanticException {
-		switch (sign) {
-		case NEG:
-			if (other.sign == Sign.NEG_OR_ZERO)
-				return true;
-			return false;
-		case POS:
-			if (other.sign == Sign.POS_OR_ZERO)
-				return true;
-			return false;
-		case ZERO:
-			if (other.sign == Sign.POS_OR_ZERO || other.sign == Sign.NEG_OR_ZERO)
-				return true;
-			return false;
-		default:
-			return false;
-		}
+		return sign.lessOrEqual(other.sign);
 	}
 
 	@Override
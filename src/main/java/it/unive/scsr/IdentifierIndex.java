@@ -0,0 +1,71 @@
+package it.unive.scsr;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import it.unive.lisa.symbolic.value.Identifier;
+
+/**
+ * A dense numbering of {@link Identifier}s: each identifier that is
+ * registered gets the next free slot, starting from zero, and keeps it for
+ * the lifetime of the index. Slots can then be used as positions inside
+ * bitsets (see {@link UpperBounds}). Indexes are meant to be owned by a
+ * single analysis, so that slots stay as small as its variables, and are
+ * released with it. Registration of new identifiers is synchronized, while
+ * all lookups are lock-free, so that an index can be used by analyses
+ * running in parallel.
+ */
+public class IdentifierIndex {
+
+	private final Map<Identifier, Integer> slots = new ConcurrentHashMap<>();
+
+	private volatile Identifier[] identifiers = new Identifier[16];
+
+	private volatile int size = 0;
+
+	/**
+	 * Yields the slot of the given identifier, registering it if it was never
+	 * seen before.
+	 */
+	public int indexOf(Identifier id) {
+		Integer slot = slots.get(id);
+		return slot != null ? slot : register(id);
+	}
+
+	private synchronized int register(Identifier id) {
+		Integer slot = slots.get(id);
+		if (slot != null)
+			return slot;
+
+		Identifier[] table = identifiers;
+		if (size == table.length)
+			table = Arrays.copyOf(table, size * 2);
+		table[size] = id;
+		// the volatile write publishes the new slot to lock-free readers,
+		// before the identifier can be found in the map
+		identifiers = table;
+		slots.put(id, size);
+		return size++;
+	}
+
+	/**
+	 * Yields the slot of the given identifier, or {@code -1} if it has never
+	 * been registered.
+	 */
+	public int find(Identifier id) {
+		Integer slot = slots.get(id);
+		return slot == null ? -1 : slot;
+	}
+
+	/**
+	 * Yields the identifier registered in the given slot.
+	 */
+	public Identifier get(int slot) {
+		return identifiers[slot];
+	}
+
+	public int size() {
+		return size;
+	}
+}
@@ -0,0 +1,390 @@
+package it.unive.scsr;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import it.unive.lisa.LiSAConfiguration;
+import it.unive.lisa.analysis.Lattice;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.edge.Edge;
+import it.unive.lisa.program.cfg.statement.Statement;
+
+/**
+ * An intraprocedural forward fixpoint over the nodes of {@link CFG}s that
+ * keeps the results of previous runs, so that a new version of a program
+ * (e.g., parsed again after an edit) can be analyzed by recomputing only the
+ * nodes affected by the changes.<br>
+ * <br>
+ * Nodes of different versions of a CFG are matched by structure, not by
+ * location: each node is identified by its textual form and by how many nodes
+ * with the same text precede it in a depth-first visit of the CFG from its
+ * entrypoints, so that inserting or removing a line does not change the
+ * identity of the nodes after it. A node is changed if it has no match in
+ * the previous version, or if its predecessors (or the kind of the edges
+ * coming from them) changed.<br>
+ * <br>
+ * The CFG is solved one strongly connected component at a time, in
+ * topological order, so that the inputs coming from outside a component are
+ * final when the component is solved. A component is solved again, starting
+ * from bottom, only if it contains a changed node or if the post-state of a
+ * node outside it flowing into it changed; all other nodes keep their
+ * previous post-states, since their inputs are the same, and so is their
+ * result. Changes are thus propagated only as long as they change some
+ * state. Since a first analysis follows the same order, the results of an
+ * incremental analysis are the same as the ones of a new analysis of the
+ * same CFG. As in LiSA, the state flowing into a node is the lub of the
+ * states after its predecessors, each traversed through its edge (see
+ * {@link Transfer#traverse}), and join nodes use widening after they have
+ * been computed more times than the widening threshold.
+ *
+ * @param <S> the type of the states computed for each node
+ */
+public class IncrementalFixpoint<S extends Lattice<S>> {
+
+	/**
+	 * The semantics of the nodes of a CFG.
+	 *
+	 * @param <S> the type of the states
+	 */
+	public interface Transfer<S extends Lattice<S>> {
+
+		/**
+		 * Yields the state at the beginning of the given CFG.
+		 */
+		S entry(CFG cfg) throws SemanticException;
+
+		/**
+		 * Yields the state after {@code node}, given the one before it.
+		 */
+		S apply(Statement node, S in) throws SemanticException;
+
+		/**
+		 * Yields the state flowing through {@code edge}, given the one after
+		 * its source (e.g., assuming the condition of a conditional edge).
+		 */
+		S traverse(Edge edge, S post) throws SemanticException;
+	}
+
+	/**
+	 * The results of the last analysis of a CFG
+	 */
+	private class Result {
+
+		private final Map<String, S> post = new HashMap<>();
+
+		private final Map<String, Set<String>> predecessors = new HashMap<>();
+
+		private final Set<String> entrypoints = new HashSet<>();
+	}
+
+	private final Transfer<S> transfer;
+
+	/**
+	 * The number of times a join node is computed before widening is used
+	 */
+	private final int wideningThreshold;
+
+	private final Map<String, Result> results = new HashMap<>();
+
+	private final Map<String, Map<Statement, String>> keys = new HashMap<>();
+
+	public IncrementalFixpoint(Transfer<S> transfer) {
+		this(transfer, LiSAConfiguration.DEFAULT_WIDENING_THRESHOLD);
+	}
+
+	public IncrementalFixpoint(Transfer<S> transfer, int wideningThreshold) {
+		this.transfer = transfer;
+		this.wideningThreshold = wideningThreshold;
+	}
+
+	private static String signature(CFG cfg) {
+		return cfg.getDescriptor().getFullSignature();
+	}
+
+	/**
+	 * Yields the nodes of {@code cfg} in depth-first order from its
+	 * entrypoints, followed by the ones that cannot be reached from them.
+	 * Entrypoints, and the edges leaving each node, are visited in the order
+	 * of their text (and of the kind of the edges), so that the order does not
+	 * depend on the locations of the nodes.
+	 */
+	private static List<Statement> order(CFG cfg) {
+		Comparator<Statement> byText = Comparator.comparing(Statement::toString);
+		List<Statement> order = new ArrayList<>();
+		Set<Statement> visited = new HashSet<>();
+		List<Statement> roots = new ArrayList<>(cfg.getEntrypoints());
+		roots.sort(byText);
+		List<Statement> rest = new ArrayList<>(cfg.getNodes());
+		rest.sort(byText);
+		roots.addAll(rest);
+
+		Deque<Statement> stack = new ArrayDeque<>();
+		for (Statement root : roots) {
+			stack.push(root);
+			while (!stack.isEmpty()) {
+				Statement node = stack.pop();
+				if (!visited.add(node))
+					continue;
+				order.add(node);
+				List<Edge> edges = new ArrayList<>(cfg.getOutgoingEdges(node));
+				edges.sort(Comparator.comparing((Edge edge) -> edge.getClass().getSimpleName())
+						.thenComparing(edge -> edge.getDestination().toString()));
+				// pushed in reverse, so that the first edge is visited first
+				for (int i = edges.size() - 1; i >= 0; i--)
+					if (!visited.contains(edges.get(i).getDestination()))
+						stack.push(edges.get(i).getDestination());
+			}
+		}
+		return order;
+	}
+
+	/**
+	 * Yields the structural keys of the nodes of {@code cfg}: the text of a
+	 * node followed by the number of nodes with the same text preceding it in
+	 * {@link #order(CFG)}.
+	 */
+	private static Map<Statement, String> keys(List<Statement> order) {
+		Map<String, Integer> occurrences = new HashMap<>();
+		Map<Statement, String> keys = new HashMap<>();
+		for (Statement node : order) {
+			String text = node.toString();
+			keys.put(node, text + " #" + occurrences.merge(text, 1, Integer::sum));
+		}
+		return keys;
+	}
+
+	/**
+	 * Analyzes all the CFGs of the given program, reusing the results of
+	 * previous analyses where possible, and forgets the CFGs that are not in
+	 * the program anymore.
+	 *
+	 * @return the number of nodes that have been computed again
+	 */
+	public int update(Program program) throws SemanticException {
+		Set<String> signatures = new HashSet<>();
+		int recomputed = 0;
+		for (CFG cfg : program.getAllCFGs()) {
+			signatures.add(signature(cfg));
+			recomputed += update(cfg);
+		}
+		results.keySet().retainAll(signatures);
+		keys.keySet().retainAll(signatures);
+		return recomputed;
+	}
+
+	/**
+	 * Analyzes the given CFG, reusing the results of the previous analysis of
+	 * a CFG with the same signature where possible.
+	 *
+	 * @return the number of nodes that have been computed again
+	 */
+	public int update(CFG cfg) throws SemanticException {
+		String signature = signature(cfg);
+		Result previous = results.get(signature);
+
+		List<Statement> order = order(cfg);
+		Map<Statement, String> nodeKeys = keys(order);
+
+		Result result = new Result();
+		Collection<Statement> entrypoints = cfg.getEntrypoints();
+		for (Statement node : order) {
+			Set<String> preds = new HashSet<>();
+			for (Edge edge : cfg.getIngoingEdges(node))
+				preds.add(edge.getClass().getSimpleName() + " " + nodeKeys.get(edge.getSource()));
+			result.predecessors.put(nodeKeys.get(node), preds);
+			if (entrypoints.contains(node))
+				result.entrypoints.add(nodeKeys.get(node));
+		}
+
+		Set<Statement> changed = new HashSet<>();
+		for (Statement node : order) {
+			String key = nodeKeys.get(node);
+			if (previous == null
+					|| !previous.post.containsKey(key)
+					|| !previous.predecessors.get(key).equals(result.predecessors.get(key))
+					|| previous.entrypoints.contains(key) != result.entrypoints.contains(key))
+				changed.add(node);
+		}
+
+		S entry = transfer.entry(cfg);
+		int recomputed = 0;
+		// nodes whose post-state differs from the previous one
+		Set<Statement> updated = new HashSet<>();
+		for (List<Statement> component : components(cfg, order)) {
+			boolean dirty = false;
+			for (Statement node : component) {
+				if (changed.contains(node))
+					dirty = true;
+				for (Statement pred : cfg.predecessorsOf(node))
+					if (updated.contains(pred))
+						dirty = true;
+			}
+
+			if (!dirty) {
+				for (Statement node : component)
+					result.post.put(nodeKeys.get(node), previous.post.get(nodeKeys.get(node)));
+				continue;
+			}
+
+			solve(cfg, entry, component, nodeKeys, result);
+			recomputed += component.size();
+			for (Statement node : component) {
+				String key = nodeKeys.get(node);
+				if (previous == null || !Objects.equals(previous.post.get(key), result.post.get(key)))
+					updated.add(node);
+			}
+		}
+
+		results.put(signature, result);
+		keys.put(signature, nodeKeys);
+		return recomputed;
+	}
+
+	/**
+	 * A node being visited by {@link #components(CFG, List)}, with the
+	 * followers still to be visited
+	 */
+	private static final class Frame {
+
+		private final Statement node;
+
+		private final Iterator<Statement> followers;
+
+		private Frame(Statement node, Iterator<Statement> followers) {
+			this.node = node;
+			this.followers = followers;
+		}
+	}
+
+	/**
+	 * Yields the strongly connected components of {@code cfg} in topological
+	 * order, computed with Tarjan's algorithm (without recursion, as CFGs can
+	 * be deep). The nodes of each component follow {@code order}.
+	 */
+	private static List<List<Statement>> components(CFG cfg, List<Statement> order) {
+		Map<Statement, Integer> position = new HashMap<>();
+		for (Statement node : order)
+			position.put(node, position.size());
+
+		Map<Statement, Integer> index = new HashMap<>(), lowlink = new HashMap<>();
+		Deque<Statement> stack = new ArrayDeque<>();
+		Set<Statement> onStack = new HashSet<>();
+		List<List<Statement>> components = new ArrayList<>();
+		for (Statement root : order) {
+			if (index.containsKey(root))
+				continue;
+			Deque<Frame> frames = new ArrayDeque<>();
+			frames.push(new Frame(root, cfg.followersOf(root).iterator()));
+			index.put(root, index.size());
+			lowlink.put(root, index.get(root));
+			stack.push(root);
+			onStack.add(root);
+			while (!frames.isEmpty()) {
+				Frame frame = frames.peek();
+				Statement node = frame.node;
+				if (frame.followers.hasNext()) {
+					Statement next = frame.followers.next();
+					if (!index.containsKey(next)) {
+						index.put(next, index.size());
+						lowlink.put(next, index.get(next));
+						stack.push(next);
+						onStack.add(next);
+						frames.push(new Frame(next, cfg.followersOf(next).iterator()));
+					} else if (onStack.contains(next))
+						lowlink.put(node, Math.min(lowlink.get(node), index.get(next)));
+					continue;
+				}
+
+				frames.pop();
+				if (!frames.isEmpty()) {
+					Statement parent = frames.peek().node;
+					lowlink.put(parent, Math.min(lowlink.get(parent), lowlink.get(node)));
+				}
+				if (lowlink.get(node).equals(index.get(node))) {
+					List<Statement> component = new ArrayList<>();
+					Statement member;
+					do {
+						member = stack.pop();
+						onStack.remove(member);
+						component.add(member);
+					} while (member != node);
+					component.sort(Comparator.comparing(position::get));
+					components.add(component);
+				}
+			}
+		}
+		// tarjan yields the components in reverse topological order
+		Collections.reverse(components);
+		return components;
+	}
+
+	/**
+	 * Computes the post-states of the nodes of {@code component}, starting
+	 * from bottom, given the final post-states of the nodes before it.
+	 */
+	private void solve(CFG cfg, S entry, List<Statement> component, Map<Statement, String> nodeKeys,
+			Result result) throws SemanticException {
+		S bottom = entry.bottom();
+		Collection<Statement> entrypoints = cfg.getEntrypoints();
+		Set<Statement> members = new HashSet<>(component);
+		for (Statement node : component)
+			result.post.remove(nodeKeys.get(node));
+		Map<Statement, Integer> visits = new HashMap<>();
+
+		Deque<Statement> worklist = new ArrayDeque<>(component);
+		Set<Statement> queued = new HashSet<>(component);
+		while (!worklist.isEmpty()) {
+			Statement node = worklist.poll();
+			queued.remove(node);
+
+			S in = entrypoints.contains(node) ? entry : bottom;
+			Collection<Edge> ingoing = cfg.getIngoingEdges(node);
+			for (Edge edge : ingoing) {
+				S post = result.post.get(nodeKeys.get(edge.getSource()));
+				if (post != null)
+					in = in.lub(transfer.traverse(edge, post));
+			}
+
+			String key = nodeKeys.get(node);
+			S old = result.post.getOrDefault(key, bottom);
+			S out = transfer.apply(node, in);
+			int visit = visits.merge(node, 1, Integer::sum);
+			if (ingoing.size() > 1 && visit > wideningThreshold)
+				out = old.widening(out);
+			else
+				out = old.lub(out);
+
+			if (!out.lessOrEqual(old) || !result.post.containsKey(key)) {
+				result.post.put(key, out);
+				for (Statement next : cfg.followersOf(node))
+					// the nodes of later components are solved afterwards
+					if (members.contains(next) && queued.add(next))
+						worklist.add(next);
+			}
+		}
+	}
+
+	/**
+	 * Yields the state computed after {@code node} by the last analysis of
+	 * its CFG, or {@code null} if the CFG has not been analyzed.
+	 */
+	public S getPostState(Statement node) {
+		Map<Statement, String> nodeKeys = keys.get(signature(node.getCFG()));
+		if (nodeKeys == null || !nodeKeys.containsKey(node))
+			return null;
+		return results.get(signature(node.getCFG())).post.get(nodeKeys.get(node));
+	}
+}
@@ -0,0 +1,91 @@
+package it.unive.scsr;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A hash-consing table: {@link #intern(Object)} yields, for each group of
+ * equal objects, the same canonical instance. Canonical instances are only
+ * weakly referenced by the table, so they are reclaimed once they are not
+ * used anymore.<br>
+ * <br>
+ * The table is a {@link ConcurrentHashMap}, so that threads analyzing
+ * different programs do not wait for each other: no lock is taken, neither
+ * on hits nor on misses. Only the objects passed to {@link #intern(Object)}
+ * are made canonical, not the objects they refer to.
+ *
+ * @param <T> the type of the interned objects
+ */
+public class Interner<T> {
+
+	/**
+	 * A weak reference to an object, that is equal to the references to equal
+	 * objects. Once cleared, a reference is only equal to itself, so that it
+	 * can still be removed from the table.
+	 */
+	private static final class Key<T> extends WeakReference<T> {
+
+		private final int hash;
+
+		private Key(T referent, ReferenceQueue<T> queue) {
+			super(referent, queue);
+			this.hash = referent.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Key))
+				return false;
+			Object referent = get();
+			return referent != null && hash == obj.hashCode() && referent.equals(((Key<?>) obj).get());
+		}
+	}
+
+	private final ConcurrentMap<Key<T>, Key<T>> table = new ConcurrentHashMap<>();
+
+	/**
+	 * The references to the instances that have been reclaimed, to be removed
+	 * from {@link #table}
+	 */
+	private final ReferenceQueue<T> queue = new ReferenceQueue<>();
+
+	/**
+	 * Yields the canonical instance equal to {@code object}, that is
+	 * {@code object} itself if no equal object has been interned yet.
+	 */
+	public T intern(T object) {
+		expunge();
+		Key<T> key = new Key<>(object, queue);
+		while (true) {
+			Key<T> existing = table.putIfAbsent(key, key);
+			if (existing == null)
+				return object;
+			T canonical = existing.get();
+			if (canonical != null)
+				return canonical;
+			// reclaimed after being found: it is replaced by object
+			table.remove(existing, existing);
+		}
+	}
+
+	public int size() {
+		expunge();
+		return table.size();
+	}
+
+	private void expunge() {
+		Reference<? extends T> reclaimed;
+		while ((reclaimed = queue.poll()) != null)
+			table.remove(reclaimed);
+	}
+}
@@ -0,0 +1,535 @@
+package it.unive.scsr;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.function.Predicate;
+
+import it.unive.lisa.analysis.BaseLattice;
+import it.unive.lisa.analysis.Lattice;
+import it.unive.lisa.analysis.SemanticDomain.Satisfiability;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.analysis.numeric.Interval;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.ValueExpression;
+import it.unive.lisa.util.numeric.MathNumber;
+import it.unive.lisa.util.numeric.MathNumberConversionException;
+
+/**
+ * A mapping from identifiers to {@link Interval}s, with the same lattice
+ * structure of {@link ValueEnvironment}, whose bounds are stored as
+ * primitive {@code long}s instead of arbitrary-precision {@link MathNumber}s.
+ * Each identifier gets a slot in an {@link IdentifierIndex} shared by all the
+ * environments derived from the same initial one, and the bounds of the
+ * slots are kept in two arrays, where {@link Long#MIN_VALUE} and
+ * {@link Long#MAX_VALUE} stand for -Inf and +Inf respectively. Identifiers
+ * that are not mapped (that is, bound to bottom) have {@code +Inf} as lower
+ * bound and {@code -Inf} as upper bound, so that joins are just the minimum
+ * of the lower bounds and the maximum of the upper ones (see
+ * {@link LatticeArrays}).<br>
+ * <br>
+ * Intervals whose bounds do not fit in a {@code long} (or are not integers)
+ * are kept as {@link Interval}s in a separate array, allocated only when
+ * needed, and their operations fall back to the ones of {@link Interval}.
+ * Expressions are evaluated by {@link Interval} on a {@link ValueEnvironment}
+ * containing only the identifiers that appear in them, so that the semantics
+ * is exactly the one of {@link ValueEnvironment}. Environments built from
+ * different initial ones do not share their index: when they are compared or
+ * joined, the other environment is re-encoded through its identifiers.
+ */
+public class IntervalEnvironment extends BaseLattice<IntervalEnvironment> {
+
+	private static final long MINUS_INFINITY = Long.MIN_VALUE;
+
+	private static final long PLUS_INFINITY = Long.MAX_VALUE;
+
+	private static final MathNumber MIN = new MathNumber(MINUS_INFINITY);
+
+	private static final MathNumber MAX = new MathNumber(PLUS_INFINITY);
+
+	private static final Interval LATTICE = new Interval();
+
+	private static final long[] EMPTY = new long[0];
+
+	private final IdentifierIndex index;
+
+	/**
+	 * The bounds of the identifiers, indexed by slot, {@code null} for the
+	 * top and bottom environments
+	 */
+	private final long[] lows, highs;
+
+	/**
+	 * The intervals whose bounds do not fit in a long, indexed by slot,
+	 * {@code null} if there are none
+	 */
+	private final Interval[] wide;
+
+	private final boolean bottom;
+
+	public IntervalEnvironment() {
+		this(new IdentifierIndex(), null, null, null, false);
+	}
+
+	private IntervalEnvironment(IdentifierIndex index, long[] lows, long[] highs, Interval[] wide, boolean bottom) {
+		this.index = index;
+		this.lows = lows;
+		this.highs = highs;
+		this.wide = wide;
+		this.bottom = bottom;
+	}
+
+	/**
+	 * Yields an environment with the same intervals of the given
+	 * {@link ValueEnvironment}.
+	 */
+	public static IntervalEnvironment of(ValueEnvironment<Interval> env) {
+		IntervalEnvironment result = new IntervalEnvironment();
+		if (env.isTop())
+			return result;
+		if (env.isBottom())
+			return result.bottom();
+		result = new IntervalEnvironment(result.index, EMPTY, EMPTY, null, false);
+		for (Entry<Identifier, Interval> entry : env)
+			result = result.putState(entry.getKey(), entry.getValue());
+		return result;
+	}
+
+	private IntervalEnvironment with(long[] lows, long[] highs, Interval[] wide) {
+		return new IntervalEnvironment(index, lows, highs, wide, false);
+	}
+
+	private int length() {
+		return lows == null ? 0 : lows.length;
+	}
+
+	private boolean mapped(int slot) {
+		return slot < length() && (lows[slot] <= highs[slot] || wideAt(slot) != null);
+	}
+
+	private Interval wideAt(int slot) {
+		return wide == null || slot >= wide.length ? null : wide[slot];
+	}
+
+	/**
+	 * Yields the interval of the given slot, that must be mapped.
+	 */
+	private Interval decode(int slot) {
+		Interval interval = wideAt(slot);
+		if (interval != null)
+			return interval;
+		return new Interval(bound(lows[slot]), bound(highs[slot]));
+	}
+
+	private static MathNumber bound(long bound) {
+		if (bound == MINUS_INFINITY)
+			return MathNumber.MINUS_INFINITY;
+		if (bound == PLUS_INFINITY)
+			return MathNumber.PLUS_INFINITY;
+		return new MathNumber(bound);
+	}
+
+	/**
+	 * Yields {@code true} if the given bound can be stored in a long.
+	 */
+	private static boolean fits(MathNumber bound) {
+		if (bound.isMinusInfinity() || bound.isPlusInfinity())
+			return true;
+		if (bound.compareTo(MIN) <= 0 || bound.compareTo(MAX) >= 0)
+			return false;
+		try {
+			// rules out bounds that are not integers
+			return new MathNumber(bound.toLong()).compareTo(bound) == 0;
+		} catch (MathNumberConversionException e) {
+			return false;
+		}
+	}
+
+	private static long toLong(MathNumber bound) {
+		if (bound.isMinusInfinity())
+			return MINUS_INFINITY;
+		if (bound.isPlusInfinity())
+			return PLUS_INFINITY;
+		try {
+			return bound.toLong();
+		} catch (MathNumberConversionException e) {
+			// fits() has been checked before
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Stores {@code interval}, that must not be bottom, in the given slot of
+	 * the arrays, yielding the (possibly reallocated) array of wide intervals.
+	 */
+	private static Interval[] encode(long[] lows, long[] highs, Interval[] wide, int slot, Interval interval) {
+		MathNumber low = interval.interval.getLow(), high = interval.interval.getHigh();
+		if (fits(low) && fits(high)) {
+			lows[slot] = toLong(low);
+			highs[slot] = toLong(high);
+			if (wide != null && slot < wide.length)
+				wide[slot] = null;
+			return wide;
+		}
+
+		lows[slot] = PLUS_INFINITY;
+		highs[slot] = MINUS_INFINITY;
+		Interval[] result = wide == null ? new Interval[lows.length]
+				: wide.length < lows.length ? Arrays.copyOf(wide, lows.length) : wide;
+		result[slot] = interval;
+		return result;
+	}
+
+	public Interval getState(Identifier id) {
+		if (isBottom())
+			return LATTICE.bottom();
+		if (isTop())
+			return LATTICE.top();
+		int slot = index.find(id);
+		return slot >= 0 && mapped(slot) ? decode(slot) : LATTICE.bottom();
+	}
+
+	public IntervalEnvironment putState(Identifier id, Interval state) {
+		int slot = index.indexOf(id);
+		// as in SignEnvironment, the arrays only grow up to the slot being set
+		int length = Math.max(length(), slot + 1);
+		long[] newLows = lows == null ? absent(length, PLUS_INFINITY) : copy(lows, length, PLUS_INFINITY);
+		long[] newHighs = highs == null ? absent(length, MINUS_INFINITY) : copy(highs, length, MINUS_INFINITY);
+		Interval[] newWide = wide == null ? null : wide.clone();
+		if (state.isBottom()) {
+			newLows[slot] = PLUS_INFINITY;
+			newHighs[slot] = MINUS_INFINITY;
+			if (newWide != null && slot < newWide.length)
+				newWide[slot] = null;
+		} else
+			newWide = encode(newLows, newHighs, newWide, slot, state);
+		return with(newLows, newHighs, newWide);
+	}
+
+	private static long[] absent(int length, long value) {
+		long[] result = new long[length];
+		Arrays.fill(result, value);
+		return result;
+	}
+
+	private static long[] copy(long[] bounds, int length, long value) {
+		long[] result = Arrays.copyOf(bounds, length);
+		Arrays.fill(result, bounds.length, length, value);
+		return result;
+	}
+
+	public Collection<Identifier> getKeys() {
+		if (lows == null)
+			return Collections.emptySet();
+		List<Identifier> keys = new ArrayList<>();
+		for (int slot = 0; slot < lows.length; slot++)
+			if (mapped(slot))
+				keys.add(index.get(slot));
+		return keys;
+	}
+
+	/**
+	 * Yields {@code true} if every value of {@code x} is strictly smaller than
+	 * every value of {@code y}, that are both mapped to non-bottom intervals.
+	 */
+	public boolean strictlyBelow(Identifier x, Identifier y) {
+		if (lows == null)
+			return false;
+		int xSlot = index.find(x), ySlot = index.find(y);
+		if (xSlot < 0 || ySlot < 0 || !mapped(xSlot) || !mapped(ySlot))
+			return false;
+		if (wideAt(xSlot) == null && wideAt(ySlot) == null)
+			// infinite bounds are the extreme longs, so they are never
+			// strictly below one another
+			return highs[xSlot] < lows[ySlot];
+		return decode(xSlot).interval.getHigh().compareTo(decode(ySlot).interval.getLow()) < 0;
+	}
+
+	/**
+	 * Yields a {@link ValueEnvironment} containing the states of the
+	 * identifiers in {@code expression} and of {@code extra}, if not
+	 * {@code null}.
+	 */
+	private ValueEnvironment<Interval> project(ValueExpression expression, Identifier extra) {
+		ValueEnvironment<Interval> projection = new ValueEnvironment<>(LATTICE).top();
+		if (isTop())
+			return projection;
+
+		Collection<Identifier> ids = SymbolicExpressions.identifiersIn(expression);
+		if (extra != null)
+			ids.add(extra);
+		// unmapped identifiers are bottom here, while they would be top in the
+		// (top) empty projection: bottoms are thus put explicitly
+		for (Identifier id : ids) {
+			int slot = index.find(id);
+			projection = projection.putState(id, slot >= 0 && mapped(slot) ? decode(slot) : LATTICE.bottom());
+		}
+		return projection;
+	}
+
+	public IntervalEnvironment assign(Identifier id, ValueExpression expression, ProgramPoint pp)
+			throws SemanticException {
+		if (isBottom())
+			return this;
+		ValueEnvironment<Interval> projection = project(expression, id);
+		ValueEnvironment<Interval> result = projection.assign(id, expression, pp);
+		if (result == projection)
+			return this;
+		if (result.isBottom())
+			return bottom();
+		return putState(id, result.getState(id));
+	}
+
+	public IntervalEnvironment assume(ValueExpression expression, ProgramPoint pp) throws SemanticException {
+		if (isBottom())
+			return this;
+		ValueEnvironment<Interval> projection = project(expression, null);
+		ValueEnvironment<Interval> result = projection.assume(expression, pp);
+		if (result == projection)
+			return this;
+		if (result.isBottom())
+			return bottom();
+		IntervalEnvironment env = this;
+		for (Identifier id : result.getKeys())
+			env = env.putState(id, result.getState(id));
+		return env;
+	}
+
+	public Satisfiability satisfies(ValueExpression expression, ProgramPoint pp) throws SemanticException {
+		if (isBottom())
+			return Satisfiability.BOTTOM;
+		return project(expression, null).satisfies(expression, pp);
+	}
+
+	public IntervalEnvironment forgetIdentifier(Identifier id) {
+		if (lows == null)
+			return this;
+		int slot = index.find(id);
+		if (slot < 0 || !mapped(slot))
+			return this;
+		return forget(slot, null, null, null);
+	}
+
+	public IntervalEnvironment forgetIdentifiersIf(Predicate<Identifier> test) {
+		if (lows == null)
+			return this;
+		long[] newLows = null, newHighs = null;
+		Interval[] newWide = null;
+		for (int slot = 0; slot < lows.length; slot++)
+			if (mapped(slot) && test.test(index.get(slot))) {
+				if (newLows == null) {
+					newLows = lows.clone();
+					newHighs = highs.clone();
+					newWide = wide == null ? null : wide.clone();
+				}
+				forget(slot, newLows, newHighs, newWide);
+			}
+		return newLows == null ? this : with(newLows, newHighs, newWide);
+	}
+
+	/**
+	 * Unmaps the given slot, in the given arrays if they are not {@code null}
+	 * or in copies of the ones of this environment otherwise.
+	 */
+	private IntervalEnvironment forget(int slot, long[] newLows, long[] newHighs, Interval[] newWide) {
+		if (newLows == null) {
+			newLows = lows.clone();
+			newHighs = highs.clone();
+			newWide = wide == null ? null : wide.clone();
+		}
+		newLows[slot] = PLUS_INFINITY;
+		newHighs[slot] = MINUS_INFINITY;
+		if (newWide != null && slot < newWide.length)
+			newWide[slot] = null;
+		return with(newLows, newHighs, newWide);
+	}
+
+	@Override
+	public IntervalEnvironment top() {
+		return new IntervalEnvironment(index, null, null, null, false);
+	}
+
+	@Override
+	public boolean isTop() {
+		return lows == null && !bottom;
+	}
+
+	@Override
+	public IntervalEnvironment bottom() {
+		return new IntervalEnvironment(index, null, null, null, true);
+	}
+
+	@Override
+	public boolean isBottom() {
+		return lows == null && bottom;
+	}
+
+	/**
+	 * Yields {@code other}, re-encoded in the index of this environment if it
+	 * has a different one.
+	 */
+	private IntervalEnvironment aligned(IntervalEnvironment other) {
+		if (other.index == index || other.lows == null)
+			return other;
+		IntervalEnvironment result = new IntervalEnvironment(index, EMPTY, EMPTY, null, false);
+		for (Identifier id : other.getKeys())
+			result = result.putState(id, other.getState(id));
+		return result;
+	}
+
+	@Override
+	public IntervalEnvironment lubAux(IntervalEnvironment other) throws SemanticException {
+		other = aligned(other);
+		IntervalEnvironment longer = length() >= other.length() ? this : other;
+		IntervalEnvironment shorter = longer == this ? other : this;
+		int common = shorter.length();
+
+		// unmapped slots (including the ones past the end of the shortest
+		// arrays) are the identity of the join
+		long[] newLows = longer.lows == null ? EMPTY : longer.lows.clone();
+		long[] newHighs = longer.highs == null ? EMPTY : longer.highs.clone();
+		LatticeArrays.min(longer.lows, shorter.lows, newLows, common);
+		LatticeArrays.max(longer.highs, shorter.highs, newHighs, common);
+
+		Interval[] newWide = null;
+		if (wide != null || other.wide != null) {
+			newWide = longer.wide == null ? null : longer.wide.clone();
+			for (int slot = 0; slot < common; slot++) {
+				Interval mine = wideAt(slot), theirs = other.wideAt(slot);
+				if (mine == null && theirs == null)
+					continue;
+				Interval left = mapped(slot) ? decode(slot) : LATTICE.bottom();
+				Interval right = other.mapped(slot) ? other.decode(slot) : LATTICE.bottom();
+				newWide = encode(newLows, newHighs, newWide, slot, left.lub(right));
+			}
+		}
+		return with(newLows, newHighs, newWide);
+	}
+
+	@Override
+	public IntervalEnvironment wideningAux(IntervalEnvironment other) throws SemanticException {
+		other = aligned(other);
+		IntervalEnvironment longer = length() >= other.length() ? this : other;
+		int common = Math.min(length(), other.length());
+		long[] newLows = longer.lows.clone();
+		long[] newHighs = longer.highs.clone();
+		Interval[] newWide = longer.wide == null ? null : longer.wide.clone();
+		for (int slot = 0; slot < common; slot++) {
+			boolean mine = mapped(slot), theirs = other.mapped(slot);
+			if (!mine || !theirs) {
+				// widening with bottom yields the other interval
+				if (mine)
+					newWide = copySlot(this, slot, newLows, newHighs, newWide);
+				else
+					newWide = copySlot(other, slot, newLows, newHighs, newWide);
+			} else if (wideAt(slot) != null || other.wideAt(slot) != null)
+				newWide = encode(newLows, newHighs, newWide, slot, decode(slot).widening(other.decode(slot)));
+			else {
+				// as in Interval: bounds that grow are pushed to infinity
+				newLows[slot] = other.lows[slot] < lows[slot] ? MINUS_INFINITY : lows[slot];
+				newHighs[slot] = other.highs[slot] > highs[slot] ? PLUS_INFINITY : highs[slot];
+			}
+		}
+		return with(newLows, newHighs, newWide);
+	}
+
+	private static Interval[] copySlot(IntervalEnvironment source, int slot, long[] lows, long[] highs,
+			Interval[] wide) {
+		Interval interval = source.wideAt(slot);
+		if (interval != null)
+			return encode(lows, highs, wide, slot, interval);
+		lows[slot] = source.lows[slot];
+		highs[slot] = source.highs[slot];
+		if (wide != null && slot < wide.length)
+			wide[slot] = null;
+		return wide;
+	}
+
+	@Override
+	public boolean lessOrEqualAux(IntervalEnvironment other) throws SemanticException {
+		other = aligned(other);
+		for (int slot = 0; slot < length(); slot++) {
+			if (!mapped(slot))
+				continue;
+			if (!other.mapped(slot))
+				return false;
+			if (wideAt(slot) != null || other.wideAt(slot) != null) {
+				if (!decode(slot).lessOrEqual(other.decode(slot)))
+					return false;
+			} else if (other.lows[slot] > lows[slot] || highs[slot] > other.highs[slot])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Yields the number of slots up to the last mapped one, as unmapped slots
+	 * are the same as missing ones.
+	 */
+	private int mappedLength() {
+		int length = length();
+		while (length > 0 && !mapped(length - 1))
+			length--;
+		return length;
+	}
+
+	@Override
+	public int hashCode() {
+		// summed over the identifiers, so that it does not depend on the
+		// slots of the index
+		int result = lows == null ? (bottom ? 1 : 2) : 3;
+		for (int slot = 0; slot < length(); slot++)
+			if (mapped(slot))
+				result += 31 * index.get(slot).hashCode() + (wideAt(slot) != null ? wideAt(slot).hashCode()
+						: Long.hashCode(lows[slot]) * 31 + Long.hashCode(highs[slot]));
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		IntervalEnvironment other = (IntervalEnvironment) obj;
+		if (bottom != other.bottom || (lows == null) != (other.lows == null))
+			return false;
+		other = aligned(other);
+		int length = mappedLength();
+		if (length != other.mappedLength())
+			return false;
+		for (int slot = 0; slot < length; slot++) {
+			boolean mine = mapped(slot);
+			if (mine != other.mapped(slot))
+				return false;
+			if (!mine)
+				continue;
+			Interval interval = wideAt(slot);
+			if (interval != null || other.wideAt(slot) != null) {
+				if (!decode(slot).equals(other.decode(slot)))
+					return false;
+			} else if (lows[slot] != other.lows[slot] || highs[slot] != other.highs[slot])
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		if (isTop())
+			return Lattice.TOP_STRING;
+		if (isBottom())
+			return Lattice.BOTTOM_STRING;
+		StringBuilder result = new StringBuilder("{");
+		for (Identifier id : getKeys())
+			result.append(result.length() > 1 ? ", " : "").append(id).append("=").append(getState(id));
+		return result.append("}").toString();
+	}
+}
@@ -0,0 +1,128 @@
+package it.unive.scsr;
+
+/**
+ * Joins and orderings of abstract states stored as primitive arrays, one
+ * entry per variable: sign codes (see {@link SignCodec}) and interval bounds.
+ * When running with {@code -Dscsr.vector=true} and the
+ * {@code jdk.incubator.vector} module is available (that is, the JVM runs
+ * with {@code --add-modules jdk.incubator.vector}), the loops are executed by
+ * {@code VectorLatticeArrays}, processing as many variables per instruction
+ * as the hardware allows; otherwise, the scalar loops below are used. The two
+ * yield exactly the same results. {@code VectorLatticeArrays} is in its own
+ * source set ({@code src/vector}), that is only compiled and put on the
+ * classpath when building with {@code -Pvector}, and it is loaded
+ * reflectively: plain builds and runs never use the incubator module.<br>
+ * <br>
+ * All the operations work on the first {@code length} entries of their
+ * arguments, and never modify them but {@code result}. The scalar loops work
+ * on the entries from {@code from} (included) to {@code to} (excluded), so
+ * that they can also process the tails left by the vectorized ones.
+ */
+final class LatticeArrays {
+
+	/**
+	 * The loops over whole arrays, that can be implemented with vectors
+	 */
+	interface Kernels {
+
+		void lub(byte[] left, byte[] right, byte[] result, int length, byte[] canonical);
+
+		boolean lessOrEqual(byte[] left, byte[] right, int length);
+
+		void min(long[] left, long[] right, long[] result, int length);
+
+		void max(long[] left, long[] right, long[] result, int length);
+	}
+
+	/**
+	 * The vectorized loops, {@code null} if they are not used
+	 */
+	static final Kernels VECTOR = vector();
+
+	/**
+	 * Whether the vectorized loops are used
+	 */
+	static final boolean VECTORIZED = VECTOR != null;
+
+	private LatticeArrays() {
+	}
+
+	private static Kernels vector() {
+		if (!Boolean.getBoolean("scsr.vector")
+				|| !ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent())
+			return null;
+		try {
+			return Class.forName("it.unive.scsr.VectorLatticeArrays").asSubclass(Kernels.class)
+					.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			// not compiled, or vectors too short
+			return null;
+		}
+	}
+
+	/**
+	 * Stores in {@code result} the lub of the sign codes in {@code left} and
+	 * {@code right}, that is, {@code canonical[left[i] | right[i]]}.
+	 */
+	static void lub(byte[] left, byte[] right, byte[] result, int length, byte[] canonical) {
+		if (VECTORIZED)
+			VECTOR.lub(left, right, result, length, canonical);
+		else
+			scalarLub(left, right, result, 0, length, canonical);
+	}
+
+	static void scalarLub(byte[] left, byte[] right, byte[] result, int from, int to, byte[] canonical) {
+		for (int i = from; i < to; i++)
+			result[i] = canonical[left[i] | right[i]];
+	}
+
+	/**
+	 * Yields whether each sign code in {@code left} is less or equal than the
+	 * one in {@code right}, that is, whether its bitmask is included in the
+	 * other.
+	 */
+	static boolean lessOrEqual(byte[] left, byte[] right, int length) {
+		if (VECTORIZED)
+			return VECTOR.lessOrEqual(left, right, length);
+		return scalarLessOrEqual(left, right, 0, length);
+	}
+
+	static boolean scalarLessOrEqual(byte[] left, byte[] right, int from, int to) {
+		for (int i = from; i < to; i++)
+			if ((left[i] & ~right[i]) != 0)
+				return false;
+		return true;
+	}
+
+	/**
+	 * Stores in {@code result} the minimum of {@code left} and {@code right},
+	 * that is, the lower bounds of the lub of intervals.
+	 */
+	static void min(long[] left, long[] right, long[] result, int length) {
+		if (VECTORIZED)
+			VECTOR.min(left, right, result, length);
+		else
+			scalarMin(left, right, result, 0, length);
+	}
+
+	static void scalarMin(long[] left, long[] right, long[] result, int from, int to) {
+		for (int i = from; i < to; i++)
+			result[i] = Math.min(left[i], right[i]);
+	}
+
+	/**
+	 * Stores in {@code result} the maximum of {@code left} and
+	 * {@code right}, that is, the upper bounds of the lub of intervals.
+	 */
+	static void max(long[] left, long[] right, long[] result, int length) {
+		if (VECTORIZED)
+			VECTOR.max(left, right, result, length);
+		else
+			scalarMax(left, right, result, 0, length);
+	}
+
+	static void scalarMax(long[] left, long[] right, long[] result, int from, int to) {
+		for (int i = from; i < to; i++)
+			result[i] = Math.max(left[i], right[i]);
+	}
+}
@@ -1,5 +1,7 @@
 package it.unive.scsr;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -30,17 +32,61 @@ import it.unive.lisa.symbolic.value.operator.binary.BinaryOperator;
 
 public class Pentagons extends BaseLattice<Pentagons> implements ValueDomain<Pentagons> {
 
-	private final ValueEnvironment<Interval> intervals;
+	// bounds are stored as longs, falling back to Interval only when they
+	// do not fit
+	private final IntervalEnvironment intervals;
 	private final ValueEnvironment<UpperBounds> upperBounds;
 
+	/**
+	 * Whether the upper bounds are kept transitively closed
+	 */
+	private final boolean closure;
+
+	/**
+	 * Whether the upper bounds are restricted to {@link VariablePacks}
+	 */
+	private final boolean packing;
+
 	public Pentagons() {
-		this.intervals = new ValueEnvironment<>(new Interval()).top();
-		this.upperBounds = new ValueEnvironment<>(new UpperBounds(true)).top();
+		this(false);
+	}
+
+	/**
+	 * Builds the top state. If {@code closure} is {@code true}, the upper
+	 * bounds of the states are kept transitively closed (see
+	 * {@link BoundsMatrix}): {@code x < y} and {@code y < z} yield
+	 * {@code x < z}, and assigning {@code x} drops the bounds {@code y < x}
+	 * of the other variables, that no longer hold and would otherwise be
+	 * propagated by the closure. Cyclic bounds, such as {@code x < y} and
+	 * {@code y < x}, make the state bottom.
+	 */
+	public Pentagons(boolean closure) {
+		this(closure, false);
+	}
+
+	/**
+	 * Builds the top state. If {@code packing} is {@code true}, a variable is
+	 * bounded only by variables of its pack in the CFG being analyzed (see
+	 * {@link VariablePacks}), while intervals are tracked for all variables.
+	 */
+	public Pentagons(boolean closure, boolean packing) {
+		this(new IntervalEnvironment().top(), new ValueEnvironment<>(new UpperBounds(true)).top(), closure, packing);
 	}
 	
+	public Pentagons(IntervalEnvironment intervals, ValueEnvironment<UpperBounds> upperBounds) {
+		this(intervals, upperBounds, false, false);
+	}
+
 	public Pentagons(ValueEnvironment<Interval> intervals, ValueEnvironment<UpperBounds> upperBounds) {
+		this(IntervalEnvironment.of(intervals), upperBounds);
+	}
+
+	private Pentagons(IntervalEnvironment intervals, ValueEnvironment<UpperBounds> upperBounds, boolean closure,
+			boolean packing) {
 		this.intervals = intervals;
 		this.upperBounds = upperBounds;
+		this.closure = closure;
+		this.packing = packing;
 	}
 
 	@Override
@@ -56,38 +102,121 @@ public class Pentagons extends BaseLattice<Pentagons> implements ValueDomain<Pen
 				newBounds = newBounds.putState(id, upperBounds.getState(y).add(y));
 			}
 		}
+
+		if (packing && !newBounds.isBottom() && !newBounds.isTop())
+			newBounds = restrict(newBounds, id, VariablePacks.of(pp.getCFG()));
+
+		if (closure && !newBounds.isBottom() && !newBounds.isTop()) {
+			LocalMatrix matrix = new LocalMatrix(newBounds);
+			matrix.matrix.assign(matrix.slots.indexOf(id), matrix.row(newBounds.getState(id)));
+			newBounds = matrix.update(newBounds);
+		}
 			
 		return new Pentagons(
 				intervals.assign(id, expression, pp),
-				newBounds);
+				newBounds,
+				closure,
+				packing);
 	}
 
 	@Override
 	public Pentagons smallStepSemantics(ValueExpression expression, ProgramPoint pp) throws SemanticException {
+		// interval environments do not change without assignments
 		return new Pentagons(
-				intervals.smallStepSemantics(expression, pp),
-				upperBounds.smallStepSemantics(expression, pp));
+				intervals,
+				upperBounds.smallStepSemantics(expression, pp),
+				closure,
+				packing);
 	}
 
 	@Override
 	public Pentagons assume(ValueExpression expression, ProgramPoint pp) throws SemanticException {
+		ValueEnvironment<UpperBounds> newBounds = upperBounds.assume(expression, pp);
+		if (packing && newBounds != upperBounds)
+			newBounds = restrict(newBounds, SymbolicExpressions.identifiersIn(expression),
+					VariablePacks.of(pp.getCFG()));
+		if (closure && newBounds != upperBounds)
+			newBounds = closeAdded(upperBounds, newBounds);
 		return new Pentagons(
 				intervals.assume(expression, pp),
-				upperBounds.assume(expression, pp));
+				newBounds,
+				closure,
+				packing);
+	}
+
+	/**
+	 * Restricts the bounds of the given variables to their packs: an
+	 * assumption only changes the bounds of the variables that appear in it.
+	 */
+	private static ValueEnvironment<UpperBounds> restrict(ValueEnvironment<UpperBounds> newBounds,
+			Collection<Identifier> touched, VariablePacks packs) {
+		if (newBounds.isTop() || newBounds.isBottom())
+			return newBounds;
+		ValueEnvironment<UpperBounds> result = newBounds;
+		for (Identifier x : touched)
+			result = restrict(result, x, packs);
+		return result;
+	}
+
+	/**
+	 * Drops the bounds of {@code x} that are not in its pack.
+	 */
+	private static ValueEnvironment<UpperBounds> restrict(ValueEnvironment<UpperBounds> bounds, Identifier x,
+			VariablePacks packs) {
+		UpperBounds xBounds = bounds.getState(x);
+		IdentifierIndex index = xBounds.index();
+		long[] row = xBounds.bits(), kept = row;
+		for (int y = Bits.nextSetBit(row, 0); y >= 0; y = Bits.nextSetBit(row, y + 1))
+			if (!packs.together(x, index.get(y)))
+				kept = Bits.clear(kept, y);
+		return kept == row ? bounds : bounds.putState(x, xBounds.withBits(kept));
+	}
+
+	/**
+	 * Closes the bounds that {@code newBounds} adds to {@code bounds}, that
+	 * is closed: only the variables bounded by the ones that gained a bound
+	 * are updated.
+	 */
+	private static ValueEnvironment<UpperBounds> closeAdded(ValueEnvironment<UpperBounds> bounds,
+			ValueEnvironment<UpperBounds> newBounds) {
+		if (bounds.isTop() || bounds.isBottom() || newBounds.isTop() || newBounds.isBottom())
+			return transitive(newBounds);
+
+		LocalMatrix matrix = new LocalMatrix(bounds);
+		for (Entry<Identifier, UpperBounds> entry : newBounds) {
+			long[] before = bounds.getState(entry.getKey()).bits(), after = entry.getValue().bits();
+			if (!Bits.containsAll(after, before))
+				// a bound has been removed: the matrix cannot be updated
+				return transitive(newBounds);
+			if (!Arrays.equals(before, after))
+				matrix.matrix.addAll(matrix.slots.indexOf(entry.getKey()), matrix.row(entry.getValue()));
+		}
+		return matrix.update(newBounds);
+	}
+
+	/**
+	 * Yields the upper bounds of {@code x} in this state.
+	 */
+	UpperBounds getUpperBounds(Identifier x) {
+		return upperBounds.getState(x);
 	}
 
 	@Override
 	public Pentagons forgetIdentifier(Identifier id) throws SemanticException {
 		return new Pentagons(
 				intervals.forgetIdentifier(id),
-				upperBounds.forgetIdentifier(id));
+				upperBounds.forgetIdentifier(id),
+				closure,
+				packing);
 	}
 
 	@Override
 	public Pentagons forgetIdentifiersIf(Predicate<Identifier> test) throws SemanticException {
 		return new Pentagons(
 				intervals.forgetIdentifiersIf(test),
-				upperBounds.forgetIdentifiersIf(test));
+				upperBounds.forgetIdentifiersIf(test),
+				closure,
+				packing);
 	}
 
 	@Override
@@ -121,7 +250,7 @@ public class Pentagons extends BaseLattice<Pentagons> implements ValueDomain<Pen
 
 	@Override
 	public Pentagons top() {
-		return new Pentagons(intervals.top(), upperBounds.top());
+		return new Pentagons(intervals.top(), upperBounds.top(), closure, packing);
 	}
 
 	@Override
@@ -131,7 +260,7 @@ public class Pentagons extends BaseLattice<Pentagons> implements ValueDomain<Pen
 
 	@Override
 	public Pentagons bottom() {
-		return new Pentagons(intervals.bottom(), upperBounds.bottom());
+		return new Pentagons(intervals.bottom(), upperBounds.bottom(), closure, packing);
 	}
 
 	@Override
@@ -142,36 +271,120 @@ public class Pentagons extends BaseLattice<Pentagons> implements ValueDomain<Pen
 	@Override
 	public Pentagons lubAux(Pentagons other) throws SemanticException {
 		ValueEnvironment<UpperBounds> newBounds = upperBounds.lub(other.upperBounds);
-		for (Entry<Identifier, UpperBounds> entry : upperBounds) {
-			Set<Identifier> closure = new HashSet<>();
-			for (Identifier bound : entry.getValue())
-				if (other.intervals.getState(entry.getKey()).interval.getHigh()
-						.compareTo(other.intervals.getState(bound).interval.getLow()) < 0)
-					closure.add(bound);
-			if (!closure.isEmpty())
-				// glb is the union
-				newBounds.putState(entry.getKey(),
-						newBounds.getState(entry.getKey()).glb(new UpperBounds(closure)));
+		newBounds = close(newBounds, upperBounds, other.intervals);
+		newBounds = close(newBounds, other.upperBounds, intervals);
+		if (closure)
+			// bounds re-added from the intervals might need to be closed
+			newBounds = transitive(newBounds);
+		return new Pentagons(intervals.lub(other.intervals), newBounds, closure, packing);
+	}
+
+	/**
+	 * The bounds of a state as a {@link BoundsMatrix} over local slots,
+	 * assigned to the variables of the state first and then to the other
+	 * identifiers appearing in their bounds, so that the size of the matrix
+	 * only depends on the state.
+	 */
+	private static final class LocalMatrix {
+
+		private final IdentifierIndex slots = new IdentifierIndex();
+
+		private final BoundsMatrix matrix;
+
+		private LocalMatrix(ValueEnvironment<UpperBounds> bounds) {
+			for (Identifier x : bounds.getKeys())
+				slots.indexOf(x);
+			long[][] rows = new long[slots.size()][];
+			for (Entry<Identifier, UpperBounds> entry : bounds)
+				rows[slots.find(entry.getKey())] = row(entry.getValue());
+			matrix = new BoundsMatrix(rows);
 		}
 
-		for (Entry<Identifier, UpperBounds> entry : other.upperBounds) {
+		/**
+		 * Yields the given bounds as a bitset over the local slots.
+		 */
+		private long[] row(UpperBounds bounds) {
+			long[] row = Bits.EMPTY;
+			for (Identifier y : bounds) {
+				int slot = slots.indexOf(y);
+				if (slot >>> 6 >= row.length)
+					row = Arrays.copyOf(row, (slot >>> 6) + 1);
+				row[slot >>> 6] |= 1L << slot;
+			}
+			return row;
+		}
+
+		/**
+		 * Stores in {@code bounds} the rows of the matrix that have been
+		 * modified, yielding bottom if the matrix is cyclic.
+		 */
+		private ValueEnvironment<UpperBounds> update(ValueEnvironment<UpperBounds> bounds) {
+			if (matrix.cyclic())
+				return bounds.bottom();
+			long[] changed = matrix.changed();
+			for (int slot = Bits.nextSetBit(changed, 0); slot >= 0; slot = Bits.nextSetBit(changed, slot + 1)) {
+				long[] row = matrix.row(slot);
+				Set<Identifier> decoded = new HashSet<>();
+				for (int y = Bits.nextSetBit(row, 0); y >= 0; y = Bits.nextSetBit(row, y + 1))
+					decoded.add(slots.get(y));
+				Identifier x = slots.get(slot);
+				bounds = bounds.putState(x, bounds.getState(x).withBounds(decoded));
+			}
+			return bounds;
+		}
+	}
+
+	/**
+	 * Yields the transitive closure of the given bounds.
+	 */
+	private static ValueEnvironment<UpperBounds> transitive(ValueEnvironment<UpperBounds> bounds) {
+		if (bounds.isTop() || bounds.isBottom())
+			return bounds;
+		LocalMatrix matrix = new LocalMatrix(bounds);
+		matrix.matrix.close();
+		return matrix.update(bounds);
+	}
+
+	/**
+	 * Adds back to {@code newBounds} the bounds {@code x < y} of
+	 * {@code bounds} that have been lost by the join but that still hold in
+	 * {@code intervals}. Bounds that are in both operands of the join are
+	 * already part of {@code newBounds}, so only variables whose bounds differ
+	 * between the two states are inspected, and only for the missing bounds:
+	 * the others are skipped without allocating, as the join keeps their
+	 * element (or an equal one, that is checked word by word).
+	 */
+	private static ValueEnvironment<UpperBounds> close(
+			ValueEnvironment<UpperBounds> newBounds,
+			ValueEnvironment<UpperBounds> bounds,
+			IntervalEnvironment intervals) throws SemanticException {
+		ValueEnvironment<UpperBounds> result = newBounds;
+		for (Entry<Identifier, UpperBounds> entry : bounds) {
+			Identifier x = entry.getKey();
+			UpperBounds joined = newBounds.getState(x);
+			if (joined == entry.getValue() || joined.containsAll(entry.getValue()))
+				// nothing has been lost
+				continue;
+
+			UpperBounds lost = entry.getValue().minus(joined);
+
 			Set<Identifier> closure = new HashSet<>();
-			for (Identifier bound : entry.getValue())
-				if (intervals.getState(entry.getKey()).interval.getHigh()
-						.compareTo(intervals.getState(bound).interval.getLow()) < 0)
+			for (Identifier bound : lost)
+				if (intervals.strictlyBelow(x, bound))
 					closure.add(bound);
 			if (!closure.isEmpty())
 				// glb is the union
-				newBounds.putState(entry.getKey(),
-						newBounds.getState(entry.getKey()).glb(new UpperBounds(closure)));
+				result = result.putState(x, joined.glb(joined.withBounds(closure)));
 		}
-
-		return new Pentagons(intervals.lub(other.intervals), newBounds);
+		return result;
 	}
 
 	@Override
 	public Pentagons wideningAux(Pentagons other) throws SemanticException {
-		return new Pentagons(intervals.widening(other.intervals), upperBounds.widening(other.upperBounds));
+		ValueEnvironment<UpperBounds> newBounds = upperBounds.widening(other.upperBounds);
+		if (closure)
+			newBounds = transitive(newBounds);
+		return new Pentagons(intervals.widening(other.intervals), newBounds, closure, packing);
 	}
 
 	@Override
@@ -181,8 +394,7 @@ public class Pentagons extends BaseLattice<Pentagons> implements ValueDomain<Pen
 		for (Entry<Identifier, UpperBounds> entry : other.upperBounds)
 			for (Identifier bound : entry.getValue())
 				if (!(upperBounds.getState(entry.getKey()).contains(bound)
-						|| intervals.getState(entry.getKey()).interval.getHigh()
-								.compareTo(intervals.getState(bound).interval.getLow()) < 0))
+						|| intervals.strictlyBelow(entry.getKey(), bound)))
 					return false;
 
 		return true;
@@ -190,7 +402,7 @@ public class Pentagons extends BaseLattice<Pentagons> implements ValueDomain<Pen
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(intervals, upperBounds);
+		return Objects.hash(intervals, upperBounds, closure, packing);
 	}
 
 	@Override
@@ -202,7 +414,8 @@ public class Pentagons extends BaseLattice<Pentagons> implements ValueDomain<Pen
 		if (getClass() != obj.getClass())
 			return false;
 		Pentagons other = (Pentagons) obj;
-		return Objects.equals(intervals, other.intervals) && Objects.equals(upperBounds, other.upperBounds);
+		return closure == other.closure && packing == other.packing && Objects.equals(intervals, other.intervals)
+				&& Objects.equals(upperBounds, other.upperBounds);
 	}
 
 	@Override
@@ -0,0 +1,226 @@
+package it.unive.scsr;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+import it.unive.lisa.analysis.BaseLattice;
+import it.unive.lisa.analysis.Lattice;
+import it.unive.lisa.analysis.SemanticDomain.Satisfiability;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.nonrelational.value.NonRelationalValueDomain;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.ValueExpression;
+
+/**
+ * A mapping from identifiers to instances of a non-relational value domain,
+ * with the same lattice structure of {@link ValueEnvironment}, but backed by
+ * a {@link PersistentMap}: updating the state of a single identifier costs
+ * O(log n), and environments derived from one another share most of their
+ * structure, making joins and equality checks proportional to the number of
+ * identifiers whose state differs.<br>
+ * <br>
+ * Expressions are evaluated by the underlying domain on a
+ * {@link ValueEnvironment} containing only the identifiers that appear in
+ * them, so that the semantics is exactly the one of {@link ValueEnvironment}.
+ *
+ * @param <T> the type of the values of the environment
+ */
+public class PersistentEnvironment<T extends NonRelationalValueDomain<T>> extends BaseLattice<PersistentEnvironment<T>>
+		implements Iterable<Entry<Identifier, T>> {
+
+	/**
+	 * An instance of the value domain, used to retrieve top and bottom
+	 * values
+	 */
+	private final T lattice;
+
+	/**
+	 * The mapping, {@code null} for the top and bottom environments
+	 */
+	private final PersistentMap<Identifier, T> function;
+
+	public PersistentEnvironment(T lattice) {
+		this(lattice, PersistentMap.empty());
+	}
+
+	private PersistentEnvironment(T lattice, PersistentMap<Identifier, T> function) {
+		this.lattice = lattice;
+		this.function = function;
+	}
+
+	private PersistentMap<Identifier, T> map() {
+		return function == null ? PersistentMap.empty() : function;
+	}
+
+	public T getState(Identifier id) {
+		if (isBottom())
+			return lattice.bottom();
+		if (isTop())
+			return lattice.top();
+		T state = map().get(id);
+		return state == null ? lattice.bottom() : state;
+	}
+
+	public PersistentEnvironment<T> putState(Identifier id, T state) {
+		PersistentMap<Identifier, T> updated = map().put(id, state);
+		return updated == function ? this : new PersistentEnvironment<>(lattice, updated);
+	}
+
+	public Collection<Identifier> getKeys() {
+		return function == null ? Collections.emptySet() : function.keys();
+	}
+
+	/**
+	 * Yields the identifiers whose state might differ between this
+	 * environment and {@code other} (possibly with duplicates): identifiers
+	 * stored in structure shared by the two environments are skipped.
+	 */
+	public Collection<Identifier> differingKeys(PersistentEnvironment<T> other) {
+		return map().differingKeys(other.map());
+	}
+
+	@Override
+	public Iterator<Entry<Identifier, T>> iterator() {
+		return map().iterator();
+	}
+
+	/**
+	 * Yields a {@link ValueEnvironment} containing the states of the
+	 * identifiers in {@code expression} and of {@code extra}, if not
+	 * {@code null}.
+	 */
+	private ValueEnvironment<T> project(ValueExpression expression, Identifier extra) {
+		ValueEnvironment<T> projection = new ValueEnvironment<>(lattice).top();
+		if (isTop())
+			return projection;
+
+		Collection<Identifier> ids = SymbolicExpressions.identifiersIn(expression);
+		if (extra != null)
+			ids.add(extra);
+		// identifiers with no mapping are bound to bottom, as in this
+		// environment, and not to top, as in the projection
+		for (Identifier id : ids)
+			projection = projection.putState(id, getState(id));
+		return projection;
+	}
+
+	public PersistentEnvironment<T> assign(Identifier id, ValueExpression expression, ProgramPoint pp)
+			throws SemanticException {
+		if (isBottom())
+			return this;
+		ValueEnvironment<T> projection = project(expression, id);
+		ValueEnvironment<T> result = projection.assign(id, expression, pp);
+		if (result == projection)
+			return this;
+		if (result.isBottom())
+			return bottom();
+		return putState(id, result.getState(id));
+	}
+
+	public PersistentEnvironment<T> assume(ValueExpression expression, ProgramPoint pp) throws SemanticException {
+		if (isBottom())
+			return this;
+		ValueEnvironment<T> projection = project(expression, null);
+		ValueEnvironment<T> result = projection.assume(expression, pp);
+		if (result == projection)
+			return this;
+		if (result.isBottom())
+			return bottom();
+		PersistentEnvironment<T> env = this;
+		for (Identifier id : result.getKeys())
+			env = env.putState(id, result.getState(id));
+		return env;
+	}
+
+	public Satisfiability satisfies(ValueExpression expression, ProgramPoint pp) throws SemanticException {
+		if (isBottom())
+			return Satisfiability.BOTTOM;
+		return project(expression, null).satisfies(expression, pp);
+	}
+
+	public PersistentEnvironment<T> forgetIdentifier(Identifier id) {
+		if (function == null)
+			return this;
+		PersistentMap<Identifier, T> updated = function.remove(id);
+		return updated == function ? this : new PersistentEnvironment<>(lattice, updated);
+	}
+
+	public PersistentEnvironment<T> forgetIdentifiersIf(Predicate<Identifier> test) {
+		if (function == null)
+			return this;
+		PersistentMap<Identifier, T> updated = function.removeIf(test);
+		return updated == function ? this : new PersistentEnvironment<>(lattice, updated);
+	}
+
+	@Override
+	public PersistentEnvironment<T> top() {
+		return new PersistentEnvironment<>(lattice.top(), null);
+	}
+
+	@Override
+	public boolean isTop() {
+		return lattice.isTop() && function == null;
+	}
+
+	@Override
+	public PersistentEnvironment<T> bottom() {
+		return new PersistentEnvironment<>(lattice.bottom(), null);
+	}
+
+	@Override
+	public boolean isBottom() {
+		return lattice.isBottom() && function == null;
+	}
+
+	@Override
+	public PersistentEnvironment<T> lubAux(PersistentEnvironment<T> other) throws SemanticException {
+		// a missing key is bound to bottom, so the other state is the lub
+		return new PersistentEnvironment<>(lattice,
+				map().merge(other.map(), (l, r) -> l == null ? r : r == null ? l : l.lub(r)));
+	}
+
+	@Override
+	public PersistentEnvironment<T> wideningAux(PersistentEnvironment<T> other) throws SemanticException {
+		return new PersistentEnvironment<>(lattice,
+				map().merge(other.map(), (l, r) -> l == null ? r : r == null ? l : l.widening(r)));
+	}
+
+	@Override
+	public boolean lessOrEqualAux(PersistentEnvironment<T> other) throws SemanticException {
+		// shared subtrees are trivially in relation
+		for (Identifier id : map().differingKeys(other.map())) {
+			T state = map().get(id);
+			if (state != null && !state.lessOrEqual(other.getState(id)))
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(lattice, function);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		PersistentEnvironment<?> other = (PersistentEnvironment<?>) obj;
+		return Objects.equals(function, other.function) && Objects.equals(lattice, other.lattice);
+	}
+
+	@Override
+	public String toString() {
+		return isTop() ? Lattice.TOP_STRING : isBottom() ? Lattice.BOTTOM_STRING : map().toString();
+	}
+}
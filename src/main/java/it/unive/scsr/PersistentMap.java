@@ -0,0 +1,479 @@
+package it.unive.scsr;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * An immutable map backed by a hash array mapped trie. Updates copy only the
+ * path from the root to the modified entry, so that a single-key update costs
+ * O(log n) and all untouched subtrees are shared between the old and the new
+ * map. Operations comparing two maps ({@link #equals(Object)},
+ * {@link #merge(PersistentMap, Merger)}, {@link #differingKeys(PersistentMap)})
+ * skip the subtrees that the maps share. Neither keys nor values can be
+ * {@code null}.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public final class PersistentMap<K, V> implements Iterable<Map.Entry<K, V>> {
+
+	private static final int BITS = 5;
+	private static final int MASK = (1 << BITS) - 1;
+
+	@SuppressWarnings("rawtypes")
+	private static final PersistentMap EMPTY = new PersistentMap<>(null, 0);
+
+	private final Node root;
+	private final int size;
+
+	private PersistentMap(Node root, int size) {
+		this.root = root;
+		this.size = size;
+	}
+
+	@SuppressWarnings("unchecked")
+	public static <K, V> PersistentMap<K, V> empty() {
+		return EMPTY;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V get(K key) {
+		return root == null ? null : (V) root.find(0, key.hashCode(), key);
+	}
+
+	public boolean containsKey(K key) {
+		return get(key) != null;
+	}
+
+	/**
+	 * Yields a map where {@code key} is mapped to {@code value}. If
+	 * {@code key} is already mapped to the very same object, this map is
+	 * returned.
+	 */
+	public PersistentMap<K, V> put(K key, V value) {
+		Objects.requireNonNull(value);
+		boolean[] added = new boolean[1];
+		Node start = root == null ? BitmapNode.EMPTY : root;
+		Node updated = start.put(0, key.hashCode(), key, value, added);
+		if (updated == root)
+			return this;
+		return new PersistentMap<>(updated, added[0] ? size + 1 : size);
+	}
+
+	public PersistentMap<K, V> remove(K key) {
+		if (root == null || !containsKey(key))
+			return this;
+		Node updated = root.remove(0, key.hashCode(), key);
+		return updated == null ? empty() : new PersistentMap<>(updated, size - 1);
+	}
+
+	/**
+	 * Yields a map containing only the entries whose key does not satisfy
+	 * {@code test}.
+	 */
+	public PersistentMap<K, V> removeIf(Predicate<K> test) {
+		PersistentMap<K, V> result = this;
+		for (Map.Entry<K, V> entry : this)
+			if (test.test(entry.getKey()))
+				result = result.remove(entry.getKey());
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	public void forEach(BiConsumer<K, V> action) {
+		if (root != null)
+			root.forEach((k, v) -> action.accept((K) k, (V) v));
+	}
+
+	public List<K> keys() {
+		List<K> keys = new ArrayList<>(size);
+		forEach((k, v) -> keys.add(k));
+		return keys;
+	}
+
+	@Override
+	public Iterator<Map.Entry<K, V>> iterator() {
+		List<Map.Entry<K, V>> entries = new ArrayList<>(size);
+		forEach((k, v) -> entries.add(new SimpleImmutableEntry<>(k, v)));
+		return entries.iterator();
+	}
+
+	/**
+	 * Yields the keys that might be mapped differently in this map and in
+	 * {@code other}: every key that is not stored in a subtree shared by the
+	 * two maps is returned (possibly more than once). Keys mapped to the same
+	 * object in both maps might still be returned.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<K> differingKeys(PersistentMap<K, V> other) {
+		List<K> keys = new ArrayList<>();
+		diff(root, other.root, 0, k -> keys.add((K) k));
+		return keys;
+	}
+
+	/**
+	 * A function combining the values that two maps associate to the same
+	 * key, where a {@code null} argument means that the corresponding map
+	 * does not contain the key. Returning {@code null} removes the key.
+	 *
+	 * @param <V> the type of values
+	 * @param <E> the type of exception that can be raised
+	 */
+	@FunctionalInterface
+	public interface Merger<V, E extends Exception> {
+		V merge(V left, V right) throws E;
+	}
+
+	/**
+	 * Combines this map with {@code other} key by key. {@code merger} is
+	 * invoked only on keys outside of the subtrees that the two maps share:
+	 * it must hence satisfy {@code merger.merge(v, v) == v} for the result to
+	 * be correct.
+	 */
+	public <E extends Exception> PersistentMap<K, V> merge(PersistentMap<K, V> other, Merger<V, E> merger)
+			throws E {
+		if (root == other.root)
+			return this;
+		PersistentMap<K, V> result = this;
+		for (K key : differingKeys(other)) {
+			V left = get(key);
+			V merged = merger.merge(left, other.get(key));
+			if (merged == null)
+				result = result.remove(key);
+			else if (merged != left)
+				result = result.put(key, merged);
+		}
+		return result;
+	}
+
+	@Override
+	public int hashCode() {
+		return root == null ? 0 : root.hash();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		@SuppressWarnings("unchecked")
+		PersistentMap<K, V> other = (PersistentMap<K, V>) obj;
+		if (root == other.root)
+			return true;
+		if (size != other.size || hashCode() != other.hashCode())
+			return false;
+		for (K key : differingKeys(other))
+			if (!Objects.equals(get(key), other.get(key)))
+				return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("{");
+		forEach((k, v) -> builder.append(builder.length() == 1 ? "" : ", ").append(k).append("=").append(v));
+		return builder.append("}").toString();
+	}
+
+	private static void diff(Node a, Node b, int shift, Consumer<Object> keys) {
+		if (a == b)
+			return;
+		if (a == null || b == null) {
+			(a == null ? b : a).forEach((k, v) -> keys.accept(k));
+			return;
+		}
+		if (!(a instanceof BitmapNode) || !(b instanceof BitmapNode)) {
+			a.forEach((k, v) -> keys.accept(k));
+			b.forEach((k, v) -> keys.accept(k));
+			return;
+		}
+
+		BitmapNode left = (BitmapNode) a;
+		BitmapNode right = (BitmapNode) b;
+		int bitmap = left.bitmap | right.bitmap;
+		while (bitmap != 0) {
+			int bit = Integer.lowestOneBit(bitmap);
+			bitmap &= ~bit;
+			Object lKey = null, lVal = null, rKey = null, rVal = null;
+			if ((left.bitmap & bit) != 0) {
+				int idx = left.index(bit);
+				lKey = left.array[2 * idx];
+				lVal = left.array[2 * idx + 1];
+			}
+			if ((right.bitmap & bit) != 0) {
+				int idx = right.index(bit);
+				rKey = right.array[2 * idx];
+				rVal = right.array[2 * idx + 1];
+			}
+
+			if (lKey == null && rKey == null)
+				// two subtrees (possibly missing)
+				diff((Node) lVal, (Node) rVal, shift + BITS, keys);
+			else if (lKey != null && rKey != null && lKey.equals(rKey) && lVal == rVal)
+				continue;
+			else {
+				emit(lKey, lVal, keys);
+				emit(rKey, rVal, keys);
+			}
+		}
+	}
+
+	private static void emit(Object key, Object value, Consumer<Object> keys) {
+		if (key != null)
+			keys.accept(key);
+		else if (value != null)
+			((Node) value).forEach((k, v) -> keys.accept(k));
+	}
+
+	private static abstract class Node {
+
+		// 0 means not computed yet: a benign race, as the value is
+		// deterministic
+		private int hash;
+
+		abstract Object find(int shift, int hash, Object key);
+
+		abstract Node put(int shift, int hash, Object key, Object value, boolean[] added);
+
+		/**
+		 * Yields {@code null} when the resulting node would be empty.
+		 */
+		abstract Node remove(int shift, int hash, Object key);
+
+		abstract void forEach(BiConsumer<Object, Object> action);
+
+		abstract int computeHash();
+
+		final int hash() {
+			int h = hash;
+			if (h == 0) {
+				h = computeHash();
+				hash = h;
+			}
+			return h;
+		}
+
+		static int entryHash(Object key, Object value) {
+			return key.hashCode() ^ value.hashCode();
+		}
+
+		static Node createNode(int shift, Object k1, Object v1, int h2, Object k2, Object v2) {
+			int h1 = k1.hashCode();
+			if (h1 == h2)
+				return new CollisionNode(h1, new Object[] { k1, v1, k2, v2 });
+			boolean[] added = new boolean[1];
+			return BitmapNode.EMPTY.put(shift, h1, k1, v1, added).put(shift, h2, k2, v2, added);
+		}
+	}
+
+	private static final class BitmapNode extends Node {
+
+		static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+		// each slot takes two cells: either (key, value) or (null, child)
+		private final int bitmap;
+		private final Object[] array;
+
+		private BitmapNode(int bitmap, Object[] array) {
+			this.bitmap = bitmap;
+			this.array = array;
+		}
+
+		private static int bit(int hash, int shift) {
+			return 1 << ((hash >>> shift) & MASK);
+		}
+
+		private int index(int bit) {
+			return Integer.bitCount(bitmap & (bit - 1));
+		}
+
+		@Override
+		Object find(int shift, int hash, Object key) {
+			int bit = bit(hash, shift);
+			if ((bitmap & bit) == 0)
+				return null;
+			int idx = index(bit);
+			Object k = array[2 * idx];
+			Object v = array[2 * idx + 1];
+			if (k == null)
+				return ((Node) v).find(shift + BITS, hash, key);
+			return key.equals(k) ? v : null;
+		}
+
+		@Override
+		Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+			int bit = bit(hash, shift);
+			int idx = index(bit);
+			if ((bitmap & bit) != 0) {
+				Object k = array[2 * idx];
+				Object v = array[2 * idx + 1];
+				if (k == null) {
+					Node child = ((Node) v).put(shift + BITS, hash, key, value, added);
+					return child == v ? this : with(2 * idx + 1, child);
+				}
+				if (key.equals(k))
+					return v == value ? this : with(2 * idx + 1, value);
+				added[0] = true;
+				Node child = createNode(shift + BITS, k, v, hash, key, value);
+				Object[] copy = array.clone();
+				copy[2 * idx] = null;
+				copy[2 * idx + 1] = child;
+				return new BitmapNode(bitmap, copy);
+			}
+
+			added[0] = true;
+			Object[] copy = new Object[array.length + 2];
+			System.arraycopy(array, 0, copy, 0, 2 * idx);
+			copy[2 * idx] = key;
+			copy[2 * idx + 1] = value;
+			System.arraycopy(array, 2 * idx, copy, 2 * idx + 2, array.length - 2 * idx);
+			return new BitmapNode(bitmap | bit, copy);
+		}
+
+		private BitmapNode with(int cell, Object content) {
+			Object[] copy = array.clone();
+			copy[cell] = content;
+			return new BitmapNode(bitmap, copy);
+		}
+
+		@Override
+		Node remove(int shift, int hash, Object key) {
+			int bit = bit(hash, shift);
+			if ((bitmap & bit) == 0)
+				return this;
+			int idx = index(bit);
+			Object k = array[2 * idx];
+			Object v = array[2 * idx + 1];
+			if (k == null) {
+				Node child = ((Node) v).remove(shift + BITS, hash, key);
+				if (child == v)
+					return this;
+				if (child != null)
+					return with(2 * idx + 1, child);
+			} else if (!key.equals(k))
+				return this;
+
+			if (bitmap == bit)
+				return null;
+			Object[] copy = new Object[array.length - 2];
+			System.arraycopy(array, 0, copy, 0, 2 * idx);
+			System.arraycopy(array, 2 * idx + 2, copy, 2 * idx, copy.length - 2 * idx);
+			return new BitmapNode(bitmap & ~bit, copy);
+		}
+
+		@Override
+		void forEach(BiConsumer<Object, Object> action) {
+			for (int i = 0; i < array.length; i += 2)
+				if (array[i] == null)
+					((Node) array[i + 1]).forEach(action);
+				else
+					action.accept(array[i], array[i + 1]);
+		}
+
+		@Override
+		int computeHash() {
+			int h = 0;
+			for (int i = 0; i < array.length; i += 2)
+				h += array[i] == null ? ((Node) array[i + 1]).hash() : entryHash(array[i], array[i + 1]);
+			return h;
+		}
+	}
+
+	private static final class CollisionNode extends Node {
+
+		private final int keyHash;
+
+		// key-value pairs, all with the same key hash
+		private final Object[] array;
+
+		private CollisionNode(int keyHash, Object[] array) {
+			this.keyHash = keyHash;
+			this.array = array;
+		}
+
+		private int find(Object key) {
+			for (int i = 0; i < array.length; i += 2)
+				if (key.equals(array[i]))
+					return i;
+			return -1;
+		}
+
+		@Override
+		Object find(int shift, int hash, Object key) {
+			if (hash != keyHash)
+				return null;
+			int idx = find(key);
+			return idx < 0 ? null : array[idx + 1];
+		}
+
+		@Override
+		Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+			if (hash != keyHash) {
+				// push this node one level down, next to the new entry
+				Node nested = new BitmapNode(BitmapNode.bit(keyHash, shift), new Object[] { null, this });
+				return nested.put(shift, hash, key, value, added);
+			}
+
+			int idx = find(key);
+			if (idx >= 0) {
+				if (array[idx + 1] == value)
+					return this;
+				Object[] copy = array.clone();
+				copy[idx + 1] = value;
+				return new CollisionNode(keyHash, copy);
+			}
+
+			added[0] = true;
+			Object[] copy = Arrays.copyOf(array, array.length + 2);
+			copy[array.length] = key;
+			copy[array.length + 1] = value;
+			return new CollisionNode(keyHash, copy);
+		}
+
+		@Override
+		Node remove(int shift, int hash, Object key) {
+			int idx = hash == keyHash ? find(key) : -1;
+			if (idx < 0)
+				return this;
+			if (array.length == 2)
+				return null;
+			Object[] copy = new Object[array.length - 2];
+			System.arraycopy(array, 0, copy, 0, idx);
+			System.arraycopy(array, idx + 2, copy, idx, copy.length - idx);
+			return new CollisionNode(keyHash, copy);
+		}
+
+		@Override
+		void forEach(BiConsumer<Object, Object> action) {
+			for (int i = 0; i < array.length; i += 2)
+				action.accept(array[i], array[i + 1]);
+		}
+
+		@Override
+		int computeHash() {
+			int h = 0;
+			for (int i = 0; i < array.length; i += 2)
+				h += entryHash(array[i], array[i + 1]);
+			return h;
+		}
+	}
+}
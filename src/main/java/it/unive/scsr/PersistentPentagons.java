@@ -0,0 +1,234 @@
+package it.unive.scsr;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.apache.commons.collections4.CollectionUtils;
+
+import it.unive.lisa.analysis.BaseLattice;
+import it.unive.lisa.analysis.Lattice;
+import it.unive.lisa.analysis.ScopeToken;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.numeric.Interval;
+import it.unive.lisa.analysis.representation.DomainRepresentation;
+import it.unive.lisa.analysis.representation.MapRepresentation;
+import it.unive.lisa.analysis.representation.StringRepresentation;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.BinaryExpression;
+import it.unive.lisa.symbolic.value.Constant;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.ValueExpression;
+import it.unive.lisa.symbolic.value.operator.SubtractionOperator;
+import it.unive.lisa.symbolic.value.operator.binary.BinaryOperator;
+
+/**
+ * A variant of {@link Pentagons} whose environments are
+ * {@link PersistentEnvironment}s instead of {@code ValueEnvironment}s:
+ * updates only copy the path to the modified identifier, and states computed
+ * from one another share most of their structure, reducing the allocation
+ * rate and the peak memory of the fixpoint on methods with many variables.
+ */
+public class PersistentPentagons extends BaseLattice<PersistentPentagons> implements ValueDomain<PersistentPentagons> {
+
+	private final PersistentEnvironment<Interval> intervals;
+	private final PersistentEnvironment<UpperBounds> upperBounds;
+
+	public PersistentPentagons() {
+		this.intervals = new PersistentEnvironment<>(new Interval()).top();
+		this.upperBounds = new PersistentEnvironment<>(new UpperBounds(true)).top();
+	}
+
+	public PersistentPentagons(PersistentEnvironment<Interval> intervals,
+			PersistentEnvironment<UpperBounds> upperBounds) {
+		this.intervals = intervals;
+		this.upperBounds = upperBounds;
+	}
+
+	@Override
+	public PersistentPentagons assign(Identifier id, ValueExpression expression, ProgramPoint pp)
+			throws SemanticException {
+		PersistentEnvironment<UpperBounds> newBounds = upperBounds.assign(id, expression, pp);
+
+		// we add the semantics for assignments here as we have access to the whole assigment
+		if (expression instanceof BinaryExpression) {
+			BinaryExpression be = (BinaryExpression) expression;
+			BinaryOperator op = be.getOperator();
+			if (op instanceof SubtractionOperator && be.getLeft() instanceof Identifier && be.getRight() instanceof Constant) {
+				Identifier y = (Identifier) be.getLeft();
+				newBounds = newBounds.putState(id, upperBounds.getState(y).add(y));
+			}
+		}
+
+		return new PersistentPentagons(
+				intervals.assign(id, expression, pp),
+				newBounds);
+	}
+
+	@Override
+	public PersistentPentagons smallStepSemantics(ValueExpression expression, ProgramPoint pp) throws SemanticException {
+		// environments do not change without assignments
+		return this;
+	}
+
+	@Override
+	public PersistentPentagons assume(ValueExpression expression, ProgramPoint pp) throws SemanticException {
+		return new PersistentPentagons(
+				intervals.assume(expression, pp),
+				upperBounds.assume(expression, pp));
+	}
+
+	@Override
+	public PersistentPentagons forgetIdentifier(Identifier id) throws SemanticException {
+		return new PersistentPentagons(
+				intervals.forgetIdentifier(id),
+				upperBounds.forgetIdentifier(id));
+	}
+
+	@Override
+	public PersistentPentagons forgetIdentifiersIf(Predicate<Identifier> test) throws SemanticException {
+		return new PersistentPentagons(
+				intervals.forgetIdentifiersIf(test),
+				upperBounds.forgetIdentifiersIf(test));
+	}
+
+	@Override
+	public Satisfiability satisfies(ValueExpression expression, ProgramPoint pp) throws SemanticException {
+		return intervals.satisfies(expression, pp).glb(upperBounds.satisfies(expression, pp));
+	}
+
+	@Override
+	public PersistentPentagons pushScope(ScopeToken token) throws SemanticException {
+		return this; // we do not care about this for the project
+	}
+
+	@Override
+	public PersistentPentagons popScope(ScopeToken token) throws SemanticException {
+		return this; // we do not care about this for the project
+	}
+
+	@Override
+	public DomainRepresentation representation() {
+		if (isTop())
+			return Lattice.topRepresentation();
+		if (isBottom())
+			return Lattice.bottomRepresentation();
+		Map<DomainRepresentation, DomainRepresentation> mapping = new HashMap<>();
+		for (Identifier id : CollectionUtils.union(intervals.getKeys(), upperBounds.getKeys()))
+			mapping.put(new StringRepresentation(id),
+					new StringRepresentation(intervals.getState(id).toString() + ", " +
+							upperBounds.getState(id).representation()));
+		return new MapRepresentation(mapping);
+	}
+
+	@Override
+	public PersistentPentagons top() {
+		return new PersistentPentagons(intervals.top(), upperBounds.top());
+	}
+
+	@Override
+	public boolean isTop() {
+		return intervals.isTop() && upperBounds.isTop();
+	}
+
+	@Override
+	public PersistentPentagons bottom() {
+		return new PersistentPentagons(intervals.bottom(), upperBounds.bottom());
+	}
+
+	@Override
+	public boolean isBottom() {
+		return intervals.isBottom() || upperBounds.isBottom();
+	}
+
+	@Override
+	public PersistentPentagons lubAux(PersistentPentagons other) throws SemanticException {
+		PersistentEnvironment<UpperBounds> newBounds = upperBounds.lub(other.upperBounds);
+		// only the variables whose bounds differ can lose bounds in the join
+		Collection<Identifier> changed = upperBounds.differingKeys(other.upperBounds);
+		newBounds = close(newBounds, changed, upperBounds, other.intervals);
+		newBounds = close(newBounds, changed, other.upperBounds, intervals);
+		return new PersistentPentagons(intervals.lub(other.intervals), newBounds);
+	}
+
+	/**
+	 * Adds back to {@code newBounds} the bounds {@code x < y} of
+	 * {@code bounds}, for {@code x} in {@code changed}, that have been lost by
+	 * the join but that still hold in {@code intervals}.
+	 */
+	private static PersistentEnvironment<UpperBounds> close(
+			PersistentEnvironment<UpperBounds> newBounds,
+			Collection<Identifier> changed,
+			PersistentEnvironment<UpperBounds> bounds,
+			PersistentEnvironment<Interval> intervals) throws SemanticException {
+		PersistentEnvironment<UpperBounds> result = newBounds;
+		for (Identifier x : changed) {
+			UpperBounds joined = newBounds.getState(x), before = bounds.getState(x);
+			if (joined == before || joined.containsAll(before))
+				// nothing has been lost
+				continue;
+
+			UpperBounds lost = before.minus(joined);
+
+			Interval xInterval = intervals.getState(x);
+			Set<Identifier> closure = new HashSet<>();
+			for (Identifier bound : lost)
+				if (strictlyBelow(xInterval, intervals.getState(bound)))
+					closure.add(bound);
+			if (!closure.isEmpty())
+				// glb is the union
+				result = result.putState(x, joined.glb(joined.withBounds(closure)));
+		}
+		return result;
+	}
+
+	private static boolean strictlyBelow(Interval x, Interval y) {
+		return !x.isBottom() && !y.isBottom() && x.interval.getHigh().compareTo(y.interval.getLow()) < 0;
+	}
+
+	@Override
+	public PersistentPentagons wideningAux(PersistentPentagons other) throws SemanticException {
+		return new PersistentPentagons(intervals.widening(other.intervals), upperBounds.widening(other.upperBounds));
+	}
+
+	@Override
+	public boolean lessOrEqualAux(PersistentPentagons other) throws SemanticException {
+		if (!intervals.lessOrEqual(other.intervals))
+			return false;
+		for (Entry<Identifier, UpperBounds> entry : other.upperBounds)
+			for (Identifier bound : entry.getValue())
+				if (!(upperBounds.getState(entry.getKey()).contains(bound)
+						|| strictlyBelow(intervals.getState(entry.getKey()), intervals.getState(bound))))
+					return false;
+
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(intervals, upperBounds);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		PersistentPentagons other = (PersistentPentagons) obj;
+		return Objects.equals(intervals, other.intervals) && Objects.equals(upperBounds, other.upperBounds);
+	}
+
+	@Override
+	public String toString() {
+		return representation().toString();
+	}
+}
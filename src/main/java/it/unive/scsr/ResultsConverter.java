@@ -0,0 +1,106 @@
+package it.unive.scsr;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Converts the per-CFG results produced with {@code serializeResults} between
+ * the json format written by LiSA and the binary format of
+ * {@link BinaryJson}, in place. Binary files replace json ones, with the same
+ * name and the {@value #BINARY} extension, while {@code report.json} is
+ * always kept as it is, so that the json results can be restored and compared
+ * with {@code JsonReportComparer} as before. Conversions are streamed, and
+ * never keep a whole document in memory.<br>
+ * <br>
+ * Usage: {@code ResultsConverter (--binary|--json) <dir>...}
+ */
+public class ResultsConverter {
+
+	public static final String JSON = ".json";
+
+	public static final String BINARY = ".sbj";
+
+	private static final String REPORT = "report.json";
+
+	private ResultsConverter() {
+	}
+
+	/**
+	 * Converts all the json results inside {@code dir} to the binary format.
+	 *
+	 * @return the number of files converted
+	 */
+	public static int toBinary(Path dir) throws IOException {
+		List<Path> files = find(dir, JSON);
+		char[] chunk = new char[64 * 1024];
+		for (Path file : files) {
+			Path target = sibling(file, JSON, BINARY);
+			try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+					Writer writer = new BinaryJsonWriter(FileChannel.open(target, StandardOpenOption.CREATE,
+							StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))) {
+				for (int read; (read = reader.read(chunk)) >= 0;)
+					writer.write(chunk, 0, read);
+			}
+			Files.delete(file);
+		}
+		return files.size();
+	}
+
+	/**
+	 * Converts all the binary results inside {@code dir} back to json.
+	 *
+	 * @return the number of files converted
+	 */
+	public static int toJson(Path dir) throws IOException {
+		List<Path> files = find(dir, BINARY);
+		for (Path file : files) {
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+					OutputStream out = new BufferedOutputStream(Files.newOutputStream(sibling(file, BINARY, JSON)),
+							64 * 1024)) {
+				MappedByteBuffer binary = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				BinaryJson.decode(binary, out);
+			}
+			Files.delete(file);
+		}
+		return files.size();
+	}
+
+	private static List<Path> find(Path dir, String extension) throws IOException {
+		try (Stream<Path> walk = Files.walk(dir)) {
+			return walk.filter(Files::isRegularFile)
+					.filter(p -> p.getFileName().toString().endsWith(extension))
+					.filter(p -> !p.getFileName().toString().equals(REPORT))
+					.collect(Collectors.toList());
+		}
+	}
+
+	private static Path sibling(Path file, String from, String to) {
+		String name = file.getFileName().toString();
+		return file.resolveSibling(name.substring(0, name.length() - from.length()) + to);
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2 || (!args[0].equals("--binary") && !args[0].equals("--json"))) {
+			System.err.println("Usage: ResultsConverter (--binary|--json) <dir>...");
+			System.exit(1);
+		}
+		for (int i = 1; i < args.length; i++) {
+			Path dir = Paths.get(args[i]);
+			int converted = args[0].equals("--binary") ? toBinary(dir) : toJson(dir);
+			System.out.println(dir + ": " + converted + " files converted");
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package it.unive.scsr;
+
+import it.unive.lisa.analysis.nonrelational.value.NonRelationalValueDomain;
+
+/**
+ * An encoding of the elements of a finite sign lattice as byte codes, used
+ * by {@link SignEnvironment}. Each element is encoded as the bitmask of the
+ * concrete signs it represents ({@link #NEG}, {@link #ZERO} and
+ * {@link #POS}), so that the ordering of the lattice is inclusion between
+ * bitmasks, and the lub of two elements is the least element whose bitmask
+ * contains the union of theirs. Bitmasks that do not correspond to an
+ * element of the lattice (e.g. {@code NEG | POS} for {@link Signs}) are never
+ * stored.
+ *
+ * @param <T> the type of the encoded elements
+ */
+public class SignCodec<T extends NonRelationalValueDomain<T>> {
+
+	public static final byte BOTTOM = 0;
+	public static final byte NEG = 1;
+	public static final byte ZERO = 2;
+	public static final byte POS = 4;
+	public static final byte TOP = NEG | ZERO | POS;
+
+	private static final int CODES = TOP + 1;
+
+	/**
+	 * The element encoded by each code, {@code null} for codes that are not
+	 * part of the lattice
+	 */
+	private final T[] elements;
+
+	/**
+	 * The least code of the lattice containing each bitmask
+	 */
+	private final byte[] canonical = new byte[CODES];
+
+	/**
+	 * Builds the codec of a lattice.
+	 *
+	 * @param elements the element encoded by each of the eight codes, indexed
+	 *                     by code, {@code null} for codes that are not part of
+	 *                     the lattice; bottom and top must be present
+	 */
+	@SafeVarargs
+	public SignCodec(T... elements) {
+		if (elements.length != CODES || elements[BOTTOM] == null || elements[TOP] == null)
+			throw new IllegalArgumentException("Eight elements are required, with bottom and top");
+		this.elements = elements.clone();
+		for (int code = 0; code < CODES; code++) {
+			int best = TOP;
+			for (int other = 0; other < CODES; other++)
+				if (elements[other] != null && (code & ~other) == 0
+						&& Integer.bitCount(other) < Integer.bitCount(best))
+					best = other;
+			canonical[code] = (byte) best;
+		}
+	}
+
+	public byte encode(T element) {
+		for (int code = 0; code < CODES; code++)
+			if (elements[code] == element)
+				return (byte) code;
+		for (int code = 0; code < CODES; code++)
+			if (element.equals(elements[code]))
+				return (byte) code;
+		throw new IllegalArgumentException("Not an element of the lattice: " + element);
+	}
+
+	public T decode(byte code) {
+		return elements[code];
+	}
+
+	public T top() {
+		return elements[TOP];
+	}
+
+	public T bottom() {
+		return elements[BOTTOM];
+	}
+
+	public byte lub(byte left, byte right) {
+		return canonical[left | right];
+	}
+
+	/**
+	 * Stores in {@code result} the lub of the first {@code length} codes of
+	 * {@code left} and {@code right}.
+	 */
+	public void lub(byte[] left, byte[] right, byte[] result, int length) {
+		LatticeArrays.lub(left, right, result, length, canonical);
+	}
+
+	public static boolean lessOrEqual(byte left, byte right) {
+		return (left & ~right) == 0;
+	}
+}
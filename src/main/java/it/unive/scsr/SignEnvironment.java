@@ -0,0 +1,339 @@
+package it.unive.scsr;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import it.unive.lisa.analysis.BaseLattice;
+import it.unive.lisa.analysis.Lattice;
+import it.unive.lisa.analysis.ScopeToken;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.nonrelational.value.NonRelationalValueDomain;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.analysis.representation.DomainRepresentation;
+import it.unive.lisa.analysis.representation.MapRepresentation;
+import it.unive.lisa.analysis.representation.StringRepresentation;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.ValueExpression;
+
+/**
+ * A mapping from identifiers to the elements of a finite sign lattice, with
+ * the same lattice structure of {@link ValueEnvironment}, but stored as an
+ * array of byte codes (see {@link SignCodec}) instead of a map of domain
+ * objects: each identifier gets a slot in an {@link IdentifierIndex} shared
+ * by all the environments derived from the same initial one, and the state
+ * of a program point is a single {@code byte[]} with one entry per slot.
+ * Lub, widening, ordering and equality are loops over the arrays (joins and
+ * ordering are vectorized by {@link LatticeArrays}), and a program point
+ * costs one byte per identifier instead of a map entry.<br>
+ * <br>
+ * As in {@link ValueEnvironment}, identifiers that are not mapped are bound
+ * to bottom: they are encoded as {@link SignCodec#BOTTOM}, and slots past the
+ * end of the array are not mapped. Expressions are evaluated by the
+ * underlying domain on a {@link ValueEnvironment} containing only the
+ * identifiers that appear in them, so that the semantics is exactly the one
+ * of {@link ValueEnvironment}. Environments built from different initial
+ * ones do not share their index: when they are compared or joined, the codes
+ * of the other environment are re-encoded through its identifiers.
+ *
+ * @param <T> the type of the values of the environment
+ */
+public class SignEnvironment<T extends NonRelationalValueDomain<T>> extends BaseLattice<SignEnvironment<T>>
+		implements ValueDomain<SignEnvironment<T>> {
+
+	private static final byte[] EMPTY = new byte[0];
+
+	private final SignCodec<T> codec;
+
+	private final IdentifierIndex index;
+
+	/**
+	 * The codes of the identifiers, indexed by slot, {@code null} for the top
+	 * and bottom environments
+	 */
+	private final byte[] codes;
+
+	private final boolean bottom;
+
+	public SignEnvironment(SignCodec<T> codec) {
+		this(codec, new IdentifierIndex(), null, false);
+	}
+
+	private SignEnvironment(SignCodec<T> codec, IdentifierIndex index, byte[] codes, boolean bottom) {
+		this.codec = codec;
+		this.index = index;
+		this.codes = codes;
+		this.bottom = bottom;
+	}
+
+	private byte[] codes() {
+		return codes == null ? EMPTY : codes;
+	}
+
+	private byte code(Identifier id) {
+		int slot = index.find(id);
+		return slot < 0 || slot >= codes().length ? SignCodec.BOTTOM : codes[slot];
+	}
+
+	public T getState(Identifier id) {
+		if (isBottom())
+			return codec.bottom();
+		if (isTop())
+			return codec.top();
+		return codec.decode(code(id));
+	}
+
+	public SignEnvironment<T> putState(Identifier id, T state) {
+		byte code = codec.encode(state);
+		if (codes != null && code == code(id))
+			return this;
+		int slot = index.indexOf(id);
+		byte[] current = codes();
+		// the index is shared by all the cfgs of the program, so the array only
+		// grows up to the slot being set: the codes past its end are bottom
+		byte[] updated = new byte[Math.max(current.length, slot + 1)];
+		System.arraycopy(current, 0, updated, 0, current.length);
+		updated[slot] = code;
+		return new SignEnvironment<>(codec, index, updated, false);
+	}
+
+	private SignEnvironment<T> with(byte[] updated) {
+		return new SignEnvironment<>(codec, index, updated, false);
+	}
+
+	/**
+	 * Yields a {@link ValueEnvironment} containing the states of the
+	 * identifiers in {@code expression} and of {@code extra}, if not
+	 * {@code null}.
+	 */
+	private ValueEnvironment<T> project(ValueExpression expression, Identifier extra) {
+		ValueEnvironment<T> projection = new ValueEnvironment<>(codec.top()).top();
+		if (isTop())
+			return projection;
+
+		Collection<Identifier> ids = SymbolicExpressions.identifiersIn(expression);
+		if (extra != null)
+			ids.add(extra);
+		// unmapped identifiers are bottom here, while they would be top in the
+		// (top) empty projection: bottoms are thus put explicitly
+		for (Identifier id : ids)
+			projection = projection.putState(id, codec.decode(code(id)));
+		return projection;
+	}
+
+	@Override
+	public SignEnvironment<T> assign(Identifier id, ValueExpression expression, ProgramPoint pp)
+			throws SemanticException {
+		if (isBottom())
+			return this;
+		ValueEnvironment<T> projection = project(expression, id);
+		ValueEnvironment<T> result = projection.assign(id, expression, pp);
+		if (result == projection)
+			return this;
+		if (result.isBottom())
+			return bottom();
+		return putState(id, result.getState(id));
+	}
+
+	@Override
+	public SignEnvironment<T> smallStepSemantics(ValueExpression expression, ProgramPoint pp)
+			throws SemanticException {
+		// environments do not change without assignments
+		return this;
+	}
+
+	@Override
+	public SignEnvironment<T> assume(ValueExpression expression, ProgramPoint pp) throws SemanticException {
+		if (isBottom())
+			return this;
+		ValueEnvironment<T> projection = project(expression, null);
+		ValueEnvironment<T> result = projection.assume(expression, pp);
+		if (result == projection)
+			return this;
+		if (result.isBottom())
+			return bottom();
+		SignEnvironment<T> env = this;
+		for (Identifier id : result.getKeys())
+			env = env.putState(id, result.getState(id));
+		return env;
+	}
+
+	@Override
+	public Satisfiability satisfies(ValueExpression expression, ProgramPoint pp) throws SemanticException {
+		if (isBottom())
+			return Satisfiability.BOTTOM;
+		return project(expression, null).satisfies(expression, pp);
+	}
+
+	@Override
+	public SignEnvironment<T> forgetIdentifier(Identifier id) {
+		if (codes == null || code(id) == SignCodec.BOTTOM)
+			return this;
+		byte[] updated = codes.clone();
+		updated[index.find(id)] = SignCodec.BOTTOM;
+		return with(updated);
+	}
+
+	@Override
+	public SignEnvironment<T> forgetIdentifiersIf(Predicate<Identifier> test) {
+		if (codes == null)
+			return this;
+		byte[] updated = null;
+		for (int slot = 0; slot < codes.length; slot++)
+			if (codes[slot] != SignCodec.BOTTOM && test.test(index.get(slot))) {
+				if (updated == null)
+					updated = codes.clone();
+				updated[slot] = SignCodec.BOTTOM;
+			}
+		return updated == null ? this : with(updated);
+	}
+
+	@Override
+	public SignEnvironment<T> pushScope(ScopeToken token) throws SemanticException {
+		return this; // we do not care about this for the project
+	}
+
+	@Override
+	public SignEnvironment<T> popScope(ScopeToken token) throws SemanticException {
+		return this; // we do not care about this for the project
+	}
+
+	@Override
+	public DomainRepresentation representation() {
+		if (isTop())
+			return Lattice.topRepresentation();
+		if (isBottom())
+			return Lattice.bottomRepresentation();
+		Map<DomainRepresentation, DomainRepresentation> mapping = new HashMap<>();
+		for (int slot = 0; slot < codes.length; slot++)
+			if (codes[slot] != SignCodec.BOTTOM)
+				mapping.put(new StringRepresentation(index.get(slot)),
+						codec.decode(codes[slot]).representation());
+		return new MapRepresentation(mapping);
+	}
+
+	@Override
+	public SignEnvironment<T> top() {
+		return new SignEnvironment<>(codec, index, null, false);
+	}
+
+	@Override
+	public boolean isTop() {
+		return codes == null && !bottom;
+	}
+
+	@Override
+	public SignEnvironment<T> bottom() {
+		return new SignEnvironment<>(codec, index, null, true);
+	}
+
+	@Override
+	public boolean isBottom() {
+		return codes == null && bottom;
+	}
+
+	/**
+	 * Yields the codes of {@code other}, indexed by the slots of the index of
+	 * this environment.
+	 */
+	private byte[] codesOf(SignEnvironment<?> other) {
+		if (other.index == index)
+			return other.codes();
+		byte[] theirs = other.codes(), result = EMPTY;
+		for (int slot = 0; slot < theirs.length; slot++)
+			if (theirs[slot] != SignCodec.BOTTOM) {
+				int mine = index.indexOf(other.index.get(slot));
+				if (mine >= result.length)
+					result = Arrays.copyOf(result, Math.min(index.size(), Math.max(mine + 1, 2 * result.length)));
+				result[mine] = theirs[slot];
+			}
+		return result;
+	}
+
+	@Override
+	public SignEnvironment<T> lubAux(SignEnvironment<T> other) throws SemanticException {
+		byte[] mine = codes(), left = mine, right = codesOf(other);
+		if (left.length < right.length) {
+			byte[] tmp = left;
+			left = right;
+			right = tmp;
+		}
+		// codes past the end of the shortest array are bottom, so the lub is
+		// the other code
+		byte[] result = left.clone();
+		codec.lub(left, right, result, right.length);
+		if (Arrays.equals(result, left))
+			return left == mine ? this : other.index == index ? other : with(result);
+		return with(result);
+	}
+
+	@Override
+	public SignEnvironment<T> wideningAux(SignEnvironment<T> other) throws SemanticException {
+		// the lattices are finite
+		return lubAux(other);
+	}
+
+	@Override
+	public boolean lessOrEqualAux(SignEnvironment<T> other) throws SemanticException {
+		byte[] left = codes(), right = codesOf(other);
+		int common = Math.min(left.length, right.length);
+		if (!LatticeArrays.lessOrEqual(left, right, common))
+			return false;
+		for (int slot = common; slot < left.length; slot++)
+			if (left[slot] != SignCodec.BOTTOM)
+				return false;
+		return true;
+	}
+
+	/**
+	 * Yields the length of the given codes without trailing bottoms, that
+	 * are the same as missing slots.
+	 */
+	private static int length(byte[] codes) {
+		int length = codes.length;
+		while (length > 0 && codes[length - 1] == SignCodec.BOTTOM)
+			length--;
+		return length;
+	}
+
+	@Override
+	public int hashCode() {
+		// summed over the identifiers, so that it does not depend on the
+		// slots of the index
+		int result = codes == null ? (bottom ? 1 : 2) : 3;
+		for (int slot = 0; slot < codes().length; slot++)
+			if (codes[slot] != SignCodec.BOTTOM)
+				result += 31 * index.get(slot).hashCode() + codes[slot];
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		SignEnvironment<?> other = (SignEnvironment<?>) obj;
+		if (codec != other.codec || bottom != other.bottom || (codes == null) != (other.codes == null))
+			return false;
+		byte[] mine = codes(), theirs = codesOf(other);
+		int length = length(mine);
+		if (length != length(theirs))
+			return false;
+		for (int slot = 0; slot < length; slot++)
+			if (mine[slot] != theirs[slot])
+				return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return isTop() ? Lattice.TOP_STRING : isBottom() ? Lattice.BOTTOM_STRING : representation().toString();
+	}
+}
@@ -33,6 +33,9 @@ public class Signs
 	private static final Signs POSITIVE = new Signs(1);
 	private static final Signs TOP = new Signs(10);
 
+	// the byte codes of the elements, used by SignEnvironment
+	static final SignCodec<Signs> CODEC = new SignCodec<>(BOTTOM, NEGATIVE, ZERO, null, POSITIVE, null, null, TOP);
+
 	// this is just needed to distinguish the elements
 	private final int sign;
 
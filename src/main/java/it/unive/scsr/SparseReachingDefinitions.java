@@ -0,0 +1,292 @@
+package it.unive.scsr;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import it.unive.lisa.analysis.representation.DomainRepresentation;
+import it.unive.lisa.analysis.representation.SetRepresentation;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.CodeLocation;
+import it.unive.lisa.program.cfg.Parameter;
+import it.unive.lisa.program.cfg.statement.Assignment;
+import it.unive.lisa.program.cfg.statement.Return;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.program.cfg.statement.VariableRef;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.Variable;
+
+/**
+ * A sparse reaching definitions analysis over the nodes of a {@link CFG}.
+ * Instead of propagating the set of all definitions through every node, as
+ * {@link ReachingDefinitions} does, the CFG is split in basic blocks, each
+ * summarized by the last definition of each variable inside it, and
+ * definitions reaching a node are computed on demand by walking
+ * backwards from that node, for each variable, up to the closest definitions
+ * of that variable. The only per-node information kept is the block a node
+ * belongs to: the memory used is proportional to the number of definitions
+ * and of the queries performed, not to definitions times nodes.<br>
+ * <br>
+ * Definitions are the assignments to variables, the returns (that assign the
+ * meta variable of the CFG) and the formal parameters of the CFG, that LiSA
+ * defines at the generic program point of the CFG when entering it. The
+ * elements returned are the same as the ones computed by
+ * {@link ReachingDefinitions} after each node, and {@link #dump(Writer)}
+ * writes them in the same form as the descriptions of the nodes in the
+ * graphs that LiSA dumps.
+ */
+public class SparseReachingDefinitions {
+
+	/**
+	 * A maximal sequence of nodes with no branches nor joins in between
+	 */
+	private static class Block {
+
+		private final List<Statement> nodes = new ArrayList<>();
+
+		private final List<Block> predecessors = new ArrayList<>();
+
+		/**
+		 * The last definition of each variable assigned in this block
+		 */
+		private final Map<Identifier, ReachingDefinitions> generated = new HashMap<>();
+
+		private boolean entry;
+	}
+
+	/**
+	 * A definition performed by a node
+	 */
+	private static class Definition {
+
+		private final Identifier variable;
+
+		private final ReachingDefinitions element;
+
+		private Definition(Identifier variable, ReachingDefinitions element) {
+			this.variable = variable;
+			this.element = element;
+		}
+	}
+
+	private static final ReachingDefinitions DOMAIN = new ReachingDefinitions();
+
+	private final CFG cfg;
+
+	private final Map<Statement, Block> blocks = new HashMap<>();
+
+	private final Map<Statement, Integer> positions = new HashMap<>();
+
+	private final Map<Statement, Definition> definitions = new HashMap<>();
+
+	private final Map<Identifier, ReachingDefinitions> formals = new HashMap<>();
+
+	private final Set<Identifier> variables = new HashSet<>();
+
+	/**
+	 * The definitions reaching the beginning of a block, for the variables
+	 * that have been queried
+	 */
+	private final Map<Block, Map<Identifier, Set<ReachingDefinitions>>> cache = new HashMap<>();
+
+	public SparseReachingDefinitions(CFG cfg) {
+		this.cfg = cfg;
+		CodeLocation entry = cfg.getGenericProgramPoint().getLocation();
+		for (Parameter formal : cfg.getDescriptor().getFormals()) {
+			Variable id = new Variable(formal.getStaticType(), formal.getName(), formal.getAnnotations(),
+					formal.getLocation());
+			// as in DataflowDomain, identifiers that are not tracked (e.g.
+			// the receiver) are never defined
+			if (DOMAIN.tracksIdentifiers(id)) {
+				formals.put(id, new ReachingDefinitions(id, entry));
+				variables.add(id);
+			}
+		}
+
+		for (Statement node : cfg.getNodes()) {
+			Identifier id = null;
+			if (node instanceof Assignment && ((Assignment) node).getLeft() instanceof VariableRef)
+				id = ((VariableRef) ((Assignment) node).getLeft()).getVariable();
+			else if (node instanceof Return)
+				id = ((Return) node).getMetaVariable();
+			if (id != null && DOMAIN.tracksIdentifiers(id)) {
+				definitions.put(node, new Definition(id, new ReachingDefinitions(id, node.getLocation())));
+				variables.add(id);
+			}
+		}
+
+		buildBlocks(cfg);
+	}
+
+	private void buildBlocks(CFG cfg) {
+		Collection<Statement> entrypoints = cfg.getEntrypoints();
+		for (Statement node : cfg.getNodes()) {
+			if (!isLeader(cfg, node, entrypoints))
+				continue;
+			Block block = new Block();
+			block.entry = entrypoints.contains(node);
+			Statement current = node;
+			while (true) {
+				positions.put(current, block.nodes.size());
+				block.nodes.add(current);
+				blocks.put(current, block);
+				Definition def = definitions.get(current);
+				if (def != null)
+					block.generated.put(def.variable, def.element);
+
+				Collection<Statement> followers = cfg.followersOf(current);
+				if (followers.size() != 1)
+					break;
+				Statement next = followers.iterator().next();
+				if (isLeader(cfg, next, entrypoints))
+					break;
+				current = next;
+			}
+		}
+
+		for (Block block : new HashSet<>(blocks.values())) {
+			Statement first = block.nodes.get(0);
+			for (Statement pred : cfg.predecessorsOf(first))
+				// unreachable cycles are never visited
+				if (blocks.containsKey(pred))
+					block.predecessors.add(blocks.get(pred));
+		}
+	}
+
+	private static boolean isLeader(CFG cfg, Statement node, Collection<Statement> entrypoints) {
+		if (entrypoints.contains(node))
+			return true;
+		Collection<Statement> preds = cfg.predecessorsOf(node);
+		return preds.size() != 1 || cfg.followersOf(preds.iterator().next()).size() != 1;
+	}
+
+	/**
+	 * Yields the definitions of {@code variable} that reach the beginning of
+	 * {@code node}.
+	 */
+	public Set<ReachingDefinitions> reachingBefore(Identifier variable, Statement node) {
+		Block block = blocks.get(node);
+		if (block == null)
+			return Collections.emptySet();
+		for (int i = positions.get(node) - 1; i >= 0; i--) {
+			Definition def = definitions.get(block.nodes.get(i));
+			if (def != null && def.variable.equals(variable))
+				return Collections.singleton(def.element);
+		}
+		return reachingEntry(variable, block);
+	}
+
+	/**
+	 * Yields the definitions of {@code variable} that reach the end of
+	 * {@code node}.
+	 */
+	public Set<ReachingDefinitions> reachingAfter(Identifier variable, Statement node) {
+		Definition def = definitions.get(node);
+		if (def != null && def.variable.equals(variable))
+			return Collections.singleton(def.element);
+		return reachingBefore(variable, node);
+	}
+
+	/**
+	 * Yields all the definitions that reach the end of {@code node}, that is,
+	 * the set of {@link ReachingDefinitions} that a dense analysis computes
+	 * after {@code node}.
+	 */
+	public Set<ReachingDefinitions> reachingAfter(Statement node) {
+		Set<ReachingDefinitions> result = new HashSet<>();
+		for (Identifier variable : variables)
+			result.addAll(reachingAfter(variable, node));
+		return result;
+	}
+
+	/**
+	 * Yields the representation of {@link #reachingAfter(Statement)}, in the
+	 * same form used by the dense analysis.
+	 */
+	public DomainRepresentation representation(Statement node) {
+		return new SetRepresentation(reachingAfter(node), ReachingDefinitions::representation);
+	}
+
+	/**
+	 * Writes the definitions that reach the end of each node of the CFG, as
+	 * a json object with the {@code name} of the CFG and a
+	 * {@code descriptions} array holding, for each node, its {@code text},
+	 * its {@code location} and the elements of {@link #representation(Statement)}
+	 * as strings.
+	 */
+	public void dump(Writer writer) throws IOException {
+		writer.write("{\"name\":");
+		string(writer, cfg.getDescriptor().toString());
+		writer.write(",\"descriptions\":[");
+		boolean first = true;
+		for (Statement node : cfg.getNodes()) {
+			writer.write(first ? "{\"text\":" : ",{\"text\":");
+			first = false;
+			string(writer, node.toString());
+			writer.write(",\"location\":");
+			string(writer, String.valueOf(node.getLocation()));
+			writer.write(",\"value\":[");
+			boolean firstElement = true;
+			for (ReachingDefinitions rd : reachingAfter(node)) {
+				if (!firstElement)
+					writer.write(',');
+				firstElement = false;
+				string(writer, rd.representation().toString());
+			}
+			writer.write("]}");
+		}
+		writer.write("]}");
+	}
+
+	private static void string(Writer writer, String value) throws IOException {
+		writer.write('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\')
+				writer.write('\\');
+			if (c < 0x20)
+				writer.write(String.format("\\u%04x", (int) c));
+			else
+				writer.write(c);
+		}
+		writer.write('"');
+	}
+
+	private Set<ReachingDefinitions> reachingEntry(Identifier variable, Block block) {
+		Map<Identifier, Set<ReachingDefinitions>> known = cache.computeIfAbsent(block, b -> new HashMap<>());
+		Set<ReachingDefinitions> result = known.get(variable);
+		if (result != null)
+			return result;
+
+		// each path backwards stops at the first block defining the variable
+		result = new HashSet<>();
+		Set<Block> visited = new HashSet<>();
+		Deque<Block> worklist = new ArrayDeque<>();
+		worklist.push(block);
+		while (!worklist.isEmpty()) {
+			Block current = worklist.pop();
+			if (current.entry && formals.containsKey(variable))
+				result.add(formals.get(variable));
+			for (Block pred : current.predecessors)
+				if (visited.add(pred)) {
+					ReachingDefinitions def = pred.generated.get(variable);
+					if (def != null)
+						result.add(def);
+					else
+						worklist.push(pred);
+				}
+		}
+
+		known.put(variable, result);
+		return result;
+	}
+}
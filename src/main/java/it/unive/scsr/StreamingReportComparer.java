@@ -0,0 +1,473 @@
+package it.unive.scsr;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import it.unive.lisa.outputs.compare.JsonReportComparer;
+import it.unive.lisa.outputs.json.JsonReport;
+
+/**
+ * Compares the results of two analyses, as dumped by LiSA with
+ * {@code jsonOutput} and {@code serializeResults}, without loading them in
+ * memory. Both versions of each file are memory-mapped and walked token by
+ * token, stopping at the first difference, and the files listed in the
+ * reports are compared in parallel. Only the json structure is compared:
+ * whitespace is ignored, while the order of object fields and array elements
+ * is significant, as it is deterministic in LiSA's outputs. The only
+ * exceptions are the lists of warnings and files of {@code report.json},
+ * that are compared regardless of their order (e.g. analyses of different
+ * CFGs running in parallel list their files in the order they end).<br>
+ * <br>
+ * This is stricter than LiSA's {@link JsonReportComparer}, that compares the
+ * deserialized reports and graphs: results that are the same for this
+ * comparer are also the same for LiSA's one, but not the other way around.
+ * {@link #sameResults(Path, Path)} thus uses the streaming comparison only as
+ * a fast pre-check, and leaves the verdict on results that differ to
+ * {@link JsonReportComparer}, that is the reference.<br>
+ * <br>
+ * Usage: {@code StreamingReportComparer <expected dir> <actual dir>}
+ */
+public class StreamingReportComparer {
+
+	private static final String REPORT = "report.json";
+
+	/**
+	 * A difference between two json files
+	 */
+	public static class Difference {
+
+		private final String file;
+
+		private final String path;
+
+		private final String expected;
+
+		private final String actual;
+
+		public Difference(String file, String path, String expected, String actual) {
+			this.file = file;
+			this.path = path;
+			this.expected = expected;
+			this.actual = actual;
+		}
+
+		/**
+		 * Yields the name of the file where the difference has been found.
+		 */
+		public String getFile() {
+			return file;
+		}
+
+		/**
+		 * Yields the path to the difference inside the file, as in
+		 * {@code $.descriptions[3].description.state}.
+		 */
+		public String getPath() {
+			return path;
+		}
+
+		public String getExpected() {
+			return expected;
+		}
+
+		public String getActual() {
+			return actual;
+		}
+
+		@Override
+		public String toString() {
+			return file + " at " + path + ": expected " + expected + ", found " + actual;
+		}
+	}
+
+	private final int parallelism;
+
+	public StreamingReportComparer() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public StreamingReportComparer(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Compares the results in {@code expected} with the ones in
+	 * {@code actual}.
+	 *
+	 * @return the differences found, at most one for each file, or an empty
+	 *             list if the results are the same
+	 */
+	public List<Difference> compare(Path expected, Path actual) throws IOException {
+		Map<String, List<String>> expectedReport = readReport(expected.resolve(REPORT));
+		Map<String, List<String>> actualReport = readReport(actual.resolve(REPORT));
+
+		List<Difference> differences = new ArrayList<>();
+		for (String field : new String[] { "warnings", "files" }) {
+			List<String> exp = expectedReport.getOrDefault(field, Collections.emptyList());
+			List<String> act = actualReport.getOrDefault(field, Collections.emptyList());
+			Collections.sort(exp);
+			Collections.sort(act);
+			if (!exp.equals(act))
+				differences.add(new Difference(REPORT, "$." + field, exp.toString(), act.toString()));
+		}
+
+		List<Callable<Difference>> tasks = new ArrayList<>();
+		for (String file : expectedReport.getOrDefault("files", Collections.emptyList())) {
+			String name = unquote(file);
+			Path exp = expected.resolve(name), act = actual.resolve(name);
+			if (!Files.exists(act))
+				differences.add(new Difference(name, "$", "a file", "nothing"));
+			else
+				tasks.add(() -> compareFiles(name, exp, act));
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			for (Future<Difference> result : pool.invokeAll(tasks))
+				if (result.get() != null)
+					differences.add(result.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while comparing the results", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new IOException("Unable to compare the results", e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+		return differences;
+	}
+
+	/**
+	 * Yields {@code true} if the results in {@code expected} and
+	 * {@code actual} are the same according to {@link JsonReportComparer}.
+	 * The results are first compared by streaming them, and only loaded for
+	 * {@link JsonReportComparer} if some difference is found.
+	 */
+	public boolean sameResults(Path expected, Path actual) throws IOException {
+		if (compare(expected, actual).isEmpty())
+			return true;
+
+		JsonReport expectedReport, actualReport;
+		try (Reader reader = Files.newBufferedReader(expected.resolve(REPORT))) {
+			expectedReport = JsonReport.read(reader);
+		}
+		try (Reader reader = Files.newBufferedReader(actual.resolve(REPORT))) {
+			actualReport = JsonReport.read(reader);
+		}
+		return JsonReportComparer.compare(expectedReport, actualReport, expected.toFile(), actual.toFile());
+	}
+
+	private static String unquote(String string) {
+		return string.substring(1, string.length() - 1);
+	}
+
+	private static ByteBuffer map(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			// the mapping stays valid after the channel is closed
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	/**
+	 * Reads the top-level fields of a report, each as the list of its
+	 * elements in compact json form.
+	 */
+	private static Map<String, List<String>> readReport(Path report) throws IOException {
+		Tokenizer tokens = new Tokenizer(map(report));
+		Map<String, List<String>> fields = new HashMap<>();
+		if (tokens.next() != BinaryJson.OBJECT_START)
+			throw new IOException(report + " is not a json object");
+		for (byte token = tokens.next(); token != BinaryJson.OBJECT_END; token = tokens.next()) {
+			if (token != BinaryJson.STRING)
+				throw new IOException("Malformed json in " + report);
+			String field = tokens.text();
+			List<String> elements = new ArrayList<>();
+			token = tokens.next();
+			if (token == BinaryJson.ARRAY_START)
+				for (token = tokens.next(); token != BinaryJson.ARRAY_END; token = tokens.next())
+					elements.add(value(tokens, token, new StringBuilder()).toString());
+			else
+				elements.add(value(tokens, token, new StringBuilder()).toString());
+			fields.put(field, elements);
+		}
+		return fields;
+	}
+
+	private static StringBuilder value(Tokenizer tokens, byte token, StringBuilder result) throws IOException {
+		switch (token) {
+		case BinaryJson.OBJECT_START:
+			result.append('{');
+			for (token = tokens.next(); token != BinaryJson.OBJECT_END; token = tokens.next()) {
+				if (result.charAt(result.length() - 1) != '{')
+					result.append(',');
+				value(tokens, token, result).append(':');
+				value(tokens, tokens.next(), result);
+			}
+			return result.append('}');
+		case BinaryJson.ARRAY_START:
+			result.append('[');
+			for (token = tokens.next(); token != BinaryJson.ARRAY_END; token = tokens.next()) {
+				if (result.charAt(result.length() - 1) != '[')
+					result.append(',');
+				value(tokens, token, result);
+			}
+			return result.append(']');
+		case Tokenizer.END:
+		case BinaryJson.OBJECT_END:
+		case BinaryJson.ARRAY_END:
+			throw new IOException("Malformed json at offset " + tokens.start);
+		default:
+			return result.append(tokens.describe(token));
+		}
+	}
+
+	/**
+	 * An open object or array, while walking a file
+	 */
+	private static class Frame {
+
+		private final boolean object;
+
+		/**
+		 * The number of elements started so far, for arrays
+		 */
+		private int count;
+
+		private boolean expectingKey;
+
+		/**
+		 * The bounds of the last key read, for objects
+		 */
+		private int keyStart, keyEnd;
+
+		private Frame(boolean object) {
+			this.object = object;
+			this.expectingKey = object;
+		}
+	}
+
+	/**
+	 * Compares two json files, token by token.
+	 *
+	 * @param name the name of the file, used in the result
+	 *
+	 * @return the first difference found, or {@code null} if the files are
+	 *             the same
+	 */
+	public static Difference compareFiles(String name, Path expected, Path actual) throws IOException {
+		Tokenizer exp = new Tokenizer(map(expected));
+		Tokenizer act = new Tokenizer(map(actual));
+		Deque<Frame> frames = new ArrayDeque<>();
+		while (true) {
+			byte token = exp.next();
+			byte other = act.next();
+			if (token != other || ((token == BinaryJson.STRING || token == BinaryJson.NUMBER) && !exp.sameText(act)))
+				return new Difference(name, path(frames, exp.buffer), exp.describe(token), act.describe(other));
+			if (token == Tokenizer.END)
+				return null;
+
+			if (token == BinaryJson.OBJECT_END || token == BinaryJson.ARRAY_END) {
+				if (frames.isEmpty())
+					throw new IOException("Malformed json at offset " + exp.start + " of " + expected);
+				frames.pop();
+				continue;
+			}
+
+			Frame frame = frames.peek();
+			if (frame != null && frame.expectingKey) {
+				frame.keyStart = exp.start;
+				frame.keyEnd = exp.end;
+				frame.expectingKey = false;
+				continue;
+			}
+			if (frame != null && frame.object)
+				frame.expectingKey = true;
+			else if (frame != null)
+				frame.count++;
+
+			if (token == BinaryJson.OBJECT_START || token == BinaryJson.ARRAY_START)
+				frames.push(new Frame(token == BinaryJson.OBJECT_START));
+		}
+	}
+
+	private static String path(Deque<Frame> frames, ByteBuffer buffer) {
+		StringBuilder path = new StringBuilder("$");
+		boolean innermost = true;
+		// frames are iterated from the innermost one
+		List<String> steps = new ArrayList<>();
+		for (Frame frame : frames) {
+			// outer frames are always inside the value of their last element,
+			// while the innermost one might be about to start a new one
+			if (frame.object) {
+				if (!innermost || !frame.expectingKey)
+					steps.add("." + text(buffer, frame.keyStart, frame.keyEnd));
+			} else
+				steps.add("[" + (innermost ? frame.count : frame.count - 1) + "]");
+			innermost = false;
+		}
+		Collections.reverse(steps);
+		for (String step : steps)
+			path.append(step);
+		return path.toString();
+	}
+
+	private static String text(ByteBuffer buffer, int start, int end) {
+		byte[] bytes = new byte[end - start];
+		for (int i = 0; i < bytes.length; i++)
+			bytes[i] = buffer.get(start + i);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Reads the tokens of a json document, skipping separators. Tokens are
+	 * the same of {@link BinaryJson}, and their text is left in the buffer.
+	 */
+	private static class Tokenizer {
+
+		private static final byte END = 0;
+
+		private final ByteBuffer buffer;
+
+		/**
+		 * The bounds of the text of the last token, without quotes for
+		 * strings
+		 */
+		private int start, end;
+
+		private Tokenizer(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		private byte next() throws IOException {
+			while (buffer.hasRemaining()) {
+				start = buffer.position();
+				byte c = buffer.get();
+				switch (c) {
+				case ' ':
+				case '\n':
+				case '\r':
+				case '\t':
+				case ':':
+				case ',':
+					continue;
+				case '{':
+					return BinaryJson.OBJECT_START;
+				case '}':
+					return BinaryJson.OBJECT_END;
+				case '[':
+					return BinaryJson.ARRAY_START;
+				case ']':
+					return BinaryJson.ARRAY_END;
+				case '"':
+					start++;
+					while (true) {
+						if (!buffer.hasRemaining())
+							throw new IOException("Unterminated string at offset " + start);
+						byte s = buffer.get();
+						if (s == '"')
+							break;
+						if (s == '\\' && buffer.hasRemaining())
+							buffer.get();
+					}
+					end = buffer.position() - 1;
+					return BinaryJson.STRING;
+				default:
+					while (buffer.hasRemaining() && isTokenChar(buffer.get(buffer.position())))
+						buffer.get();
+					end = buffer.position();
+					return literal(c);
+				}
+			}
+			start = end = buffer.position();
+			return END;
+		}
+
+		private static boolean isTokenChar(byte c) {
+			return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || c == '-' || c == '+' || c == '.' || c == 'E';
+		}
+
+		private byte literal(byte first) throws IOException {
+			if (first == '-' || (first >= '0' && first <= '9'))
+				return BinaryJson.NUMBER;
+			String text = StreamingReportComparer.text(buffer, start, end);
+			switch (text) {
+			case "true":
+				return BinaryJson.TRUE;
+			case "false":
+				return BinaryJson.FALSE;
+			case "null":
+				return BinaryJson.NULL;
+			default:
+				throw new IOException("Unexpected token '" + text + "' at offset " + start);
+			}
+		}
+
+		private String text() {
+			return StreamingReportComparer.text(buffer, start, end);
+		}
+
+		private boolean sameText(Tokenizer other) {
+			if (end - start != other.end - other.start)
+				return false;
+			for (int i = 0; i < end - start; i++)
+				if (buffer.get(start + i) != other.buffer.get(other.start + i))
+					return false;
+			return true;
+		}
+
+		/**
+		 * Describes the last token read, for messages
+		 */
+		private String describe(byte token) {
+			switch (token) {
+			case END:
+				return "end of file";
+			case BinaryJson.OBJECT_START:
+				return "{";
+			case BinaryJson.OBJECT_END:
+				return "}";
+			case BinaryJson.ARRAY_START:
+				return "[";
+			case BinaryJson.ARRAY_END:
+				return "]";
+			case BinaryJson.STRING:
+				return '"' + text() + '"';
+			default:
+				return text();
+			}
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: StreamingReportComparer <expected dir> <actual dir>");
+			System.exit(2);
+		}
+		StreamingReportComparer comparer = new StreamingReportComparer();
+		Path expected = Paths.get(args[0]), actual = Paths.get(args[1]);
+		List<Difference> differences = comparer.compare(expected, actual);
+		for (Difference difference : differences)
+			System.out.println(difference);
+		System.exit(differences.isEmpty() || comparer.sameResults(expected, actual) ? 0 : 1);
+	}
+}
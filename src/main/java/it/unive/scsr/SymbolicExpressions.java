@@ -0,0 +1,45 @@
+package it.unive.scsr;
+
+import java.util.Collection;
+import java.util.HashSet;
+
+import it.unive.lisa.symbolic.SymbolicExpression;
+import it.unive.lisa.symbolic.value.BinaryExpression;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.TernaryExpression;
+import it.unive.lisa.symbolic.value.UnaryExpression;
+
+/**
+ * Utilities for inspecting symbolic expressions.
+ */
+final class SymbolicExpressions {
+
+	private SymbolicExpressions() {
+	}
+
+	/**
+	 * Yields the identifiers appearing in the given expression.
+	 */
+	static Collection<Identifier> identifiersIn(SymbolicExpression expression) {
+		Collection<Identifier> result = new HashSet<>();
+		collect(expression, result);
+		return result;
+	}
+
+	private static void collect(SymbolicExpression expression, Collection<Identifier> result) {
+		if (expression instanceof Identifier)
+			result.add((Identifier) expression);
+		else if (expression instanceof UnaryExpression)
+			collect(((UnaryExpression) expression).getExpression(), result);
+		else if (expression instanceof BinaryExpression) {
+			BinaryExpression binary = (BinaryExpression) expression;
+			collect(binary.getLeft(), result);
+			collect(binary.getRight(), result);
+		} else if (expression instanceof TernaryExpression) {
+			TernaryExpression ternary = (TernaryExpression) expression;
+			collect(ternary.getLeft(), result);
+			collect(ternary.getMiddle(), result);
+			collect(ternary.getRight(), result);
+		}
+	}
+}
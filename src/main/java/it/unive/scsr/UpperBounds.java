@@ -1,8 +1,10 @@
 package it.unive.scsr;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
 
@@ -25,20 +27,109 @@ import it.unive.lisa.symbolic.value.operator.binary.ComparisonLt;
 
 public class UpperBounds extends BaseNonRelationalValueDomain<UpperBounds> implements Iterable<Identifier> {
 
-	private static final UpperBounds TOP = new UpperBounds(true);
-	private static final UpperBounds BOTTOM = new UpperBounds(false);
+	/**
+	 * What is shared by all the elements computed from the same one, that is,
+	 * by all the elements of an analysis: the index assigning a slot to each
+	 * identifier that appears in a bound, and the top and bottom elements
+	 */
+	private static final class Context {
+
+		private final IdentifierIndex index = new IdentifierIndex();
+
+		private final UpperBounds top = new UpperBounds(this, null, true);
+
+		private final UpperBounds bottom = new UpperBounds(this, null, false);
+	}
+
+	private final Context context;
 
 	private final boolean isTop;
-	private final Set<Identifier> bounds;
 
+	/**
+	 * The bounds, as a trimmed bitset over the slots of the index of
+	 * {@link #context}
+	 */
+	private final long[] bounds;
+
+	/**
+	 * The hash of the identifiers in {@link #bounds}, computed lazily as it
+	 * does not depend on their slots
+	 */
+	private int hash;
+
+	/**
+	 * Builds the top or bottom element. Each call starts a new index for the
+	 * identifiers, shared by all the elements computed from this one, so this
+	 * is meant to be used once per analysis (e.g. for the prototype of an
+	 * environment).
+	 */
 	public UpperBounds(boolean isTop) {
-		this.bounds = null;
-		this.isTop = isTop;
+		this(new Context(), null, isTop);
 	}
 
+	/**
+	 * Builds an element holding the given bounds, with a new index for the
+	 * identifiers. Use {@link #withBounds(Set)} to build an element of an
+	 * existing analysis.
+	 */
 	public UpperBounds(Set<Identifier> bounds) {
+		this(new Context(), bounds);
+	}
+
+	private UpperBounds(Context context, Set<Identifier> bounds) {
+		this(context, encode(context, bounds), false);
+	}
+
+	private UpperBounds(Context context, long[] bounds, boolean isTop) {
+		this.context = context;
 		this.bounds = bounds;
-		this.isTop = false;
+		this.isTop = isTop;
+	}
+
+	private static long[] encode(Context context, Iterable<Identifier> bounds) {
+		long[] bits = Bits.EMPTY;
+		for (Identifier id : bounds)
+			bits = Bits.set(bits, context.index.indexOf(id));
+		return bits;
+	}
+
+	/**
+	 * Yields the element of the same analysis of this one holding the given
+	 * bounds.
+	 */
+	public UpperBounds withBounds(Set<Identifier> bounds) {
+		return new UpperBounds(context, bounds);
+	}
+
+	/**
+	 * Yields the index of the slots used by {@link #bits()}.
+	 */
+	IdentifierIndex index() {
+		return context.index;
+	}
+
+	/**
+	 * Yields the bounds as a bitset over the slots of {@link #index()}.
+	 */
+	long[] bits() {
+		return bounds == null ? Bits.EMPTY : bounds;
+	}
+
+	/**
+	 * Yields the bounds of {@code other} as a bitset over the slots of
+	 * {@link #index()}, encoding them again only if the two elements belong
+	 * to different analyses.
+	 */
+	private long[] bitsOf(UpperBounds other) {
+		return other.context == context ? other.bits() : encode(context, other);
+	}
+
+	/**
+	 * Yields the element of the same analysis of this one holding the bounds
+	 * of the given bitset over the slots of {@link #index()}.
+	 */
+	UpperBounds withBits(long[] bits) {
+		return new UpperBounds(context, Bits.trim(bits), false);
 	}
 
 	@Override
@@ -47,41 +138,50 @@ public class UpperBounds extends BaseNonRelationalValueDomain<UpperBounds> imple
 			return new StringRepresentation("{}");
 		if (isBottom())
 			return Lattice.bottomRepresentation();
-		return new SetRepresentation(bounds, StringRepresentation::new);
+		Set<Identifier> decoded = new HashSet<>();
+		for (Identifier id : this)
+			decoded.add(id);
+		return new SetRepresentation(decoded, StringRepresentation::new);
 	}
 
 	@Override
 	public UpperBounds top() {
-		return TOP;
+		return context.top;
+	}
+
+	@Override
+	public boolean isTop() {
+		return isTop && bounds == null;
 	}
 
 	@Override
 	public UpperBounds bottom() {
-		return BOTTOM;
+		return context.bottom;
+	}
+
+	@Override
+	public boolean isBottom() {
+		return !isTop && bounds == null;
 	}
 
 	@Override
 	public UpperBounds lubAux(UpperBounds other) throws SemanticException {
-		Set<Identifier> lub = new HashSet<>(bounds);
-		lub.retainAll(other.bounds);
-		return new UpperBounds(lub);
+		return withBits(Bits.and(bits(), bitsOf(other)));
 	}
 	
 	@Override
 	public UpperBounds glbAux(UpperBounds other) throws SemanticException {
-		Set<Identifier> lub = new HashSet<>(bounds);
-		lub.addAll(other.bounds);
-		return new UpperBounds(lub);
+		return withBits(Bits.or(bits(), bitsOf(other)));
 	}
 
 	@Override
 	public boolean lessOrEqualAux(UpperBounds other) throws SemanticException {
-		return bounds.containsAll(other.bounds);
+		return Bits.containsAll(bits(), bitsOf(other));
 	}
 
 	@Override
 	public UpperBounds wideningAux(UpperBounds other) throws SemanticException {
-		return other.bounds.containsAll(bounds) ? other : TOP;
+		return Bits.containsAll(bitsOf(other), bits()) ? other : top();
 	}
 
 	@Override
@@ -93,12 +193,33 @@ public class UpperBounds extends BaseNonRelationalValueDomain<UpperBounds> imple
 		if (getClass() != obj.getClass())
 			return false;
 		UpperBounds other = (UpperBounds) obj;
-		return Objects.equals(bounds, other.bounds) && isTop == other.isTop;
+		if (isTop != other.isTop || (bounds == null) != (other.bounds == null))
+			return false;
+		if (bounds == null)
+			return true;
+		if (other.context == context)
+			return Arrays.equals(bounds, other.bounds);
+		// compared by identifiers, without adding the ones of other to the
+		// index of this element
+		if (Bits.cardinality(bounds) != Bits.cardinality(other.bounds))
+			return false;
+		for (Identifier id : other)
+			if (!contains(id))
+				return false;
+		return true;
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(bounds, isTop);
+		int result = hash;
+		if (result == 0) {
+			// the same for equal elements of different analyses
+			for (Identifier id : this)
+				result += id.hashCode();
+			result = Objects.hash(result, isTop, bounds == null);
+			hash = result;
+		}
+		return result;
 	}
 
 	@Override
@@ -126,7 +247,7 @@ public class UpperBounds extends BaseNonRelationalValueDomain<UpperBounds> imple
 		if (operator instanceof ComparisonLt) {
 			// x < y
 			UpperBounds set = environment.getState(x).glb(environment.getState(y))
-					.glb(new UpperBounds(Collections.singleton(y)));
+					.glb(withBounds(Collections.singleton(y)));
 			return environment.putState(x, set);
 		}
 
@@ -139,7 +260,7 @@ public class UpperBounds extends BaseNonRelationalValueDomain<UpperBounds> imple
 		if (operator instanceof ComparisonGt) {
 			// x > y ---> y < x
 			UpperBounds set = environment.getState(x).glb(environment.getState(y))
-					.glb(new UpperBounds(Collections.singleton(x)));
+					.glb(withBounds(Collections.singleton(x)));
 			return environment.putState(y, set);
 		}
 
@@ -156,18 +277,59 @@ public class UpperBounds extends BaseNonRelationalValueDomain<UpperBounds> imple
 	public Iterator<Identifier> iterator() {
 		if (bounds == null)
 			return Collections.emptyIterator();
-		return bounds.iterator();
+		return new Iterator<Identifier>() {
+
+			private int next = Bits.nextSetBit(bounds, 0);
+
+			@Override
+			public boolean hasNext() {
+				return next >= 0;
+			}
+
+			@Override
+			public Identifier next() {
+				if (next < 0)
+					throw new NoSuchElementException();
+				Identifier id = context.index.get(next);
+				next = Bits.nextSetBit(bounds, next + 1);
+				return id;
+			}
+		};
 	}
 	
 	public boolean contains(Identifier id) {
-		return bounds != null && bounds.contains(id);
+		if (bounds == null)
+			return false;
+		int slot = context.index.find(id);
+		return slot >= 0 && Bits.get(bounds, slot);
 	}
 	
+	/**
+	 * Yields the bounds of this element that are not bounds of {@code other}.
+	 */
+	public UpperBounds minus(UpperBounds other) {
+		return withBits(Bits.andNot(bits(), bitsOf(other)));
+	}
+
+	/**
+	 * Yields {@code true} if this element holds all the bounds of
+	 * {@code other}.
+	 */
+	public boolean containsAll(UpperBounds other) {
+		return Bits.containsAll(bits(), bitsOf(other));
+	}
+
+	/**
+	 * Yields {@code true} if this element holds no bound.
+	 */
+	public boolean isEmpty() {
+		return bounds == null || bounds.length == 0;
+	}
+
 	public UpperBounds add(Identifier id) {
-		Set<Identifier> res = new HashSet<>();
+		long[] res = Bits.EMPTY;
 		if (!isTop() && !isBottom())
-			res.addAll(bounds);
-		res.add(id);
-		return new UpperBounds(res);
+			res = bits();
+		return withBits(Bits.set(res, context.index.indexOf(id)));
 	}
 }
@@ -0,0 +1,193 @@
+package it.unive.scsr;
+
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.Parameter;
+import it.unive.lisa.program.cfg.edge.Edge;
+import it.unive.lisa.program.cfg.edge.FalseEdge;
+import it.unive.lisa.program.cfg.edge.TrueEdge;
+import it.unive.lisa.program.cfg.statement.Assignment;
+import it.unive.lisa.program.cfg.statement.Expression;
+import it.unive.lisa.program.cfg.statement.NaryExpression;
+import it.unive.lisa.program.cfg.statement.Return;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.program.cfg.statement.VariableRef;
+import it.unive.lisa.program.cfg.statement.call.Call;
+import it.unive.lisa.program.cfg.statement.literal.Literal;
+import it.unive.lisa.symbolic.value.BinaryExpression;
+import it.unive.lisa.symbolic.value.Constant;
+import it.unive.lisa.symbolic.value.PushAny;
+import it.unive.lisa.symbolic.value.UnaryExpression;
+import it.unive.lisa.symbolic.value.ValueExpression;
+import it.unive.lisa.symbolic.value.Variable;
+import it.unive.lisa.symbolic.value.operator.binary.BinaryOperator;
+import it.unive.lisa.symbolic.value.operator.binary.ComparisonEq;
+import it.unive.lisa.symbolic.value.operator.binary.ComparisonGe;
+import it.unive.lisa.symbolic.value.operator.binary.ComparisonGt;
+import it.unive.lisa.symbolic.value.operator.binary.ComparisonLe;
+import it.unive.lisa.symbolic.value.operator.binary.ComparisonLt;
+import it.unive.lisa.symbolic.value.operator.binary.ComparisonNe;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingAdd;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingDiv;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingMul;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingSub;
+import it.unive.lisa.symbolic.value.operator.unary.LogicalNegation;
+import it.unive.lisa.symbolic.value.operator.unary.NumericNegation;
+import it.unive.lisa.type.common.BoolType;
+
+/**
+ * The semantics of the nodes of an IMP {@link CFG} over a {@link ValueDomain},
+ * to be used with {@link IncrementalFixpoint}. Nodes are translated to value
+ * expressions directly from their syntax: assignments to variables become
+ * {@link ValueDomain#assign}, other expressions are evaluated through
+ * {@link ValueDomain#smallStepSemantics}, and the arithmetic and comparison
+ * operators of IMP are mapped to the corresponding symbolic operators. The
+ * rest follows what LiSA does with its default (worst case) interprocedural
+ * analysis: formals are assigned unknown values when entering the cfg,
+ * returned values are assigned to the meta variable of the return, the
+ * condition of a conditional edge is assumed to hold (or not to hold, on
+ * false edges) and nodes containing calls yield the top state. Any other
+ * construct evaluates to an unknown value.<br>
+ * <br>
+ * Any value domain can be used, such as a {@code ValueEnvironment} of
+ * {@link Signs} or of {@link ExtSignDomainSolution}, {@link Pentagons}, and
+ * the dataflow domains of {@link ReachingDefinitions} and of
+ * {@link AvailExprsSolution}: the program points passed to them are the nodes
+ * of the CFG, as in LiSA.
+ *
+ * @param <V> the type of value domain
+ */
+public class ValueDomainTransfer<V extends ValueDomain<V>> implements IncrementalFixpoint.Transfer<V> {
+
+	private final V prototype;
+
+	public ValueDomainTransfer(V prototype) {
+		this.prototype = prototype;
+	}
+
+	@Override
+	public V entry(CFG cfg) throws SemanticException {
+		V entry = prototype.top();
+		for (Parameter formal : cfg.getDescriptor().getFormals()) {
+			Variable id = new Variable(formal.getStaticType(), formal.getName(), formal.getAnnotations(),
+					formal.getLocation());
+			entry = entry.assign(id, new PushAny(formal.getStaticType(), formal.getLocation()),
+					cfg.getGenericProgramPoint());
+		}
+		return entry;
+	}
+
+	@Override
+	public V apply(Statement node, V in) throws SemanticException {
+		if (in.isBottom())
+			return in;
+		if (containsCall(node))
+			// the callee can do anything
+			return in.top();
+		if (node instanceof Return) {
+			Return ret = (Return) node;
+			return in.assign(ret.getMetaVariable(), translate(ret.getSubExpression()), node);
+		}
+		if (node instanceof Assignment && ((Assignment) node).getLeft() instanceof VariableRef) {
+			Assignment assignment = (Assignment) node;
+			Variable id = ((VariableRef) assignment.getLeft()).getVariable();
+			return in.assign(id, translate(assignment.getRight()), node);
+		}
+		if (node instanceof Expression)
+			return in.smallStepSemantics(translate((Expression) node), node);
+		return in;
+	}
+
+	@Override
+	public V traverse(Edge edge, V post) throws SemanticException {
+		if (post.isBottom() || !(edge instanceof TrueEdge || edge instanceof FalseEdge))
+			return post;
+		Statement source = edge.getSource();
+		ValueExpression condition = translate((Expression) source);
+		if (edge instanceof FalseEdge)
+			condition = new UnaryExpression(BoolType.INSTANCE, condition, LogicalNegation.INSTANCE,
+					source.getLocation());
+		return post.assume(condition, source);
+	}
+
+	private static boolean containsCall(Statement node) {
+		if (node instanceof Call)
+			return true;
+		if (node instanceof Return)
+			return containsCall(((Return) node).getSubExpression());
+		if (node instanceof NaryExpression)
+			for (Expression sub : ((NaryExpression) node).getSubExpressions())
+				if (containsCall(sub))
+					return true;
+		return false;
+	}
+
+	/**
+	 * Yields the value expression that {@code expression} evaluates to, that
+	 * is {@link PushAny} for the constructs that are not translated.
+	 */
+	static ValueExpression translate(Expression expression) {
+		if (expression instanceof VariableRef)
+			return ((VariableRef) expression).getVariable();
+		if (expression instanceof Literal)
+			return new Constant(expression.getStaticType(), ((Literal<?>) expression).getValue(),
+					expression.getLocation());
+		if (!(expression instanceof NaryExpression))
+			return new PushAny(expression.getStaticType(), expression.getLocation());
+
+		NaryExpression nary = (NaryExpression) expression;
+		Expression[] subs = nary.getSubExpressions();
+		if (subs.length == 1 && "-".equals(nary.getConstructName()))
+			return new UnaryExpression(expression.getStaticType(), translate(subs[0]), NumericNegation.INSTANCE,
+					expression.getLocation());
+		if (subs.length != 2)
+			return new PushAny(expression.getStaticType(), expression.getLocation());
+
+		BinaryOperator operator;
+		boolean comparison = false;
+		switch (nary.getConstructName()) {
+		case "+":
+			operator = NumericNonOverflowingAdd.INSTANCE;
+			break;
+		case "-":
+			operator = NumericNonOverflowingSub.INSTANCE;
+			break;
+		case "*":
+			operator = NumericNonOverflowingMul.INSTANCE;
+			break;
+		case "/":
+			operator = NumericNonOverflowingDiv.INSTANCE;
+			break;
+		case "<":
+			operator = ComparisonLt.INSTANCE;
+			comparison = true;
+			break;
+		case "<=":
+			operator = ComparisonLe.INSTANCE;
+			comparison = true;
+			break;
+		case ">":
+			operator = ComparisonGt.INSTANCE;
+			comparison = true;
+			break;
+		case ">=":
+			operator = ComparisonGe.INSTANCE;
+			comparison = true;
+			break;
+		case "==":
+			operator = ComparisonEq.INSTANCE;
+			comparison = true;
+			break;
+		case "!=":
+			operator = ComparisonNe.INSTANCE;
+			comparison = true;
+			break;
+		default:
+			return new PushAny(expression.getStaticType(), expression.getLocation());
+		}
+
+		return new BinaryExpression(comparison ? BoolType.INSTANCE : expression.getStaticType(),
+				translate(subs[0]), translate(subs[1]), operator, expression.getLocation());
+	}
+}
@@ -0,0 +1,147 @@
+package it.unive.scsr;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.statement.Assignment;
+import it.unive.lisa.program.cfg.statement.Expression;
+import it.unive.lisa.program.cfg.statement.NaryExpression;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.program.cfg.statement.VariableRef;
+import it.unive.lisa.program.cfg.statement.literal.Literal;
+import it.unive.lisa.symbolic.value.Identifier;
+
+/**
+ * A partition of the variables of a {@link CFG} into packs, used by
+ * {@link Pentagons} to track upper bounds only between variables that can
+ * be related: two variables are in the same pack if they appear together in
+ * a comparison (e.g. {@code x < y + z}), or if one is assigned the other
+ * minus a constant (e.g. {@code x = y - 1}), transitively. Variables are
+ * identified by their name, and the ones that never appear in such
+ * statements are alone in their pack. Packs are computed with a union-find
+ * when the CFG is scanned, and then frozen into a read-only map from
+ * variables to the id of their pack, so that checks need no locking.
+ */
+public class VariablePacks {
+
+	private static final Map<CFG, VariablePacks> INSTANCES = Collections.synchronizedMap(new WeakHashMap<>());
+
+	/**
+	 * The parent of each variable in the union-find forest, roots map to
+	 * themselves; only used while scanning the CFG
+	 */
+	private final Map<String, String> parents = new HashMap<>();
+
+	/**
+	 * The id of the pack of each variable that appears in a pack with others
+	 */
+	private final Map<String, Integer> packs;
+
+	/**
+	 * Yields the (shared) packs of the given CFG, computed the first time
+	 * they are requested.
+	 */
+	public static VariablePacks of(CFG cfg) {
+		return INSTANCES.computeIfAbsent(cfg, VariablePacks::new);
+	}
+
+	public VariablePacks(CFG cfg) {
+		for (Statement node : cfg.getNodes())
+			collect(node);
+
+		Map<String, Integer> ids = new HashMap<>(), packs = new HashMap<>();
+		for (String name : parents.keySet())
+			packs.put(name, ids.computeIfAbsent(find(name), root -> ids.size()));
+		this.packs = Collections.unmodifiableMap(packs);
+		parents.clear();
+	}
+
+	private void collect(Statement st) {
+		if (!(st instanceof NaryExpression))
+			return;
+
+		NaryExpression expression = (NaryExpression) st;
+		if (isComparison(expression.getConstructName())) {
+			String first = null;
+			for (Expression sub : expression.getSubExpressions())
+				first = unionVariables(sub, first);
+		} else if (expression instanceof Assignment) {
+			Assignment assignment = (Assignment) expression;
+			if (assignment.getLeft() instanceof VariableRef && assignment.getRight() instanceof NaryExpression) {
+				NaryExpression right = (NaryExpression) assignment.getRight();
+				Expression[] operands = right.getSubExpressions();
+				if ("-".equals(right.getConstructName()) && operands.length == 2
+						&& operands[0] instanceof VariableRef && operands[1] instanceof Literal)
+					union(((VariableRef) assignment.getLeft()).getName(), ((VariableRef) operands[0]).getName());
+			}
+		}
+
+		for (Expression sub : expression.getSubExpressions())
+			collect(sub);
+	}
+
+	private static boolean isComparison(String construct) {
+		switch (construct) {
+		case "<":
+		case "<=":
+		case ">":
+		case ">=":
+		case "==":
+		case "!=":
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Puts all the variables of {@code expression} in the pack of
+	 * {@code first}, yielding the variable that represents them (that is,
+	 * {@code first} if it is not {@code null}).
+	 */
+	private String unionVariables(Expression expression, String first) {
+		if (expression instanceof VariableRef) {
+			String name = ((VariableRef) expression).getName();
+			if (first == null)
+				return name;
+			union(first, name);
+		} else if (expression instanceof NaryExpression && !(expression instanceof Assignment))
+			for (Expression sub : ((NaryExpression) expression).getSubExpressions())
+				first = unionVariables(sub, first);
+		return first;
+	}
+
+	private String find(String name) {
+		String root = name;
+		for (String parent = parents.get(root); parent != null && !parent.equals(root); parent = parents.get(root))
+			root = parent;
+		// path compression
+		while (!name.equals(root)) {
+			String parent = parents.put(name, root);
+			name = parent;
+		}
+		return root;
+	}
+
+	private void union(String x, String y) {
+		parents.putIfAbsent(x, x);
+		parents.putIfAbsent(y, y);
+		String rootX = find(x), rootY = find(y);
+		if (!rootX.equals(rootY))
+			parents.put(rootX, rootY);
+	}
+
+	/**
+	 * Yields {@code true} if the given identifiers are in the same pack.
+	 */
+	public boolean together(Identifier x, Identifier y) {
+		String nameX = x.getName(), nameY = y.getName();
+		if (nameX.equals(nameY))
+			return true;
+		Integer packX = packs.get(nameX);
+		return packX != null && packX.equals(packs.get(nameY));
+	}
+}
@@ -0,0 +1,121 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.program.cfg.CFG;
+
+public class AnalysisCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static final String PROGRAM = "class cached {\n"
+			+ "	f(a) {\n"
+			+ "		def x = a + 1;\n"
+			+ "		return x;\n"
+			+ "	}\n"
+			+ "}\n";
+
+	private static CFG cfg(String text) throws ParsingException {
+		Program program = IMPFrontend.processText(text);
+		return program.getAllCFGs().iterator().next();
+	}
+
+	@Test
+	public void testKeys() throws ParsingException {
+		String key = AnalysisCache.key(cfg(PROGRAM), "ae");
+		assertEquals(key, AnalysisCache.key(cfg(PROGRAM), "ae"));
+		assertNotEquals(key, AnalysisCache.key(cfg(PROGRAM), "ext-sign"));
+		assertNotEquals(key, AnalysisCache.key(cfg(PROGRAM.replace("a + 1", "a + 2")), "ae"));
+	}
+
+	@Test
+	public void testConfiguration() throws IOException {
+		String configuration = AnalysisCache.configuration("ae", AvailExprsSolution.class);
+		assertEquals(configuration, AnalysisCache.configuration("ae", AvailExprsSolution.class));
+		assertNotEquals(configuration, AnalysisCache.configuration("ae", BitVectorAvailableExpressions.class));
+	}
+
+	@Test
+	public void testStoreAndRestore() throws IOException {
+		Path source = folder.newFolder("source").toPath();
+		byte[] json = "{\n  \"name\" : \"f\",\n  \"nodes\" : [ 1, 2 ]\n}".getBytes(StandardCharsets.UTF_8);
+		byte[] raw = "digraph { }".getBytes(StandardCharsets.UTF_8);
+		Files.write(source.resolve("report.json"), json);
+		Files.createDirectories(source.resolve("graphs"));
+		Files.write(source.resolve("graphs").resolve("f.dot"), raw);
+
+		AnalysisCache cache = new AnalysisCache(folder.newFolder("cache").toPath());
+		Path target = folder.newFolder("target").toPath();
+		assertFalse(cache.restore("key", target));
+		cache.store("key", source);
+		assertTrue(cache.restore("key", target));
+
+		assertEquals("{\"name\":\"f\",\"nodes\":[1,2]}",
+				new String(Files.readAllBytes(target.resolve("report.json")), StandardCharsets.UTF_8));
+		assertArrayEquals(raw, Files.readAllBytes(target.resolve("graphs").resolve("f.dot")));
+	}
+
+	@Test
+	public void testCorruptedEntry() throws IOException {
+		Path dir = folder.newFolder("cache").toPath();
+		Files.write(dir.resolve("key.bin"), new byte[] { 'S', 'A', 'C', '1', 5 });
+		AnalysisCache cache = new AnalysisCache(dir);
+		Path target = folder.newFolder("target").toPath();
+		assertFalse(cache.restore("key", target));
+		assertFalse(Files.exists(dir.resolve("key.bin")));
+		assertEquals(0, target.toFile().list().length);
+	}
+
+	@Test
+	public void testEviction() throws IOException {
+		Path source = folder.newFolder("source").toPath();
+		Files.write(source.resolve("data"), new byte[1000]);
+		Path dir = folder.newFolder("cache").toPath();
+		AnalysisCache cache = new AnalysisCache(dir, 2500);
+
+		cache.store("first", source);
+		cache.store("second", source);
+		// the first entry has been used more recently than the second
+		Files.setLastModifiedTime(dir.resolve("second.bin"), FileTime.fromMillis(0));
+		assertTrue(cache.restore("first", folder.newFolder("target").toPath()));
+		cache.store("third", source);
+
+		assertTrue(cache.size() <= 2500);
+		assertTrue(Files.exists(dir.resolve("first.bin")));
+		assertFalse(Files.exists(dir.resolve("second.bin")));
+		assertTrue(Files.exists(dir.resolve("third.bin")));
+	}
+
+	@Test
+	public void testEvictionKeepsStoredEntry() throws IOException {
+		Path source = folder.newFolder("source").toPath();
+		Files.write(source.resolve("data"), new byte[1000]);
+		Path dir = folder.newFolder("cache").toPath();
+		AnalysisCache cache = new AnalysisCache(dir, 500);
+
+		// an entry larger than the whole cache evicts all the others, but
+		// not itself
+		cache.store("first", source);
+		cache.store("second", source);
+		assertFalse(Files.exists(dir.resolve("first.bin")));
+		assertTrue(cache.restore("second", folder.newFolder("target").toPath()));
+	}
+}
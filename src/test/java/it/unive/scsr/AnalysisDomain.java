@@ -0,0 +1,152 @@
+package it.unive.scsr;
+
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.dataflow.DefiniteForwardDataflowDomain;
+import it.unive.lisa.analysis.dataflow.PossibleForwardDataflowDomain;
+import it.unive.lisa.analysis.heap.MonolithicHeap;
+import it.unive.lisa.analysis.nonrelational.value.TypeEnvironment;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.analysis.types.InferredTypes;
+
+/**
+ * The abstract states that the analyses of this project can be configured
+ * with, so that benchmarks and evaluation drivers can refer to them by name.
+ */
+public enum AnalysisDomain {
+
+	SIGNS {
+		@Override
+		public SimpleAbstractState<?, ?, ?> abstractState() {
+			return new SimpleAbstractState<>(
+					new MonolithicHeap(),
+					new ValueEnvironment<>(new Signs()),
+					new TypeEnvironment<>(new InferredTypes()));
+		}
+	},
+
+	EXT_SIGN {
+		@Override
+		public SimpleAbstractState<?, ?, ?> abstractState() {
+			return new SimpleAbstractState<>(
+					new MonolithicHeap(),
+					new ValueEnvironment<>(new ExtSignDomainSolution()),
+					new TypeEnvironment<>(new InferredTypes()));
+		}
+	},
+
+	BYTE_SIGNS {
+		@Override
+		public SimpleAbstractState<?, ?, ?> abstractState() {
+			return new SimpleAbstractState<>(
+					new MonolithicHeap(),
+					new SignEnvironment<>(Signs.CODEC),
+					new TypeEnvironment<>(new InferredTypes()));
+		}
+	},
+
+	BYTE_EXT_SIGN {
+		@Override
+		public SimpleAbstractState<?, ?, ?> abstractState() {
+			return new SimpleAbstractState<>(
+					new MonolithicHeap(),
+					new SignEnvironment<>(ExtSignDomainSolution.CODEC),
+					new TypeEnvironment<>(new InferredTypes()));
+		}
+	},
+
+	PENTAGONS {
+		@Override
+		public SimpleAbstractState<?, ?, ?> abstractState() {
+			return new SimpleAbstractState<>(
+					new MonolithicHeap(),
+					new Pentagons(),
+					new TypeEnvironment<>(new InferredTypes()));
+		}
+	},
+
+	ORIGINAL_PENTAGONS {
+		@Override
+		public SimpleAbstractState<?, ?, ?> abstractState() {
+			return new SimpleAbstractState<>(
+					new MonolithicHeap(),
+					new OriginalPentagons(),
+					new TypeEnvironment<>(new InferredTypes()));
+		}
+	},
+
+	CLOSED_PENTAGONS {
+		@Override
+		public SimpleAbstractState<?, ?, ?> abstractState() {
+			return new SimpleAbstractState<>(
+					new MonolithicHeap(),
+					new Pentagons(true),
+					new TypeEnvironment<>(new InferredTypes()));
+		}
+	},
+
+	PACKED_PENTAGONS {
+		@Override
+		public SimpleAbstractState<?, ?, ?> abstractState() {
+			return new SimpleAbstractState<>(
+					new MonolithicHeap(),
+					new Pentagons(false, true),
+					new TypeEnvironment<>(new InferredTypes()));
+		}
+	},
+
+	PERSISTENT_PENTAGONS {
+		@Override
+		public SimpleAbstractState<?, ?, ?> abstractState() {
+			return new SimpleAbstractState<>(
+					new MonolithicHeap(),
+					new PersistentPentagons(),
+					new TypeEnvironment<>(new InferredTypes()));
+		}
+	},
+
+	REACHING_DEFINITIONS {
+		@Override
+		public SimpleAbstractState<?, ?, ?> abstractState() {
+			return new SimpleAbstractState<>(
+					new MonolithicHeap(),
+					new PossibleForwardDataflowDomain<>(new ReachingDefinitions()),
+					new TypeEnvironment<>(new InferredTypes()));
+		}
+	},
+
+	BITVECTOR_REACHING_DEFINITIONS {
+		@Override
+		public SimpleAbstractState<?, ?, ?> abstractState() {
+			return new SimpleAbstractState<>(
+					new MonolithicHeap(),
+					new BitVectorReachingDefinitions(),
+					new TypeEnvironment<>(new InferredTypes()));
+		}
+	},
+
+	AVAILABLE_EXPRESSIONS {
+		@Override
+		public SimpleAbstractState<?, ?, ?> abstractState() {
+			return new SimpleAbstractState<>(
+					new MonolithicHeap(),
+					new DefiniteForwardDataflowDomain<>(new AvailExprsSolution()),
+					new TypeEnvironment<>(new InferredTypes()));
+		}
+	},
+
+	BITVECTOR_AVAILABLE_EXPRESSIONS {
+		@Override
+		public SimpleAbstractState<?, ?, ?> abstractState() {
+			return new SimpleAbstractState<>(
+					new MonolithicHeap(),
+					new BitVectorAvailableExpressions(),
+					new TypeEnvironment<>(new InferredTypes()));
+		}
+	};
+
+	/**
+	 * Yields a fresh abstract state to be used as
+	 * {@code LiSAConfiguration.abstractState}.
+	 */
+	public abstract SimpleAbstractState<?, ?, ?> abstractState();
+}
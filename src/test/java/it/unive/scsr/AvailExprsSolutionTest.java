@@ -0,0 +1,60 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import it.unive.lisa.analysis.ScopeToken;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.dataflow.DefiniteForwardDataflowDomain;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.SyntheticLocation;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.symbolic.value.BinaryExpression;
+import it.unive.lisa.symbolic.value.Constant;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.Variable;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingAdd;
+import it.unive.lisa.type.common.Int32Type;
+
+public class AvailExprsSolutionTest {
+
+	private static final String PROGRAM = "class scopes {\n"
+			+ "	main() {\n"
+			+ "		def x = 0;\n"
+			+ "		def y = 0;\n"
+			+ "		return x;\n"
+			+ "	}\n"
+			+ "}\n";
+
+	private static Variable variable(String name) {
+		return new Variable(Int32Type.INSTANCE, name, SyntheticLocation.INSTANCE);
+	}
+
+	@Test
+	public void testScopedElementsAreKilled() throws ParsingException, SemanticException {
+		CFG cfg = IMPFrontend.processText(PROGRAM).getAllCFGs().iterator().next();
+		Statement pp = cfg.getEntrypoints().iterator().next();
+		Variable x = variable("x"), y = variable("y");
+		BinaryExpression sum = new BinaryExpression(Int32Type.INSTANCE, x, y, NumericNonOverflowingAdd.INSTANCE,
+				SyntheticLocation.INSTANCE);
+
+		DefiniteForwardDataflowDomain<AvailExprsSolution> state = new DefiniteForwardDataflowDomain<>(
+				new AvailExprsSolution()).smallStepSemantics(sum, pp);
+		assertEquals(1, state.getDataflowElements().size());
+
+		// the scoped element has never been generated by gen, so the index
+		// of the cfg does not know it
+		ScopeToken token = new ScopeToken(pp);
+		DefiniteForwardDataflowDomain<AvailExprsSolution> scoped = state.pushScope(token);
+		assertEquals(1, scoped.getDataflowElements().size());
+
+		Identifier scopedX = (Identifier) x.pushScope(token);
+		DefiniteForwardDataflowDomain<AvailExprsSolution> killed = scoped.assign(scopedX,
+				new Constant(Int32Type.INSTANCE, 1, SyntheticLocation.INSTANCE), pp);
+		assertTrue(killed.getDataflowElements().isEmpty());
+	}
+}
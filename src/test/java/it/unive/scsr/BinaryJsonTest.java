@@ -0,0 +1,99 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+public class BinaryJsonTest {
+
+	/**
+	 * Removes the whitespace outside of strings
+	 */
+	private static String compact(String json) {
+		StringBuilder result = new StringBuilder();
+		boolean string = false;
+		for (int i = 0; i < json.length(); i++) {
+			char c = json.charAt(i);
+			if (string) {
+				result.append(c);
+				if (c == '\\')
+					result.append(json.charAt(++i));
+				else if (c == '"')
+					string = false;
+			} else if (!Character.isWhitespace(c)) {
+				result.append(c);
+				string = c == '"';
+			}
+		}
+		return result.toString();
+	}
+
+	private static String roundTrip(String json) throws IOException {
+		byte[] encoded = BinaryJson.encode(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8)));
+		ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+		BinaryJson.decode(ByteBuffer.wrap(encoded), decoded);
+		return new String(decoded.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		String json = "{ \"a\" : [ 1, -2.5e3, true, false, null ], \"b\" : { }, \"c\" : [ ],"
+				+ " \"d\" : \"x \\\"y\\\" \\\\ z\", \"e\" : [ { \"a\" : \"\u00e8\" }, [ [ ] ] ] }";
+		assertEquals(compact(json), roundTrip(json));
+		assertEquals("[]", roundTrip("[]"));
+		assertEquals("\"a\"", roundTrip("  \"a\"  "));
+	}
+
+	@Test
+	public void testExpectedResults() throws IOException {
+		List<Path> files;
+		try (Stream<Path> walk = Files.walk(Paths.get("expected"))) {
+			files = walk.filter(p -> p.toString().endsWith(".json")).collect(Collectors.toList());
+		}
+		for (Path file : files) {
+			byte[] json = Files.readAllBytes(file);
+			byte[] encoded = BinaryJson.encode(ByteBuffer.wrap(json));
+			assertTrue(file.toString(), encoded.length < json.length);
+			String text = new String(json, StandardCharsets.UTF_8);
+			assertEquals(file.toString(), compact(text), roundTrip(text));
+		}
+	}
+
+	@Test
+	public void testStreamedWrites() throws IOException {
+		String json = "{ \"a\" : [ 10, 10, \"10\", \"10\" ], \"b\" : null }";
+		ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+		// tokens split across writes
+		try (Writer writer = new BinaryJsonWriter(Channels.newChannel(streamed))) {
+			for (char c : json.toCharArray())
+				writer.write(c);
+		}
+		assertArrayEquals(BinaryJson.encode(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8))),
+				streamed.toByteArray());
+	}
+
+	@Test(expected = IOException.class)
+	public void testMalformedJson() throws IOException {
+		BinaryJson.encode(ByteBuffer.wrap("{ \"a\" : tru }".getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test(expected = IOException.class)
+	public void testUnbalancedJson() throws IOException {
+		roundTrip("{ \"a\" : [ 1 }");
+	}
+}
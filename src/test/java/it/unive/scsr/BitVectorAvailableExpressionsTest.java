@@ -0,0 +1,58 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+
+import org.junit.Test;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAConfiguration;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.outputs.compare.JsonReportComparer;
+import it.unive.lisa.outputs.json.JsonReport;
+
+public class BitVectorAvailableExpressionsTest {
+
+	private static File analyze(String program, AnalysisDomain domain, String workdir)
+			throws ParsingException, AnalysisException {
+		LiSAConfiguration conf = new LiSAConfiguration();
+		conf.jsonOutput = true;
+		conf.serializeResults = true;
+		conf.workdir = workdir;
+		conf.abstractState = domain.abstractState();
+		new LiSA(conf).run(IMPFrontend.processFile(program));
+		return new File(workdir);
+	}
+
+	private static void assertSameResults(File expected, File actual) throws IOException {
+		try (Reader exp = new FileReader(new File(expected, "report.json"));
+				Reader act = new FileReader(new File(actual, "report.json"))) {
+			assertTrue("Results are different", JsonReportComparer.compare(
+					JsonReport.read(exp), JsonReport.read(act), expected, actual));
+		}
+	}
+
+	@Test
+	public void testSameResultsAsExpected() throws ParsingException, AnalysisException, IOException {
+		// the results of the task evaluation
+		File actual = analyze("inputs/ae-eval.imp", AnalysisDomain.BITVECTOR_AVAILABLE_EXPRESSIONS,
+				"outputs/ae-bits/ae");
+		assertSameResults(new File("expected/available-expressions"), actual);
+	}
+
+	@Test
+	public void testSameResultsOnGeneratedProgram() throws ParsingException, AnalysisException, IOException {
+		ImpProgramGenerator generator = new ImpProgramGenerator();
+		generator.loopDepth = 2;
+		String file = generator.writeTo(new File("outputs/ae-generated.imp").toPath()).toString();
+		File expected = analyze(file, AnalysisDomain.AVAILABLE_EXPRESSIONS, "outputs/ae-sets/generated");
+		File actual = analyze(file, AnalysisDomain.BITVECTOR_AVAILABLE_EXPRESSIONS, "outputs/ae-bits/generated");
+		assertSameResults(expected, actual);
+	}
+}
@@ -0,0 +1,56 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+
+import org.junit.Test;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAConfiguration;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.outputs.compare.JsonReportComparer;
+import it.unive.lisa.outputs.json.JsonReport;
+
+public class BitVectorReachingDefinitionsTest {
+
+	private static File analyze(String program, AnalysisDomain domain, String workdir)
+			throws ParsingException, AnalysisException {
+		LiSAConfiguration conf = new LiSAConfiguration();
+		conf.jsonOutput = true;
+		conf.serializeResults = true;
+		conf.workdir = workdir;
+		conf.abstractState = domain.abstractState();
+		new LiSA(conf).run(IMPFrontend.processFile(program));
+		return new File(workdir);
+	}
+
+	private static void assertSameResults(String program, String name)
+			throws ParsingException, AnalysisException, IOException {
+		File expected = analyze(program, AnalysisDomain.REACHING_DEFINITIONS, "outputs/rd-sets/" + name);
+		File actual = analyze(program, AnalysisDomain.BITVECTOR_REACHING_DEFINITIONS, "outputs/rd-bits/" + name);
+		try (Reader exp = new FileReader(new File(expected, "report.json"));
+				Reader act = new FileReader(new File(actual, "report.json"))) {
+			assertTrue("Results are different", JsonReportComparer.compare(
+					JsonReport.read(exp), JsonReport.read(act), expected, actual));
+		}
+	}
+
+	@Test
+	public void testSameResultsAsSets() throws ParsingException, AnalysisException, IOException {
+		assertSameResults("inputs/reaching-definitions.imp", "rd");
+	}
+
+	@Test
+	public void testSameResultsOnGeneratedProgram() throws ParsingException, AnalysisException, IOException {
+		ImpProgramGenerator generator = new ImpProgramGenerator();
+		generator.loopDepth = 2;
+		String file = generator.writeTo(new File("outputs/rd-generated.imp").toPath()).toString();
+		assertSameResults(file, "generated");
+	}
+}
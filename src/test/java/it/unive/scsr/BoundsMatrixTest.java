@@ -0,0 +1,95 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class BoundsMatrixTest {
+
+	private static long[] bits(int... slots) {
+		long[] bits = Bits.EMPTY;
+		for (int slot : slots)
+			bits = Bits.set(bits, slot);
+		return bits;
+	}
+
+	/**
+	 * The closure computed on booleans, one pair at a time
+	 */
+	private static boolean[][] naive(long[][] rows, int n) {
+		boolean[][] reach = new boolean[n][n];
+		for (int x = 0; x < n; x++)
+			for (int y = 0; y < n; y++)
+				reach[x][y] = rows[x] != null && Bits.get(rows[x], y);
+		for (int k = 0; k < n; k++)
+			for (int x = 0; x < n; x++)
+				for (int y = 0; y < n; y++)
+					if (x != k && reach[x][k] && reach[k][y])
+						reach[x][y] = true;
+		return reach;
+	}
+
+	private static long[][] random(Random random, int n) {
+		long[][] rows = new long[n][];
+		for (int x = 0; x < n; x++)
+			for (int y = 0; y < n; y++)
+				if (x != y && random.nextInt(n) < 2)
+					rows[x] = Bits.set(rows[x] == null ? Bits.EMPTY : rows[x], y);
+		return rows;
+	}
+
+	@Test
+	public void testClosure() {
+		BoundsMatrix matrix = new BoundsMatrix(new long[][] { bits(1), bits(2), bits(3), null });
+		matrix.close();
+		assertArrayEquals(bits(1, 2, 3), matrix.row(0));
+		assertArrayEquals(bits(2, 3), matrix.row(1));
+		assertArrayEquals(bits(3), matrix.row(2));
+		assertTrue(matrix.changed(0));
+		assertFalse(matrix.changed(2));
+	}
+
+	@Test
+	public void testSameAsNaiveClosure() {
+		// fixed seed, so that failures are reproducible
+		Random random = new Random(42);
+		for (int n : new int[] { 5, 63, 64, 65, 200 }) {
+			long[][] rows = random(random, n);
+			boolean[][] expected = naive(rows, n);
+			BoundsMatrix matrix = new BoundsMatrix(rows);
+			matrix.close();
+			for (int x = 0; x < n; x++)
+				for (int y = 0; y < n; y++)
+					assertEquals(x + " < " + y, expected[x][y], matrix.get(x, y));
+		}
+	}
+
+	@Test
+	public void testIncrementalUpdates() {
+		Random random = new Random(42);
+		int n = 100;
+		long[][] rows = random(random, n);
+		BoundsMatrix matrix = new BoundsMatrix(rows);
+		matrix.close();
+
+		// adding bounds to a closed matrix is the same as closing again
+		rows[7] = Bits.or(rows[7] == null ? Bits.EMPTY : rows[7], bits(3, 50));
+		matrix.addAll(7, bits(3, 50));
+		boolean[][] expected = naive(rows, n);
+		for (int x = 0; x < n; x++)
+			for (int y = 0; y < n; y++)
+				assertEquals(x + " < " + y, expected[x][y], matrix.get(x, y));
+
+		// after an assignment, nothing is bounded by the assigned slot
+		matrix.assign(3, bits(3, 10));
+		for (int x = 0; x < n; x++)
+			assertFalse(matrix.get(x, 3));
+		for (int y = 0; y < n; y++)
+			assertEquals(y == 10 || matrix.get(10, y), matrix.get(3, y));
+	}
+}
@@ -0,0 +1,265 @@
+package it.unive.scsr;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Evaluates all the remote branches of the repository, as {@code tester.sh}
+ * does, but concurrently: each branch is checked out in its own git worktree,
+ * master is merged into it, and the given tests are run there with gradle.
+ * At most {@code jobs} branches are evaluated at the same time. Gradle
+ * daemons are shared by all the builds using the same gradle version, so
+ * only one daemon per concurrent job is started, and it is reused for the
+ * following branches.<br>
+ * <br>
+ * Logs and outputs are stored in {@code eval-logs} as {@code tester.sh}
+ * does, together with a {@code summary.txt} reporting the outcome and the
+ * time taken by each branch.<br>
+ * <br>
+ * Usage:
+ * {@code BranchEvaluationRunner <test class> <outputs dir> [--jobs <n>]}, or
+ * {@code BranchEvaluationRunner cleanup} to remove leftover worktrees.
+ */
+public class BranchEvaluationRunner {
+
+	private static final String LOGS = "eval-logs";
+
+	private static final String WORKTREES = "eval-worktrees";
+
+	/**
+	 * The outcome of the evaluation of a branch
+	 */
+	public enum Status {
+		PASSED,
+		TESTS_FAILED,
+		BUILD_FAILED,
+		MERGE_FAILED,
+		CHECKOUT_FAILED
+	}
+
+	/**
+	 * The evaluation of a branch
+	 */
+	public static class Result {
+
+		private final String branch;
+
+		private final Status status;
+
+		private final long millis;
+
+		private Result(String branch, Status status, long millis) {
+			this.branch = branch;
+			this.status = status;
+			this.millis = millis;
+		}
+
+		public String getBranch() {
+			return branch;
+		}
+
+		public Status getStatus() {
+			return status;
+		}
+
+		public long getMillis() {
+			return millis;
+		}
+	}
+
+	private final Path repository;
+
+	private final String tests;
+
+	private final String outputs;
+
+	private final int jobs;
+
+	/**
+	 * Worktrees are added and removed one at a time, since git locks the
+	 * repository while doing so
+	 */
+	private final Object worktreeLock = new Object();
+
+	public BranchEvaluationRunner(Path repository, String tests, String outputs, int jobs) {
+		this.repository = repository.toAbsolutePath();
+		this.tests = tests;
+		this.outputs = outputs;
+		this.jobs = jobs;
+	}
+
+	/**
+	 * Evaluates all the remote branches but master.
+	 *
+	 * @return the results of each branch, sorted by branch name
+	 */
+	public List<Result> run() throws IOException, InterruptedException {
+		Path logs = repository.resolve(LOGS);
+		delete(logs);
+		Files.createDirectories(logs);
+		Files.write(logs.resolve(".gitignore"), "*.json\n".getBytes(StandardCharsets.UTF_8));
+
+		List<Callable<Result>> tasks = new ArrayList<>();
+		for (String branch : branches())
+			tasks.add(() -> evaluate(branch));
+
+		List<Result> results = new ArrayList<>();
+		ExecutorService pool = Executors.newFixedThreadPool(jobs);
+		try {
+			for (Future<Result> result : pool.invokeAll(tasks))
+				results.add(result.get());
+		} catch (ExecutionException e) {
+			throw new IOException("Unable to evaluate a branch", e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+
+		results.sort(Comparator.comparing(Result::getBranch));
+		try (PrintStream summary = new PrintStream(logs.resolve("summary.txt").toFile(), "UTF-8")) {
+			printSummary(results, summary);
+		}
+		return results;
+	}
+
+	private List<String> branches() throws IOException, InterruptedException {
+		Process git = new ProcessBuilder("git", "for-each-ref", "--format=%(refname:lstrip=3)", "refs/remotes/origin/")
+				.directory(repository.toFile())
+				.redirectErrorStream(true)
+				.start();
+		List<String> branches = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(git.getInputStream(), StandardCharsets.UTF_8))) {
+			for (String line; (line = reader.readLine()) != null;)
+				if (!line.isEmpty() && !line.equals("master") && !line.equals("HEAD"))
+					branches.add(line);
+		}
+		if (git.waitFor() != 0)
+			throw new IOException("Unable to list the remote branches");
+		return branches;
+	}
+
+	private Result evaluate(String branch) throws IOException, InterruptedException {
+		long start = System.currentTimeMillis();
+		String name = branch.replace('/', '_');
+		File log = repository.resolve(LOGS).resolve(name + ".log").toFile();
+		Path worktree = repository.resolve(WORKTREES).resolve(name);
+
+		Status status;
+		try {
+			status = evaluate(branch, worktree, log);
+		} finally {
+			synchronized (worktreeLock) {
+				run(repository, log, "git", "worktree", "remove", "--force", worktree.toString());
+			}
+		}
+
+		long millis = System.currentTimeMillis() - start;
+		System.out.println("+ " + branch + ": " + status + " in " + millis / 1000 + "s");
+		return new Result(branch, status, millis);
+	}
+
+	private Status evaluate(String branch, Path worktree, File log) throws IOException, InterruptedException {
+		synchronized (worktreeLock) {
+			delete(worktree);
+			if (!run(repository, log, "git", "worktree", "add", "--force", "--detach", worktree.toString(),
+					"origin/" + branch))
+				return Status.CHECKOUT_FAILED;
+		}
+
+		if (!run(worktree, log, "git", "merge", "-Xtheirs", "--no-edit", "master"))
+			return Status.MERGE_FAILED;
+		if (!run(worktree, log, "bash", "./gradlew", "assemble"))
+			return Status.BUILD_FAILED;
+		Status status = run(worktree, log, "bash", "./gradlew", "test", "--tests", tests) ? Status.PASSED
+				: Status.TESTS_FAILED;
+
+		Path produced = worktree.resolve("outputs").resolve(outputs);
+		if (Files.exists(produced))
+			copy(produced, repository.resolve(LOGS).resolve(worktree.getFileName()).resolve(outputs));
+		return status;
+	}
+
+	/**
+	 * Runs a command, appending its output to {@code log}.
+	 *
+	 * @return {@code true} if the command succeeded
+	 */
+	private static boolean run(Path dir, File log, String... command) throws IOException, InterruptedException {
+		ProcessBuilder builder = new ProcessBuilder(command)
+				.directory(dir.toFile())
+				.redirectErrorStream(true)
+				.redirectOutput(ProcessBuilder.Redirect.appendTo(log));
+		builder.environment().put("GIT_MERGE_AUTOEDIT", "no");
+		return builder.start().waitFor() == 0;
+	}
+
+	private static void copy(Path source, Path target) throws IOException {
+		try (Stream<Path> walk = Files.walk(source)) {
+			for (Path file : (Iterable<Path>) walk::iterator) {
+				Path copy = target.resolve(source.relativize(file).toString());
+				if (Files.isDirectory(file))
+					Files.createDirectories(copy);
+				else
+					Files.copy(file, copy, StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+	}
+
+	private static void delete(Path dir) throws IOException {
+		if (!Files.exists(dir))
+			return;
+		try (Stream<Path> walk = Files.walk(dir)) {
+			for (Path p : (Iterable<Path>) walk.sorted(Comparator.reverseOrder())::iterator)
+				Files.delete(p);
+		}
+	}
+
+	private static void printSummary(List<Result> results, PrintStream out) {
+		long passed = results.stream().filter(r -> r.getStatus() == Status.PASSED).count();
+		out.println(passed + "/" + results.size() + " branches passed");
+		for (Result result : results)
+			out.println(String.format("%-40s %-16s %8.1fs", result.getBranch(), result.getStatus(),
+					result.getMillis() / 1000.0));
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		Path repository = Paths.get("").toAbsolutePath();
+		if (args.length == 1 && args[0].equals("cleanup")) {
+			delete(repository.resolve(WORKTREES));
+			new ProcessBuilder("git", "worktree", "prune").directory(repository.toFile()).inheritIO().start()
+					.waitFor();
+			return;
+		}
+
+		int jobs = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+		if (args.length == 4 && args[2].equals("--jobs"))
+			jobs = Integer.parseInt(args[3]);
+		else if (args.length != 2) {
+			System.err.println("Usage: BranchEvaluationRunner <test class> <outputs dir> [--jobs <n>]");
+			System.err.println("       BranchEvaluationRunner cleanup");
+			System.exit(1);
+		}
+
+		long start = System.currentTimeMillis();
+		List<Result> results = new BranchEvaluationRunner(repository, args[0], args[1], jobs).run();
+		printSummary(results, System.out);
+		System.out.println("Total time: " + (System.currentTimeMillis() - start) / 1000 + "s with " + jobs + " jobs");
+	}
+}
@@ -0,0 +1,85 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import it.unive.scsr.BranchEvaluationRunner.Result;
+import it.unive.scsr.BranchEvaluationRunner.Status;
+
+public class BranchEvaluationRunnerTest {
+
+	/**
+	 * Stands for the gradle wrapper: tests fail if a file named {@code fail}
+	 * exists, and some outputs are always produced
+	 */
+	private static final String GRADLEW = "#!/bin/bash\n"
+			+ "mkdir -p outputs/ae && echo '{}' > outputs/ae/report.json\n"
+			+ "if [ \"$1\" == \"test\" ] && [ -f fail ]; then exit 1; fi\n";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static void git(Path dir, String... args) throws IOException, InterruptedException {
+		String[] command = new String[args.length + 1];
+		command[0] = "git";
+		System.arraycopy(args, 0, command, 1, args.length);
+		Process git = new ProcessBuilder(command).directory(dir.toFile()).redirectErrorStream(true).start();
+		git.getInputStream().transferTo(OutputStream.nullOutputStream());
+		assertEquals(String.join(" ", command), 0, git.waitFor());
+	}
+
+	private static void commit(Path repo, String file, String content) throws IOException, InterruptedException {
+		Files.write(repo.resolve(file), content.getBytes(StandardCharsets.UTF_8));
+		git(repo, "add", file);
+		git(repo, "commit", "-q", "-m", "add " + file);
+	}
+
+	@Test
+	public void testBranches() throws IOException, InterruptedException {
+		Path origin = folder.newFolder("origin").toPath();
+		Path repo = folder.newFolder("repo").toPath();
+		git(origin, "init", "-q", "--bare");
+		git(repo, "init", "-q", "-b", "master");
+		git(repo, "config", "user.name", "tester");
+		git(repo, "config", "user.email", "tester@example.com");
+		git(repo, "remote", "add", "origin", origin.toString());
+		commit(repo, "gradlew", GRADLEW);
+		git(repo, "push", "-q", "origin", "master");
+
+		git(repo, "checkout", "-q", "-b", "good");
+		commit(repo, "solution", "ok");
+		git(repo, "push", "-q", "origin", "good");
+		git(repo, "checkout", "-q", "-b", "bad", "master");
+		commit(repo, "fail", "");
+		git(repo, "push", "-q", "origin", "bad");
+		git(repo, "checkout", "-q", "master");
+		git(repo, "fetch", "-q", "origin");
+
+		List<Result> results = new BranchEvaluationRunner(repo, "Tests", "ae", 2).run();
+		assertEquals(2, results.size());
+		assertEquals("bad", results.get(0).getBranch());
+		assertEquals(Status.TESTS_FAILED, results.get(0).getStatus());
+		assertEquals("good", results.get(1).getBranch());
+		assertEquals(Status.PASSED, results.get(1).getStatus());
+
+		Path logs = repo.resolve("eval-logs");
+		assertTrue(Files.exists(logs.resolve("summary.txt")));
+		assertTrue(Files.exists(logs.resolve("good.log")));
+		assertTrue(Files.exists(logs.resolve("good").resolve("ae").resolve("report.json")));
+		// worktrees are removed, and the repository is left untouched
+		assertFalse(Files.exists(repo.resolve("eval-worktrees").resolve("good")));
+		assertFalse(Files.exists(repo.resolve("solution")));
+	}
+}
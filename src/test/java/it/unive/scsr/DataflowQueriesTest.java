@@ -0,0 +1,96 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.statement.Statement;
+
+public class DataflowQueriesTest {
+
+	private static Program program;
+
+	@BeforeClass
+	public static void parse() throws ParsingException {
+		program = IMPFrontend.processFile("inputs/ae-eval.imp");
+	}
+
+	private static CFG cfg(String name) {
+		for (CFG cfg : program.getAllCFGs())
+			if (cfg.getDescriptor().getName().equals(name))
+				return cfg;
+		throw new IllegalArgumentException(name);
+	}
+
+	private static Statement exit(CFG cfg) {
+		return cfg.getAllExitpoints().iterator().next();
+	}
+
+	private static Set<String> set(String... expressions) {
+		return new HashSet<>(Arrays.asList(expressions));
+	}
+
+	private static Set<String> texts(Set<AvailExprsSolution> expressions) {
+		Set<String> result = new HashSet<>();
+		for (AvailExprsSolution ae : expressions)
+			result.add(ae.representation().toString());
+		return result;
+	}
+
+	private static AvailExprsSolution expression(DataflowQueries queries, String text) {
+		for (AvailExprsSolution ae : queries.expressions())
+			if (ae.representation().toString().equals(text))
+				return ae;
+		throw new IllegalArgumentException(text);
+	}
+
+	// the expected results are the ones in expected/available-expressions
+
+	@Test
+	public void testStraightLine() {
+		CFG f1 = cfg("f1");
+		assertEquals(set("+(a, b)", "-(y, z)"), texts(DataflowQueries.of(f1).availableExpressions(exit(f1))));
+	}
+
+	@Test
+	public void testBranches() {
+		CFG f2 = cfg("f2");
+		assertEquals(set("+(a, b)", "+(+(a, b), c)", "+(+(+(a, b), c), d)", "+(a, c)"),
+				texts(DataflowQueries.of(f2).availableExpressions(exit(f2))));
+
+		CFG f4 = cfg("f4");
+		assertEquals(set("*(7, 3)", "+(xy, y)"), texts(DataflowQueries.of(f4).availableExpressions(exit(f4))));
+	}
+
+	@Test
+	public void testLoop() {
+		CFG f3 = cfg("f3");
+		DataflowQueries queries = DataflowQueries.of(f3);
+		assertEquals(set("+(a, b)", ">(y, a)"), texts(queries.availableExpressions(exit(f3))));
+		assertTrue(queries.isAvailable(expression(queries, "+(a, b)"), exit(f3)));
+		assertFalse(queries.isAvailable(expression(queries, "*(a, b)"), exit(f3)));
+		// never evaluated in f3
+		assertFalse(queries.isAvailable(expression(DataflowQueries.of(cfg("f1")), "-(y, z)"), exit(f3)));
+		// the elements are the canonical ones of the analysis
+		assertTrue(queries.availableExpressions(exit(f3)).contains(expression(queries, "+(a, b)")));
+	}
+
+	@Test
+	public void testReachingDefinitions() {
+		CFG f1 = cfg("f1");
+		DataflowQueries queries = DataflowQueries.of(f1);
+		// the receiver, a, c, y, z and the last definitions of b and x
+		assertEquals(7, queries.reachingDefinitions(exit(f1)).size());
+	}
+}
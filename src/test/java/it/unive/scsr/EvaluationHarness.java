@@ -0,0 +1,269 @@
+package it.unive.scsr;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAConfiguration;
+import it.unive.lisa.LiSAConfiguration.GraphType;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+import it.unive.scsr.StreamingReportComparer.Difference;
+
+/**
+ * Runs several evaluations, each made of a program, an abstract domain and
+ * (optionally) a directory of expected results, in the same JVM, so that
+ * class loading and JIT compilation are paid once for all of them instead of
+ * once per test suite. By default, the evaluations are the ones of the task
+ * evaluations and examples of this project.<br>
+ * <br>
+ * The time of each evaluation is split into parsing, analysis and comparison
+ * with the expected results. LiSA computes the fixpoint and dumps the
+ * results in a single run, so the analysis time covers both.<br>
+ * <br>
+ * With {@code --parallel}, programs are analyzed through a
+ * {@link ParallelAnalysisDriver} (and its cache, if configured) instead of a
+ * single {@link LiSA} instance, analyzing the CFGs of each program
+ * concurrently, each with a fresh abstract state of its domain.<br>
+ * <br>
+ * Usage:
+ * {@code EvaluationHarness [--rounds <n>] [--parallel] [<name>:<program>:<domain>[:<expected dir>]]...},
+ * where {@code domain} is one of {@link AnalysisDomain}.
+ */
+public class EvaluationHarness {
+
+	/**
+	 * A program to be analyzed with a domain
+	 */
+	public static class Evaluation {
+
+		private final String name;
+
+		private final String program;
+
+		private final AnalysisDomain domain;
+
+		private final String expected;
+
+		private final GraphType graphs;
+
+		/**
+		 * Builds an evaluation whose json results are compared with the ones
+		 * in {@code expected}.
+		 */
+		public Evaluation(String name, String program, AnalysisDomain domain, String expected) {
+			this(name, program, domain, expected, GraphType.NONE);
+		}
+
+		/**
+		 * Builds an evaluation that dumps the given graphs, and whose results
+		 * are not compared with expected ones.
+		 */
+		public Evaluation(String name, String program, AnalysisDomain domain, GraphType graphs) {
+			this(name, program, domain, null, graphs);
+		}
+
+		private Evaluation(String name, String program, AnalysisDomain domain, String expected, GraphType graphs) {
+			this.name = name;
+			this.program = program;
+			this.domain = domain;
+			this.expected = expected;
+			this.graphs = graphs;
+		}
+
+		private LiSAConfiguration configuration() {
+			LiSAConfiguration conf = new LiSAConfiguration();
+			conf.workdir = "outputs/harness/" + name;
+			conf.abstractState = domain.abstractState();
+			conf.analysisGraphs = graphs;
+			conf.jsonOutput = expected != null;
+			conf.serializeResults = expected != null;
+			return conf;
+		}
+	}
+
+	/**
+	 * The times of the phases of an evaluation, in nanoseconds
+	 */
+	public static class Timing {
+
+		private final Evaluation evaluation;
+
+		private long parse, analysis, compare;
+
+		private List<Difference> differences = new ArrayList<>();
+
+		private Timing(Evaluation evaluation) {
+			this.evaluation = evaluation;
+		}
+
+		public long getParse() {
+			return parse;
+		}
+
+		/**
+		 * Yields the time of the run of LiSA, that is, of the fixpoint and of
+		 * the dump of the results.
+		 */
+		public long getAnalysis() {
+			return analysis;
+		}
+
+		public long getCompare() {
+			return compare;
+		}
+
+		/**
+		 * Yields the differences with the expected results, as found by
+		 * {@link StreamingReportComparer}, empty if there are no expected
+		 * results or if {@link StreamingReportComparer#sameResults(Path, Path)}
+		 * finds them the same.
+		 */
+		public List<Difference> getDifferences() {
+			return differences;
+		}
+	}
+
+	/**
+	 * The evaluations performed by the tests of this project
+	 */
+	public static List<Evaluation> defaults() {
+		return Arrays.asList(
+				new Evaluation("signs", "inputs/signs.imp", AnalysisDomain.SIGNS, GraphType.HTML),
+				new Evaluation("rd", "inputs/reaching-definitions.imp", AnalysisDomain.REACHING_DEFINITIONS,
+						GraphType.HTML),
+				new Evaluation("ext-sign-example", "inputs/signs.imp", AnalysisDomain.EXT_SIGN, GraphType.HTML),
+				new Evaluation("ext-sign", "inputs/ext-sign-eval.imp", AnalysisDomain.EXT_SIGN, "expected/ext-sign"),
+				new Evaluation("ae", "inputs/ae-eval.imp", AnalysisDomain.AVAILABLE_EXPRESSIONS,
+						"expected/available-expressions"));
+	}
+
+	private final StreamingReportComparer comparer = new StreamingReportComparer();
+
+	private final boolean parallel;
+
+	public EvaluationHarness() {
+		this(false);
+	}
+
+	/**
+	 * Builds a harness that analyzes programs through a
+	 * {@link ParallelAnalysisDriver} if {@code parallel} is {@code true}.
+	 */
+	public EvaluationHarness(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	private void analyze(Evaluation evaluation, LiSAConfiguration conf, Program program) throws AnalysisException {
+		if (parallel)
+			new ParallelAnalysisDriver(conf, evaluation.domain).withConfiguredCache(evaluation.name + ":" + evaluation.domain)
+					.run(program);
+		else
+			new LiSA(conf).run(program);
+	}
+
+	/**
+	 * Runs a single evaluation.
+	 */
+	public Timing run(Evaluation evaluation) throws ParsingException, AnalysisException, IOException {
+		Timing timing = new Timing(evaluation);
+
+		long start = System.nanoTime();
+		Program program = IMPFrontend.processFile(evaluation.program);
+		timing.parse = System.nanoTime() - start;
+
+		LiSAConfiguration conf = evaluation.configuration();
+		Path workdir = Paths.get(conf.workdir);
+		delete(workdir);
+		start = System.nanoTime();
+		analyze(evaluation, conf, program);
+		timing.analysis = System.nanoTime() - start;
+
+		if (evaluation.expected != null) {
+			start = System.nanoTime();
+			Path expected = Paths.get(evaluation.expected);
+			timing.differences = comparer.compare(expected, workdir);
+			// differences in the streamed results are confirmed by
+			// JsonReportComparer, that is the reference
+			if (!timing.differences.isEmpty() && comparer.sameResults(expected, workdir))
+				timing.differences = new ArrayList<>();
+			timing.compare = System.nanoTime() - start;
+		}
+		return timing;
+	}
+
+	private static void delete(Path dir) throws IOException {
+		if (!Files.exists(dir))
+			return;
+		try (Stream<Path> files = Files.walk(dir)) {
+			for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator)
+				Files.delete(file);
+		}
+	}
+
+	/**
+	 * Runs all the given evaluations.
+	 */
+	public List<Timing> run(List<Evaluation> evaluations) throws ParsingException, AnalysisException, IOException {
+		List<Timing> timings = new ArrayList<>();
+		for (Evaluation evaluation : evaluations)
+			timings.add(run(evaluation));
+		return timings;
+	}
+
+	private static void print(List<Timing> timings, PrintStream out) {
+		out.println(String.format("%-20s %10s %10s %10s  %s", "evaluation", "parse", "analysis", "compare",
+				"result"));
+		for (Timing timing : timings)
+			out.println(String.format("%-20s %8.1fms %8.1fms %8.1fms  %s", timing.evaluation.name,
+					timing.parse / 1e6, timing.analysis / 1e6, timing.compare / 1e6,
+					timing.evaluation.expected == null ? "-"
+							: timing.differences.isEmpty() ? "same" : "different: " + timing.differences));
+	}
+
+	private static Evaluation parse(String spec) {
+		String[] parts = spec.split(":");
+		if (parts.length == 3)
+			return new Evaluation(parts[0], parts[1], AnalysisDomain.valueOf(parts[2]), GraphType.NONE);
+		if (parts.length == 4)
+			return new Evaluation(parts[0], parts[1], AnalysisDomain.valueOf(parts[2]), parts[3]);
+		throw new IllegalArgumentException("Not an evaluation: " + spec);
+	}
+
+	public static void main(String[] args) throws ParsingException, AnalysisException, IOException {
+		int rounds = 1;
+		boolean parallel = false;
+		List<Evaluation> evaluations = new ArrayList<>();
+		for (int i = 0; i < args.length; i++)
+			if (args[i].equals("--rounds"))
+				rounds = Integer.parseInt(args[++i]);
+			else if (args[i].equals("--parallel"))
+				parallel = true;
+			else
+				evaluations.add(parse(args[i]));
+		if (evaluations.isEmpty())
+			evaluations = defaults();
+
+		EvaluationHarness harness = new EvaluationHarness(parallel);
+		boolean failed = false;
+		for (int round = 1; round <= rounds; round++) {
+			long start = System.nanoTime();
+			List<Timing> timings = harness.run(evaluations);
+			System.out.println("Round " + round + " (" + (System.nanoTime() - start) / 1000000 + "ms)");
+			print(timings, System.out);
+			for (Timing timing : timings)
+				failed |= !timing.differences.isEmpty();
+		}
+		System.exit(failed ? 1 : 0);
+	}
+}
@@ -0,0 +1,29 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Test;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.scsr.EvaluationHarness.Evaluation;
+import it.unive.scsr.EvaluationHarness.Timing;
+
+public class EvaluationHarnessTest {
+
+	@Test
+	public void testDefaults() throws ParsingException, AnalysisException, IOException {
+		List<Evaluation> evaluations = EvaluationHarness.defaults();
+		List<Timing> timings = new EvaluationHarness().run(evaluations);
+		assertEquals(evaluations.size(), timings.size());
+		for (Timing timing : timings) {
+			assertTrue("Results are different: " + timing.getDifferences(), timing.getDifferences().isEmpty());
+			assertTrue(timing.getParse() > 0);
+			assertTrue(timing.getAnalysis() > 0);
+		}
+	}
+}
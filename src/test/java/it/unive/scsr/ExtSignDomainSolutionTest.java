@@ -0,0 +1,112 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.program.SyntheticLocation;
+import it.unive.lisa.symbolic.value.Constant;
+import it.unive.lisa.symbolic.value.operator.binary.BinaryOperator;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingAdd;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingDiv;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingMul;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingSub;
+import it.unive.lisa.symbolic.value.operator.unary.NumericNegation;
+import it.unive.lisa.type.common.Int32Type;
+import it.unive.scsr.ExtSignDomainSolution.Sign;
+
+public class ExtSignDomainSolutionTest {
+
+	// the reference semantics is the original, branch-based implementation
+	// (see OriginalExtSignDomainSolution): the lookup tables of Sign must
+	// agree with it on every pair of elements
+
+	private static final BinaryOperator[] OPERATORS = {
+			NumericNonOverflowingAdd.INSTANCE,
+			NumericNonOverflowingSub.INSTANCE,
+			NumericNonOverflowingMul.INSTANCE,
+			NumericNonOverflowingDiv.INSTANCE
+	};
+
+	private static OriginalExtSignDomainSolution constant(int value) {
+		return new OriginalExtSignDomainSolution()
+				.evalNonNullConstant(new Constant(Int32Type.INSTANCE, value, SyntheticLocation.INSTANCE), null);
+	}
+
+	/**
+	 * Yields the elements of the original implementation, by the name of
+	 * their sign, built through its public operations only.
+	 */
+	private static Map<String, OriginalExtSignDomainSolution> original() throws SemanticException {
+		Map<String, OriginalExtSignDomainSolution> elements = new LinkedHashMap<>();
+		OriginalExtSignDomainSolution domain = new OriginalExtSignDomainSolution();
+		elements.put("BOTTOM", domain.bottom());
+		elements.put("TOP", domain.top());
+		elements.put("POS", constant(1));
+		elements.put("NEG", constant(-1));
+		elements.put("ZERO", constant(0));
+		elements.put("POS_OR_ZERO", constant(0).lub(constant(1)));
+		elements.put("NEG_OR_ZERO", constant(0).lub(constant(-1)));
+		return elements;
+	}
+
+	/**
+	 * Yields the table-driven element corresponding to the given element of
+	 * the original implementation.
+	 */
+	private static ExtSignDomainSolution translate(Map<String, OriginalExtSignDomainSolution> original,
+			OriginalExtSignDomainSolution element) {
+		for (Map.Entry<String, OriginalExtSignDomainSolution> entry : original.entrySet())
+			if (entry.getValue().equals(element))
+				return ExtSignDomainSolution.of(Sign.valueOf(entry.getKey()));
+		throw new IllegalArgumentException("Unknown element: " + element);
+	}
+
+	@Test
+	public void testAllSigns() throws SemanticException {
+		Map<String, OriginalExtSignDomainSolution> original = original();
+		assertEquals(Sign.values().length, original.size());
+		for (Sign sign : Sign.values())
+			assertNotNull(sign.name(), original.get(sign.name()));
+	}
+
+	@Test
+	public void testArithmeticTables() throws SemanticException {
+		Map<String, OriginalExtSignDomainSolution> original = original();
+		for (String left : original.keySet()) {
+			ExtSignDomainSolution l = ExtSignDomainSolution.of(Sign.valueOf(left));
+			assertSame("-" + left,
+					translate(original, original.get(left).evalUnaryExpression(NumericNegation.INSTANCE,
+							original.get(left), null)),
+					l.evalUnaryExpression(NumericNegation.INSTANCE, l, null));
+			for (String right : original.keySet()) {
+				ExtSignDomainSolution r = ExtSignDomainSolution.of(Sign.valueOf(right));
+				for (BinaryOperator operator : OPERATORS)
+					assertSame(left + " " + operator + " " + right,
+							translate(original, original.get(left).evalBinaryExpression(operator,
+									original.get(left), original.get(right), null)),
+							l.evalBinaryExpression(operator, l, r, null));
+			}
+		}
+	}
+
+	@Test
+	public void testLatticeTables() throws SemanticException {
+		Map<String, OriginalExtSignDomainSolution> original = original();
+		for (String left : original.keySet())
+			for (String right : original.keySet()) {
+				OriginalExtSignDomainSolution ol = original.get(left), or = original.get(right);
+				ExtSignDomainSolution l = ExtSignDomainSolution.of(Sign.valueOf(left));
+				ExtSignDomainSolution r = ExtSignDomainSolution.of(Sign.valueOf(right));
+				assertSame(left + " lub " + right, translate(original, ol.lub(or)), l.lub(r));
+				assertSame(left + " widening " + right, translate(original, ol.widening(or)), l.widening(r));
+				assertEquals(left + " <= " + right, ol.lessOrEqual(or), l.lessOrEqual(r));
+			}
+	}
+}
@@ -0,0 +1,184 @@
+package it.unive.scsr;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Generator of synthetic IMP programs of configurable size, used to measure
+ * how the analyses scale. The generated programs are deterministic for a
+ * given configuration (seed included).<br>
+ * <br>
+ * Each method defines all its variables upfront, and its body is a block
+ * made of {@link #statements} assignments, followed by a chain of
+ * {@link #branchFanOut} conditional arms and by a counting loop whose body
+ * is again a block, up to {@link #loopDepth} nested loops. Assignments have
+ * random expressions of depth {@link #expressionDepth}, and some of them have
+ * the form {@code x = y - c} to exercise the upper bounds of
+ * {@link Pentagons}.
+ */
+public class ImpProgramGenerator {
+
+	private static final String[] OPERATORS = { "+", "-", "*", "/" };
+
+	private static final String[] COMPARISONS = { "<", "<=", ">", ">=", "==", "!=" };
+
+	/**
+	 * The number of methods of the generated class
+	 */
+	public int methods = 4;
+
+	/**
+	 * The number of variables defined by each method
+	 */
+	public int variables = 8;
+
+	/**
+	 * The number of loops nested inside one another in each method
+	 */
+	public int loopDepth = 1;
+
+	/**
+	 * The number of arms of the if-else chain of each block, {@code 0} to
+	 * generate no branches
+	 */
+	public int branchFanOut = 2;
+
+	/**
+	 * The depth of the right-hand sides of assignments, {@code 0} for plain
+	 * variables and constants
+	 */
+	public int expressionDepth = 2;
+
+	/**
+	 * The number of assignments at the beginning of each block
+	 */
+	public int statements = 4;
+
+	public long seed = 42;
+
+	private Random random;
+
+	private StringBuilder code;
+
+	/**
+	 * Yields the source code of a program built with the current
+	 * configuration.
+	 */
+	public String generate() {
+		random = new Random(seed);
+		code = new StringBuilder();
+		code.append("class generated {\n");
+		for (int m = 0; m < methods; m++)
+			method(m);
+		code.append("}\n");
+		return code.toString();
+	}
+
+	/**
+	 * Writes a program built with the current configuration to the given
+	 * file, that can then be parsed with
+	 * {@link it.unive.lisa.imp.IMPFrontend#processFile(String)}.
+	 *
+	 * @return the path of the file
+	 */
+	public Path writeTo(Path file) throws IOException {
+		if (file.getParent() != null)
+			Files.createDirectories(file.getParent());
+		return Files.write(file, generate().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Writes a program built with the current configuration to a new
+	 * temporary file.
+	 *
+	 * @return the path of the file
+	 */
+	public Path writeToTempFile() throws IOException {
+		Path file = Files.createTempFile("generated", ".imp");
+		file.toFile().deleteOnExit();
+		return writeTo(file);
+	}
+
+	private void method(int index) {
+		code.append("\tm").append(index).append("(a, b) {\n");
+		for (int v = 0; v < variables; v++)
+			line(2, "def " + variable(v) + " = " + constant() + ";");
+		for (int l = 0; l < loopDepth; l++)
+			line(2, "def " + counter(l) + " = 0;");
+		block(2, 0);
+		line(2, "return " + variable(0) + ";");
+		code.append("\t}\n\n");
+	}
+
+	private void block(int indent, int loop) {
+		for (int s = 0; s < statements; s++)
+			assignment(indent);
+
+		for (int arm = 0; arm < branchFanOut; arm++) {
+			if (arm == 0)
+				line(indent, "if " + condition() + " {");
+			else if (arm < branchFanOut - 1)
+				line(indent, "} else if " + condition() + " {");
+			else
+				line(indent, "} else {");
+			assignment(indent + 1);
+		}
+		if (branchFanOut > 0)
+			line(indent, "}");
+
+		if (loop < loopDepth) {
+			String counter = counter(loop);
+			line(indent, counter + " = 0;");
+			line(indent, "while (" + counter + " < 10) {");
+			block(indent + 1, loop + 1);
+			line(indent + 1, counter + " = " + counter + " + 1;");
+			line(indent, "}");
+		}
+	}
+
+	private void assignment(int indent) {
+		String target = variable(random.nextInt(variables));
+		if (random.nextInt(4) == 0)
+			line(indent, target + " = " + variable(random.nextInt(variables)) + " - " + (1 + random.nextInt(9)) + ";");
+		else
+			line(indent, target + " = " + expression(expressionDepth) + ";");
+	}
+
+	private String expression(int depth) {
+		if (depth == 0)
+			// negative constants only appear in definitions, so that we never
+			// generate sequences of minus signs like "x - -1"
+			return random.nextBoolean() ? variable(random.nextInt(variables)) : String.valueOf(random.nextInt(10));
+		String op = OPERATORS[random.nextInt(OPERATORS.length)];
+		// we never divide by something that might be zero
+		String right = op.equals("/") ? String.valueOf(1 + random.nextInt(9)) : expression(depth - 1);
+		return "(" + expression(depth - 1) + " " + op + " " + right + ")";
+	}
+
+	private String condition() {
+		String left = random.nextBoolean() ? "a" : variable(random.nextInt(variables));
+		String right = random.nextBoolean() ? "b" : String.valueOf(random.nextInt(10));
+		return "(" + left + " " + COMPARISONS[random.nextInt(COMPARISONS.length)] + " " + right + ")";
+	}
+
+	private String constant() {
+		return String.valueOf(random.nextInt(21) - 10);
+	}
+
+	private static String variable(int index) {
+		return "v" + index;
+	}
+
+	private static String counter(int loop) {
+		return "l" + loop;
+	}
+
+	private void line(int indent, String text) {
+		for (int i = 0; i < indent; i++)
+			code.append('\t');
+		code.append(text).append('\n');
+	}
+}
@@ -0,0 +1,41 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAConfiguration;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+
+public class ImpProgramGeneratorTest {
+
+	@Test
+	public void testDeterministic() {
+		ImpProgramGenerator generator = new ImpProgramGenerator();
+		assertEquals(generator.generate(), generator.generate());
+	}
+
+	@Test
+	public void testGeneratedProgramsCanBeAnalyzed() throws IOException, ParsingException, AnalysisException {
+		ImpProgramGenerator generator = new ImpProgramGenerator();
+		generator.methods = 3;
+		generator.loopDepth = 2;
+		generator.branchFanOut = 3;
+		Path file = generator.writeTo(Path.of("outputs", "generated", "generated.imp"));
+
+		Program program = IMPFrontend.processFile(file.toString());
+		assertEquals(generator.methods, program.getAllCFGs().size());
+
+		LiSAConfiguration conf = new LiSAConfiguration();
+		conf.workdir = "outputs/generated";
+		conf.abstractState = AnalysisDomain.PENTAGONS.abstractState();
+		new LiSA(conf).run(program);
+	}
+}
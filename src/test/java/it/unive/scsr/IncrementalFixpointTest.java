@@ -0,0 +1,290 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAConfiguration;
+import it.unive.lisa.analysis.Lattice;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.dataflow.DefiniteForwardDataflowDomain;
+import it.unive.lisa.analysis.dataflow.PossibleForwardDataflowDomain;
+import it.unive.lisa.analysis.heap.MonolithicHeap;
+import it.unive.lisa.analysis.nonrelational.value.TypeEnvironment;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.analysis.types.InferredTypes;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.symbolic.value.Identifier;
+
+public class IncrementalFixpointTest {
+
+	private static final String ORIGINAL = "class incremental {\n"
+			+ "	loop() {\n"
+			+ "		def c = 1;\n"
+			+ "		def b = 0;\n"
+			+ "		while (b < 10)\n"
+			+ "			b = b + c;\n"
+			+ "		return b;\n"
+			+ "	}\n"
+			+ "	branches(a, b) {\n"
+			+ "		def x = 0;\n"
+			+ "		if (a > b)\n"
+			+ "			x = x * 7;\n"
+			+ "		else\n"
+			+ "			x = -7;\n"
+			+ "		def y = x / x;\n"
+			+ "	}\n"
+			+ "}\n";
+
+	// same as ORIGINAL, with one statement of branches changed in place
+	private static final String EDITED = ORIGINAL.replace("x = -7;", "x = 7;");
+
+	// same as ORIGINAL, with an empty line inserted at the beginning, that
+	// moves all the nodes, and a statement inserted before the return of loop
+	private static final String INSERTED = ORIGINAL.replace("class incremental {\n", "class incremental {\n\n")
+			.replace("		return b;\n", "		def d = c;\n		return b;\n");
+
+	private static IncrementalFixpoint<ValueEnvironment<Signs>> fixpoint() {
+		return fixpoint(new ValueEnvironment<>(new Signs()));
+	}
+
+	private static <V extends ValueDomain<V>> IncrementalFixpoint<V> fixpoint(V prototype) {
+		return new IncrementalFixpoint<>(new ValueDomainTransfer<>(prototype));
+	}
+
+	private static CFG cfg(Program program, String name) {
+		for (CFG cfg : program.getAllCFGs())
+			if (cfg.getDescriptor().getName().equals(name))
+				return cfg;
+		throw new IllegalArgumentException(name);
+	}
+
+	@Test
+	public void testUnchangedProgram() throws ParsingException, SemanticException {
+		IncrementalFixpoint<ValueEnvironment<Signs>> fixpoint = fixpoint();
+		assertTrue(fixpoint.update(IMPFrontend.processText(ORIGINAL)) > 0);
+		assertEquals(0, fixpoint.update(IMPFrontend.processText(ORIGINAL)));
+	}
+
+	@Test
+	public void testSingleEdit() throws ParsingException, SemanticException {
+		IncrementalFixpoint<ValueEnvironment<Signs>> incremental = fixpoint();
+		incremental.update(IMPFrontend.processText(ORIGINAL));
+
+		Program edited = IMPFrontend.processText(EDITED);
+		CFG loop = cfg(edited, "loop");
+		CFG branches = cfg(edited, "branches");
+		assertEquals(0, incremental.update(loop));
+		int recomputed = incremental.update(branches);
+		assertTrue(recomputed > 0);
+		assertTrue(recomputed < branches.getNodes().size());
+
+		IncrementalFixpoint<ValueEnvironment<Signs>> scratch = fixpoint();
+		scratch.update(edited);
+		for (CFG cfg : edited.getAllCFGs())
+			for (Statement node : cfg.getNodes())
+				assertEquals(cfg + ": " + node, scratch.getPostState(node), incremental.getPostState(node));
+	}
+
+	@Test
+	public void testInsertedLines() throws ParsingException, SemanticException {
+		IncrementalFixpoint<ValueEnvironment<Signs>> incremental = fixpoint();
+		incremental.update(IMPFrontend.processText(ORIGINAL));
+
+		// only the new statement and the return after it are computed again
+		Program inserted = IMPFrontend.processText(INSERTED);
+		assertEquals(2, incremental.update(inserted));
+
+		IncrementalFixpoint<ValueEnvironment<Signs>> scratch = fixpoint();
+		scratch.update(inserted);
+		for (CFG cfg : inserted.getAllCFGs())
+			for (Statement node : cfg.getNodes())
+				assertEquals(cfg + ": " + node, scratch.getPostState(node), incremental.getPostState(node));
+	}
+
+	/**
+	 * Checks that analyzing each edited program after the original one yields
+	 * the same results of analyzing it from scratch.
+	 */
+	private static <V extends ValueDomain<V>> void assertSameAsScratch(V prototype)
+			throws ParsingException, SemanticException {
+		assertSameAsScratch(prototype, ORIGINAL, EDITED);
+		assertSameAsScratch(prototype, ORIGINAL, INSERTED);
+		assertSameAsScratch(prototype, EDITED, ORIGINAL);
+	}
+
+	private static <V extends ValueDomain<V>> void assertSameAsScratch(V prototype, String original, String edited)
+			throws ParsingException, SemanticException {
+		IncrementalFixpoint<V> incremental = fixpoint(prototype);
+		incremental.update(IMPFrontend.processText(original));
+		Program program = IMPFrontend.processText(edited);
+		incremental.update(program);
+
+		IncrementalFixpoint<V> scratch = fixpoint(prototype);
+		scratch.update(program);
+		for (CFG cfg : program.getAllCFGs())
+			for (Statement node : cfg.getNodes())
+				assertEquals(cfg + ": " + node, scratch.getPostState(node), incremental.getPostState(node));
+	}
+
+	@Test
+	public void testOtherDomains() throws ParsingException, SemanticException {
+		assertSameAsScratch(new ValueEnvironment<>(new ExtSignDomainSolution()));
+		assertSameAsScratch(new Pentagons());
+		assertSameAsScratch(new Pentagons(true));
+		assertSameAsScratch(new PossibleForwardDataflowDomain<>(new ReachingDefinitions()));
+		assertSameAsScratch(new DefiniteForwardDataflowDomain<>(new AvailExprsSolution()));
+	}
+
+	// the inputs where only numeric values are assigned, so that the value
+	// domain sees the same expressions in both analyses
+	private static final String[] INPUTS = { "signs", "ext-sign-eval", "ae-eval" };
+
+	@Test
+	public void testSameResultsOfLiSA()
+			throws ParsingException, SemanticException, AnalysisException, IOException {
+		for (String input : INPUTS) {
+			Program program = IMPFrontend.processFile("inputs/" + input + ".imp");
+			IncrementalFixpoint<ValueEnvironment<ExtSignDomainSolution>> fixpoint = new IncrementalFixpoint<>(
+					new ValueDomainTransfer<>(new ValueEnvironment<>(new ExtSignDomainSolution())),
+					LiSAConfiguration.DEFAULT_WIDENING_THRESHOLD);
+			fixpoint.update(program);
+			// collected before running LiSA, that modifies the program
+			Map<String, Map<String, List<String>>> actual = new HashMap<>();
+			for (CFG cfg : program.getAllCFGs())
+				actual.put(cfg.getDescriptor().getName(), states(fixpoint, cfg));
+
+			Path workdir = Paths.get("outputs", "incremental", input);
+			LiSAConfiguration conf = new LiSAConfiguration();
+			conf.serializeResults = true;
+			conf.workdir = workdir.toString();
+			conf.abstractState = new SimpleAbstractState<>(
+					new MonolithicHeap(),
+					new ValueEnvironment<>(new ExtSignDomainSolution()),
+					new TypeEnvironment<>(new InferredTypes()));
+			new LiSA(conf).run(program);
+
+			Map<String, Map<String, List<String>>> expected = states(workdir);
+			assertEquals(input, expected.keySet(), actual.keySet());
+			for (String cfg : expected.keySet())
+				assertEquals(input + ": " + cfg, expected.get(cfg), actual.get(cfg));
+		}
+	}
+
+	/**
+	 * Yields the post-states computed by {@code fixpoint} for the nodes of
+	 * {@code cfg}, grouped by the text of the nodes (see
+	 * {@link #state(Map, boolean, boolean)}).
+	 */
+	private static Map<String, List<String>> states(
+			IncrementalFixpoint<ValueEnvironment<ExtSignDomainSolution>> fixpoint, CFG cfg) {
+		Map<String, List<String>> states = new TreeMap<>();
+		for (Statement node : cfg.getNodes()) {
+			ValueEnvironment<ExtSignDomainSolution> post = fixpoint.getPostState(node);
+			Map<String, String> values = new HashMap<>();
+			if (!post.isTop() && !post.isBottom())
+				for (Map.Entry<Identifier, ExtSignDomainSolution> entry : post)
+					values.put(entry.getKey().getName(), entry.getValue().representation().toString());
+			states.computeIfAbsent(node.toString(), k -> new ArrayList<>())
+					.add(state(values, post.isTop(), post.isBottom()));
+		}
+		states.values().forEach(Collections::sort);
+		return states;
+	}
+
+	/**
+	 * Yields the post-states of the value domain serialized by LiSA inside
+	 * {@code workdir}, by cfg name, grouped by the text of the nodes (see
+	 * {@link #state(Map, boolean, boolean)}).
+	 */
+	private static Map<String, Map<String, List<String>>> states(Path workdir) throws IOException {
+		List<Path> files;
+		try (Stream<Path> list = Files.list(workdir)) {
+			files = list.filter(f -> f.toString().endsWith(".json") && !f.endsWith("report.json"))
+					.collect(Collectors.toList());
+		}
+
+		Map<String, Map<String, List<String>>> result = new HashMap<>();
+		ObjectMapper mapper = new ObjectMapper();
+		for (Path file : files) {
+			JsonNode graph = mapper.readTree(file.toFile());
+			// e.g. untyped tutorial::loop(tutorial* this)
+			String name = graph.get("name").asText();
+			name = name.substring(name.indexOf("::") + 2, name.indexOf('('));
+
+			Map<Integer, String> texts = new HashMap<>();
+			Set<Integer> inner = new HashSet<>();
+			for (JsonNode node : graph.get("nodes")) {
+				texts.put(node.get("id").asInt(), node.get("text").asText());
+				for (JsonNode sub : node.path("subNodes"))
+					inner.add(sub.asInt());
+			}
+
+			Map<String, List<String>> states = new TreeMap<>();
+			for (JsonNode description : graph.get("descriptions")) {
+				int id = description.get("nodeId").asInt();
+				if (inner.contains(id))
+					continue;
+				JsonNode value = description.path("description").path("state").path("value");
+				Map<String, String> values = new HashMap<>();
+				if (!value.isTextual())
+					for (Iterator<Map.Entry<String, JsonNode>> it = value.path("map").fields(); it.hasNext();) {
+						Map.Entry<String, JsonNode> entry = it.next();
+						values.put(entry.getKey(), entry.getValue().asText());
+					}
+				states.computeIfAbsent(texts.get(id), k -> new ArrayList<>())
+						.add(state(values, value.isTextual() && value.asText().equals(Lattice.TOP_STRING),
+								value.isTextual() && value.asText().equals(Lattice.BOTTOM_STRING)));
+			}
+			states.values().forEach(Collections::sort);
+			result.put(name, states);
+		}
+		return result;
+	}
+
+	/**
+	 * Yields a textual form of a value environment that is the same for both
+	 * analyses: variables that are top are left out, since LiSA does not
+	 * track the ones that are not numeric (e.g. the receiver), and the value
+	 * on the stack is ignored.
+	 */
+	private static String state(Map<String, String> values, boolean isTop, boolean isBottom) {
+		if (isBottom)
+			return Lattice.BOTTOM_STRING;
+		Map<String, String> tracked = new TreeMap<>();
+		if (!isTop)
+			values.forEach((id, value) -> {
+				if (!value.equals(Lattice.TOP_STRING))
+					tracked.put(id, value);
+			});
+		return tracked.toString();
+	}
+}
@@ -0,0 +1,55 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class InternerTest {
+
+	@Test
+	public void testCanonicalInstances() {
+		Interner<String> interner = new Interner<>();
+		String first = new String("x + y"), second = new String("x + y");
+		assertNotSame(first, second);
+		assertSame(first, interner.intern(first));
+		assertSame(first, interner.intern(second));
+		assertSame(first, interner.intern(first));
+		assertEquals(1, interner.size());
+	}
+
+	@Test
+	public void testConcurrentInterning() throws Exception {
+		Interner<String> interner = new Interner<>();
+		int threads = 8, values = 1000;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<String[]>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++)
+				futures.add(executor.submit(() -> {
+					String[] interned = new String[values];
+					for (int i = 0; i < values; i++)
+						interned[i] = interner.intern(new String("e" + i));
+					return interned;
+				}));
+
+			// every thread gets the same instance for each value
+			String[] expected = futures.get(0).get();
+			for (Future<String[]> future : futures) {
+				String[] interned = future.get();
+				for (int i = 0; i < values; i++)
+					assertSame(expected[i], interned[i]);
+			}
+			assertEquals(values, interner.size());
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
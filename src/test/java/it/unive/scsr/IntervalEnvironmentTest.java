@@ -0,0 +1,124 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.analysis.numeric.Interval;
+import it.unive.lisa.program.SyntheticLocation;
+import it.unive.lisa.symbolic.value.Variable;
+import it.unive.lisa.type.common.Int32Type;
+import it.unive.lisa.util.numeric.MathNumber;
+
+public class IntervalEnvironmentTest {
+
+	private static final Variable[] VARIABLES = new Variable[20];
+
+	static {
+		for (int i = 0; i < VARIABLES.length; i++)
+			VARIABLES[i] = new Variable(Int32Type.INSTANCE, "x" + i, SyntheticLocation.INSTANCE);
+	}
+
+	private static Interval random(Random random) {
+		switch (random.nextInt(6)) {
+		case 0:
+			return null;
+		case 1:
+			return new Interval().top();
+		case 2:
+			return new Interval(MathNumber.MINUS_INFINITY, new MathNumber(random.nextInt(10)));
+		case 3:
+			// does not fit in the long bounds
+			return new Interval(new MathNumber(Long.MIN_VALUE), new MathNumber(random.nextInt(10)));
+		default:
+			int low = random.nextInt(20) - 10;
+			return new Interval(low, low + random.nextInt(10));
+		}
+	}
+
+	private static void assertSame(ValueEnvironment<Interval> expected, IntervalEnvironment actual) {
+		for (Variable v : VARIABLES)
+			assertEquals(v.getName(), expected.getState(v), actual.getState(v));
+		assertEquals(expected.getKeys().size(), actual.getKeys().size());
+	}
+
+	@Test
+	public void testSameAsValueEnvironment() throws SemanticException {
+		// fixed seed, so that failures are reproducible
+		Random random = new Random(42);
+		for (int round = 0; round < 200; round++) {
+			ValueEnvironment<Interval> left = new ValueEnvironment<>(new Interval()).top();
+			ValueEnvironment<Interval> right = left;
+			IntervalEnvironment leftLongs = new IntervalEnvironment().top();
+			IntervalEnvironment rightLongs = leftLongs;
+			for (Variable v : VARIABLES) {
+				Interval l = random(random), r = random(random);
+				if (l != null) {
+					left = left.putState(v, l);
+					leftLongs = leftLongs.putState(v, l);
+				}
+				if (r != null) {
+					right = right.putState(v, r);
+					rightLongs = rightLongs.putState(v, r);
+				}
+			}
+
+			assertSame(left, leftLongs);
+			assertSame(left.lub(right), leftLongs.lub(rightLongs));
+			assertSame(left.widening(right), leftLongs.widening(rightLongs));
+			assertEquals(left.lessOrEqual(right), leftLongs.lessOrEqual(rightLongs));
+			assertTrue(leftLongs.lessOrEqual(leftLongs.lub(rightLongs)));
+			assertEquals(leftLongs.lub(rightLongs), rightLongs.lub(leftLongs));
+		}
+	}
+
+	@Test
+	public void testDifferentIndexes() throws SemanticException {
+		Random random = new Random(7);
+		for (int round = 0; round < 100; round++) {
+			ValueEnvironment<Interval> left = new ValueEnvironment<>(new Interval()).top();
+			ValueEnvironment<Interval> right = left;
+			for (Variable v : VARIABLES) {
+				Interval l = random(random), r = random(random);
+				if (l != null)
+					left = left.putState(v, l);
+				if (r != null)
+					right = right.putState(v, r);
+			}
+
+			// the identifiers get different slots in the two environments
+			IntervalEnvironment leftLongs = IntervalEnvironment.of(left);
+			IntervalEnvironment rightLongs = new IntervalEnvironment().top();
+			for (int i = VARIABLES.length - 1; i >= 0; i--)
+				if (!right.getState(VARIABLES[i]).isBottom())
+					rightLongs = rightLongs.putState(VARIABLES[i], right.getState(VARIABLES[i]));
+
+			assertSame(left, leftLongs);
+			assertSame(left.lub(right), leftLongs.lub(rightLongs));
+			assertSame(left.widening(right), leftLongs.widening(rightLongs));
+			assertEquals(left.lessOrEqual(right), leftLongs.lessOrEqual(rightLongs));
+			assertEquals(leftLongs, IntervalEnvironment.of(left));
+			assertEquals(rightLongs, IntervalEnvironment.of(right));
+			assertEquals(rightLongs.hashCode(), IntervalEnvironment.of(right).hashCode());
+		}
+	}
+
+	@Test
+	public void testStrictlyBelow() {
+		Variable x = VARIABLES[0], y = VARIABLES[1], z = VARIABLES[2];
+		IntervalEnvironment env = new IntervalEnvironment().top()
+				.putState(x, new Interval(0, 3))
+				.putState(y, new Interval(4, 10))
+				.putState(z, new Interval(new MathNumber(Long.MAX_VALUE), MathNumber.PLUS_INFINITY));
+		assertTrue(env.strictlyBelow(x, y));
+		assertTrue(!env.strictlyBelow(y, x));
+		// falls back to the arbitrary-precision bounds
+		assertTrue(env.strictlyBelow(y, z));
+		assertTrue(!env.strictlyBelow(x, VARIABLES[3]));
+	}
+}
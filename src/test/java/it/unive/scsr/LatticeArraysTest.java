@@ -0,0 +1,96 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LatticeArraysTest {
+
+	// lengths that leave tails of every size to the scalar loops
+	private static final int[] LENGTHS = { 0, 1, 7, 8, 31, 64, 100, 257, 1000 };
+
+	private static final Random RANDOM = new Random(42);
+
+	private static byte[] codes(int length, byte[] valid) {
+		byte[] codes = new byte[length];
+		for (int i = 0; i < length; i++)
+			codes[i] = valid[RANDOM.nextInt(valid.length)];
+		return codes;
+	}
+
+	private static long[] bounds(int length) {
+		long[] bounds = new long[length];
+		for (int i = 0; i < length; i++)
+			// infinite bounds are encoded as the extreme values
+			bounds[i] = i % 10 == 0 ? Long.MIN_VALUE : i % 10 == 1 ? Long.MAX_VALUE : RANDOM.nextInt(200) - 100;
+		return bounds;
+	}
+
+	@Test
+	public void testSignJoins() {
+		byte[] canonical = { 0, 1, 2, 3, 4, 7, 6, 7 };
+		byte[] valid = { 0, 1, 2, 3, 4, 6, 7 };
+		for (int length : LENGTHS) {
+			byte[] left = codes(length, valid), right = codes(length, valid);
+			byte[] expected = new byte[length];
+			for (int i = 0; i < length; i++)
+				expected[i] = ExtSignDomainSolution.CODEC.lub(left[i], right[i]);
+
+			byte[] result = new byte[length];
+			LatticeArrays.lub(left, right, result, length, canonical);
+			assertArrayEquals(expected, result);
+
+			boolean leq = true;
+			for (int i = 0; i < length; i++)
+				leq &= SignCodec.lessOrEqual(left[i], right[i]);
+			assertEquals(leq, LatticeArrays.lessOrEqual(left, right, length));
+			assertEquals(true, LatticeArrays.lessOrEqual(left, result, length));
+			assertEquals(true, LatticeArrays.lessOrEqual(right, result, length));
+		}
+	}
+
+	@Test
+	public void testIntervalJoins() {
+		for (int length : LENGTHS) {
+			long[] left = bounds(length), right = bounds(length);
+			long[] min = new long[length], max = new long[length];
+			LatticeArrays.min(left, right, min, length);
+			LatticeArrays.max(left, right, max, length);
+			for (int i = 0; i < length; i++) {
+				assertEquals(Math.min(left[i], right[i]), min[i]);
+				assertEquals(Math.max(left[i], right[i]), max[i]);
+			}
+		}
+	}
+
+	@Test
+	public void testVectorizedLoops() {
+		// run with -Pvector
+		assumeTrue(LatticeArrays.VECTORIZED);
+		LatticeArrays.Kernels vector = LatticeArrays.VECTOR;
+		byte[] canonical = { 0, 1, 2, 7, 4, 7, 7, 7 };
+		byte[] valid = { 0, 1, 2, 4, 7 };
+		for (int length : LENGTHS) {
+			byte[] left = codes(length, valid), right = codes(length, valid);
+			byte[] expected = new byte[length], result = new byte[length];
+			LatticeArrays.scalarLub(left, right, expected, 0, length, canonical);
+			vector.lub(left, right, result, length, canonical);
+			assertArrayEquals(expected, result);
+			assertEquals(LatticeArrays.scalarLessOrEqual(left, right, 0, length),
+					vector.lessOrEqual(left, right, length));
+
+			long[] lows = bounds(length), highs = bounds(length);
+			long[] scalar = new long[length], vectorized = new long[length];
+			LatticeArrays.scalarMin(lows, highs, scalar, 0, length);
+			vector.min(lows, highs, vectorized, length);
+			assertArrayEquals(scalar, vectorized);
+			LatticeArrays.scalarMax(lows, highs, scalar, 0, length);
+			vector.max(lows, highs, vectorized, length);
+			assertArrayEquals(scalar, vectorized);
+		}
+	}
+}
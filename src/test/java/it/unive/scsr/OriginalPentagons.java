@@ -0,0 +1,234 @@
+package it.unive.scsr;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.apache.commons.collections4.CollectionUtils;
+
+import it.unive.lisa.analysis.BaseLattice;
+import it.unive.lisa.analysis.Lattice;
+import it.unive.lisa.analysis.ScopeToken;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.analysis.numeric.Interval;
+import it.unive.lisa.analysis.representation.DomainRepresentation;
+import it.unive.lisa.analysis.representation.MapRepresentation;
+import it.unive.lisa.analysis.representation.StringRepresentation;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.BinaryExpression;
+import it.unive.lisa.symbolic.value.Constant;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.ValueExpression;
+import it.unive.lisa.symbolic.value.operator.SubtractionOperator;
+import it.unive.lisa.symbolic.value.operator.binary.BinaryOperator;
+
+/**
+ * A verbatim copy of {@link Pentagons} as it was before its intervals were
+ * stored as longs in an {@link IntervalEnvironment} (only the name of the
+ * class changed), keeping them in a {@code ValueEnvironment<Interval>}. It is
+ * used as the reference semantics of the array-based version by the tests.
+ */
+public class OriginalPentagons extends BaseLattice<OriginalPentagons> implements ValueDomain<OriginalPentagons> {
+
+	private final ValueEnvironment<Interval> intervals;
+	private final ValueEnvironment<UpperBounds> upperBounds;
+
+	public OriginalPentagons() {
+		this.intervals = new ValueEnvironment<>(new Interval()).top();
+		this.upperBounds = new ValueEnvironment<>(new UpperBounds(true)).top();
+	}
+	
+	public OriginalPentagons(ValueEnvironment<Interval> intervals, ValueEnvironment<UpperBounds> upperBounds) {
+		this.intervals = intervals;
+		this.upperBounds = upperBounds;
+	}
+
+	@Override
+	public OriginalPentagons assign(Identifier id, ValueExpression expression, ProgramPoint pp) throws SemanticException {
+		ValueEnvironment<UpperBounds> newBounds = upperBounds.assign(id, expression, pp);
+		
+		// we add the semantics for assignments here as we have access to the whole assigment
+		if (expression instanceof BinaryExpression) {
+			BinaryExpression be = (BinaryExpression) expression;
+			BinaryOperator op = be.getOperator();
+			if (op instanceof SubtractionOperator && be.getLeft() instanceof Identifier && be.getRight() instanceof Constant) {
+				Identifier y = (Identifier) be.getLeft();
+				newBounds = newBounds.putState(id, upperBounds.getState(y).add(y));
+			}
+		}
+			
+		return new OriginalPentagons(
+				intervals.assign(id, expression, pp),
+				newBounds);
+	}
+
+	@Override
+	public OriginalPentagons smallStepSemantics(ValueExpression expression, ProgramPoint pp) throws SemanticException {
+		return new OriginalPentagons(
+				intervals.smallStepSemantics(expression, pp),
+				upperBounds.smallStepSemantics(expression, pp));
+	}
+
+	@Override
+	public OriginalPentagons assume(ValueExpression expression, ProgramPoint pp) throws SemanticException {
+		return new OriginalPentagons(
+				intervals.assume(expression, pp),
+				upperBounds.assume(expression, pp));
+	}
+
+	@Override
+	public OriginalPentagons forgetIdentifier(Identifier id) throws SemanticException {
+		return new OriginalPentagons(
+				intervals.forgetIdentifier(id),
+				upperBounds.forgetIdentifier(id));
+	}
+
+	@Override
+	public OriginalPentagons forgetIdentifiersIf(Predicate<Identifier> test) throws SemanticException {
+		return new OriginalPentagons(
+				intervals.forgetIdentifiersIf(test),
+				upperBounds.forgetIdentifiersIf(test));
+	}
+
+	@Override
+	public Satisfiability satisfies(ValueExpression expression, ProgramPoint pp) throws SemanticException {
+		return intervals.satisfies(expression, pp).glb(upperBounds.satisfies(expression, pp));
+	}
+
+	@Override
+	public OriginalPentagons pushScope(ScopeToken token) throws SemanticException {
+		return this; // we do not care about this for the project
+	}
+
+	@Override
+	public OriginalPentagons popScope(ScopeToken token) throws SemanticException {
+		return this; // we do not care about this for the project
+	}
+
+	@Override
+	public DomainRepresentation representation() {
+		if (isTop())
+			return Lattice.topRepresentation();
+		if (isBottom())
+			return Lattice.bottomRepresentation();
+		Map<DomainRepresentation, DomainRepresentation> mapping = new HashMap<>();
+		for (Identifier id : CollectionUtils.union(intervals.getKeys(), upperBounds.getKeys()))
+			mapping.put(new StringRepresentation(id),
+					new StringRepresentation(intervals.getState(id).toString() + ", " +
+							upperBounds.getState(id).representation()));
+		return new MapRepresentation(mapping);
+	}
+
+	@Override
+	public OriginalPentagons top() {
+		return new OriginalPentagons(intervals.top(), upperBounds.top());
+	}
+
+	@Override
+	public boolean isTop() {
+		return intervals.isTop() && upperBounds.isTop();
+	}
+
+	@Override
+	public OriginalPentagons bottom() {
+		return new OriginalPentagons(intervals.bottom(), upperBounds.bottom());
+	}
+
+	@Override
+	public boolean isBottom() {
+		return intervals.isBottom() || upperBounds.isBottom();
+	}
+
+	@Override
+	public OriginalPentagons lubAux(OriginalPentagons other) throws SemanticException {
+		ValueEnvironment<UpperBounds> newBounds = upperBounds.lub(other.upperBounds);
+		newBounds = close(newBounds, upperBounds, other.intervals);
+		newBounds = close(newBounds, other.upperBounds, intervals);
+		return new OriginalPentagons(intervals.lub(other.intervals), newBounds);
+	}
+
+	/**
+	 * Adds back to {@code newBounds} the bounds {@code x < y} of
+	 * {@code bounds} that have been lost by the join but that still hold in
+	 * {@code intervals}. Bounds that are in both operands of the join are
+	 * already part of {@code newBounds}, so only variables whose bounds differ
+	 * between the two states are inspected, and only for the missing bounds.
+	 */
+	private static ValueEnvironment<UpperBounds> close(
+			ValueEnvironment<UpperBounds> newBounds,
+			ValueEnvironment<UpperBounds> bounds,
+			ValueEnvironment<Interval> intervals) throws SemanticException {
+		ValueEnvironment<UpperBounds> result = newBounds;
+		for (Entry<Identifier, UpperBounds> entry : bounds) {
+			Identifier x = entry.getKey();
+			UpperBounds joined = newBounds.getState(x);
+			UpperBounds lost = entry.getValue().minus(joined);
+			if (lost.isEmpty())
+				continue;
+
+			Interval xInterval = intervals.getState(x);
+			Set<Identifier> closure = new HashSet<>();
+			for (Identifier bound : lost)
+				if (strictlyBelow(xInterval, intervals.getState(bound)))
+					closure.add(bound);
+			if (!closure.isEmpty())
+				// glb is the union
+				result = result.putState(x, joined.glb(new UpperBounds(closure)));
+		}
+		return result;
+	}
+
+	/**
+	 * Yields {@code true} if every value of {@code x} is strictly smaller than
+	 * every value of {@code y}.
+	 */
+	private static boolean strictlyBelow(Interval x, Interval y) {
+		return !x.isBottom() && !y.isBottom() && x.interval.getHigh().compareTo(y.interval.getLow()) < 0;
+	}
+
+	@Override
+	public OriginalPentagons wideningAux(OriginalPentagons other) throws SemanticException {
+		return new OriginalPentagons(intervals.widening(other.intervals), upperBounds.widening(other.upperBounds));
+	}
+
+	@Override
+	public boolean lessOrEqualAux(OriginalPentagons other) throws SemanticException {
+		if (!intervals.lessOrEqual(other.intervals))
+			return false;
+		for (Entry<Identifier, UpperBounds> entry : other.upperBounds)
+			for (Identifier bound : entry.getValue())
+				if (!(upperBounds.getState(entry.getKey()).contains(bound)
+						|| strictlyBelow(intervals.getState(entry.getKey()), intervals.getState(bound))))
+					return false;
+
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(intervals, upperBounds);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		OriginalPentagons other = (OriginalPentagons) obj;
+		return Objects.equals(intervals, other.intervals) && Objects.equals(upperBounds, other.upperBounds);
+	}
+
+	@Override
+	public String toString() {
+		return representation().toString();
+	}
+}
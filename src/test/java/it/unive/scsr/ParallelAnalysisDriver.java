@@ -0,0 +1,271 @@
+package it.unive.scsr;
+
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAConfiguration;
+import it.unive.lisa.outputs.json.JsonReport;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.program.cfg.CFG;
+
+/**
+ * Runs an analysis by splitting a program into one program per CFG, and by
+ * analyzing all of them concurrently with separate {@link LiSA} instances.
+ * The outputs of each instance are then moved to the working directory of the
+ * given configuration, and their reports are merged into a single
+ * {@code report.json}, so that the result can be compared with the one of a
+ * sequential analysis.<br>
+ * <br>
+ * This is sound only for analyses that do not propagate information between
+ * CFGs, that is, with the default modular interprocedural analysis where
+ * calls are resolved with worst-case assumptions. Since LiSA does not
+ * guarantee that an abstract state can be shared by concurrent instances,
+ * each instance gets a fresh one from the given {@link AnalysisDomain}, and
+ * the abstract state of the configuration is ignored.<br>
+ * <br>
+ * The driver runs the evaluations of {@link EvaluationHarness} with
+ * {@code --parallel}. The task evaluations (e.g.
+ * {@link ExtSignDomainTaskEvaluation}) keep running a single {@link LiSA}
+ * instance, since they are the graded tests that {@code tester.sh} runs on
+ * each submission, where the analyzed programs have a handful of small CFGs
+ * each.
+ */
+public class ParallelAnalysisDriver {
+
+	private static final String REPORT = "report.json";
+
+	private final LiSAConfiguration conf;
+
+	private final AnalysisDomain domain;
+
+	private final int parallelism;
+
+	private AnalysisCache cache;
+
+	private String configuration;
+
+	private boolean binaryResults;
+
+	public ParallelAnalysisDriver(LiSAConfiguration conf, AnalysisDomain domain) {
+		this(conf, domain, Runtime.getRuntime().availableProcessors());
+	}
+
+	public ParallelAnalysisDriver(LiSAConfiguration conf, AnalysisDomain domain, int parallelism) {
+		this.conf = conf;
+		this.domain = domain;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Reuses the results stored in {@code cache} for the CFGs that have
+	 * already been analyzed with the same configuration, and stores the ones
+	 * of the others.
+	 *
+	 * @param configuration a description of the analysis, as given by
+	 *                          {@link AnalysisCache#configuration(String, Class...)}
+	 */
+	public ParallelAnalysisDriver withCache(AnalysisCache cache, String configuration) {
+		this.cache = cache;
+		this.configuration = configuration + "\ndomain=" + domain + "\n" + describe(conf);
+		return this;
+	}
+
+	/**
+	 * Uses the cache in the directory given by the {@code scsr.cache} system
+	 * property, if any, with at most {@code scsr.cache.size} bytes. The
+	 * properties are read from the JVM that runs the analysis, e.g.
+	 * {@code java -Dscsr.cache=/tmp/scsr-cache it.unive.scsr.EvaluationHarness --parallel};
+	 * the test tasks of the build never set them.
+	 */
+	public ParallelAnalysisDriver withConfiguredCache(String name, Class<?>... implementation)
+			throws AnalysisException {
+		String dir = System.getProperty("scsr.cache");
+		if (dir == null)
+			return this;
+		long size = Long.getLong("scsr.cache.size", AnalysisCache.DEFAULT_MAX_SIZE);
+		try {
+			return withCache(new AnalysisCache(Paths.get(dir), size),
+					AnalysisCache.configuration(name, implementation));
+		} catch (IOException e) {
+			throw new AnalysisException("Unable to set up the cache", e);
+		}
+	}
+
+	/**
+	 * Converts the results of each CFG to the binary format of
+	 * {@link BinaryJson} as soon as its analysis ends, so that large results
+	 * are written to the working directory in compact form.
+	 * {@link ResultsConverter#toJson(Path)} restores the json files.
+	 */
+	public ParallelAnalysisDriver withBinaryResults() {
+		this.binaryResults = true;
+		return this;
+	}
+
+	/**
+	 * Analyzes the given program.
+	 *
+	 * @return the merged report, or {@code null} if the configuration does not
+	 *             ask for json outputs
+	 */
+	public JsonReport run(Program program) throws AnalysisException {
+		Path workdir = Paths.get(conf.workdir);
+		Path parts = workdir.resolve("parts");
+		Collection<CFG> entrypoints = program.getEntryPoints();
+
+		List<Callable<JsonReport>> tasks = new ArrayList<>();
+		int index = 0;
+		for (CFG cfg : program.getAllCFGs()) {
+			Program part = new Program(program.getFeatures(), program.getTypes());
+			part.addCodeMember(cfg);
+			if (entrypoints.contains(cfg))
+				part.addEntryPoint(cfg);
+			Path partdir = parts.resolve(String.valueOf(index++));
+			String key = cache == null ? null
+					: AnalysisCache.key(cfg, configuration + "binary=" + binaryResults);
+			tasks.add(() -> analyze(part, partdir, key));
+		}
+
+		List<JsonReport> reports = new ArrayList<>();
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			for (Future<JsonReport> result : pool.invokeAll(tasks))
+				reports.add(result.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AnalysisException("Interrupted while waiting for the analyses", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof AnalysisException)
+				throw (AnalysisException) e.getCause();
+			throw new AnalysisException("One of the analyses failed", e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+
+		try {
+			for (int i = 0; i < index; i++)
+				moveOutputs(parts.resolve(String.valueOf(i)), workdir);
+			delete(parts);
+			if (!conf.jsonOutput)
+				return null;
+			return merge(reports, workdir.resolve(REPORT));
+		} catch (IOException e) {
+			throw new AnalysisException("Unable to merge the results of the analyses", e);
+		}
+	}
+
+	private JsonReport analyze(Program part, Path partdir, String key) throws AnalysisException, IOException {
+		if (key == null || !cache.restore(key, partdir)) {
+			LiSAConfiguration partConf = copy(conf);
+			partConf.workdir = partdir.toString();
+			partConf.abstractState = domain.abstractState();
+			new LiSA(partConf).run(part);
+			if (binaryResults)
+				ResultsConverter.toBinary(partdir);
+			if (key != null)
+				cache.store(key, partdir);
+		}
+
+		if (!conf.jsonOutput)
+			return null;
+		try (Reader reader = new FileReader(partdir.resolve(REPORT).toFile())) {
+			return JsonReport.read(reader);
+		}
+	}
+
+	/**
+	 * Copies all the options of a configuration, so that each analysis can
+	 * have its own working directory.
+	 */
+	private static LiSAConfiguration copy(LiSAConfiguration conf) throws AnalysisException {
+		LiSAConfiguration copy = new LiSAConfiguration();
+		try {
+			for (Field field : LiSAConfiguration.class.getFields())
+				if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isFinal(field.getModifiers()))
+					field.set(copy, field.get(conf));
+		} catch (IllegalAccessException e) {
+			throw new AnalysisException("Unable to copy the configuration", e);
+		}
+		return copy;
+	}
+
+	/**
+	 * Describes the options of a configuration that can affect the outputs,
+	 * apart from the working directory and the objects (like the abstract
+	 * state) that have no meaningful textual form.
+	 */
+	private static String describe(LiSAConfiguration conf) {
+		StringBuilder description = new StringBuilder();
+		for (Field field : LiSAConfiguration.class.getFields()) {
+			if (Modifier.isStatic(field.getModifiers()) || field.getName().equals("workdir"))
+				continue;
+			Class<?> type = field.getType();
+			if (type.isPrimitive() || type.isEnum() || type == String.class)
+				try {
+					description.append(field.getName()).append('=').append(field.get(conf)).append('\n');
+				} catch (IllegalAccessException e) {
+					// public fields are always accessible
+				}
+		}
+		return description.toString();
+	}
+
+	private static void moveOutputs(Path partdir, Path workdir) throws IOException {
+		if (!Files.exists(partdir))
+			return;
+		List<Path> files;
+		try (Stream<Path> walk = Files.walk(partdir)) {
+			files = walk.filter(Files::isRegularFile).collect(Collectors.toList());
+		}
+		for (Path file : files) {
+			Path relative = partdir.relativize(file);
+			if (relative.toString().equals(REPORT))
+				continue;
+			Path target = workdir.resolve(relative);
+			Files.createDirectories(target.getParent());
+			Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private static JsonReport merge(List<JsonReport> reports, Path target) throws IOException {
+		JsonReport merged = new JsonReport();
+		for (JsonReport report : reports) {
+			merged.getWarnings().addAll(report.getWarnings());
+			merged.getFiles().addAll(report.getFiles());
+		}
+		try (Writer writer = new FileWriter(target.toFile())) {
+			merged.dump(writer);
+		}
+		return merged;
+	}
+
+	private static void delete(Path dir) throws IOException {
+		if (!Files.exists(dir))
+			return;
+		try (Stream<Path> walk = Files.walk(dir)) {
+			for (Path p : (Iterable<Path>) walk.sorted(Comparator.reverseOrder())::iterator)
+				Files.delete(p);
+		}
+	}
+}
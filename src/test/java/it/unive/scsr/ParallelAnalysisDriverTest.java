@@ -0,0 +1,66 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+
+import org.junit.Test;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAConfiguration;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.outputs.compare.JsonReportComparer;
+import it.unive.lisa.outputs.json.JsonReport;
+
+public class ParallelAnalysisDriverTest {
+
+	private static LiSAConfiguration configuration(String workdir) {
+		LiSAConfiguration conf = new LiSAConfiguration();
+		conf.jsonOutput = true;
+		conf.serializeResults = true;
+		conf.workdir = workdir;
+		return conf;
+	}
+
+	private static void assertSameResults(String program, AnalysisDomain domain)
+			throws ParsingException, AnalysisException, IOException {
+		File expected = new File("outputs/driver/sequential/" + domain);
+		LiSAConfiguration conf = configuration(expected.getPath());
+		conf.abstractState = domain.abstractState();
+		new LiSA(conf).run(IMPFrontend.processFile(program));
+
+		File actual = new File("outputs/driver/parallel/" + domain);
+		new ParallelAnalysisDriver(configuration(actual.getPath()), domain, 4).run(IMPFrontend.processFile(program));
+
+		try (Reader exp = new FileReader(new File(expected, "report.json"));
+				Reader act = new FileReader(new File(actual, "report.json"))) {
+			assertTrue("Results are different", JsonReportComparer.compare(
+					JsonReport.read(exp), JsonReport.read(act), expected, actual));
+		}
+	}
+
+	@Test
+	public void testExtendedSigns() throws ParsingException, AnalysisException, IOException {
+		assertSameResults("inputs/ext-sign-eval.imp", AnalysisDomain.EXT_SIGN);
+	}
+
+	@Test
+	public void testAvailableExpressions() throws ParsingException, AnalysisException, IOException {
+		assertSameResults("inputs/ae-eval.imp", AnalysisDomain.AVAILABLE_EXPRESSIONS);
+	}
+
+	@Test
+	public void testReachingDefinitions() throws ParsingException, AnalysisException, IOException {
+		assertSameResults("inputs/reaching-definitions.imp", AnalysisDomain.REACHING_DEFINITIONS);
+	}
+
+	@Test
+	public void testPentagons() throws ParsingException, AnalysisException, IOException {
+		assertSameResults("inputs/signs.imp", AnalysisDomain.PENTAGONS);
+	}
+}
@@ -0,0 +1,201 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+
+import org.junit.Test;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAConfiguration;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.outputs.compare.JsonReportComparer;
+import it.unive.lisa.outputs.json.JsonReport;
+import it.unive.lisa.program.SyntheticLocation;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.BinaryExpression;
+import it.unive.lisa.symbolic.value.Constant;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.Variable;
+import it.unive.lisa.symbolic.value.operator.binary.ComparisonLt;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingSub;
+import it.unive.lisa.type.common.BoolType;
+import it.unive.lisa.type.common.Int32Type;
+
+public class PentagonsTest {
+
+	private static final Variable X = variable("x"), Y = variable("y"), Z = variable("z"), W = variable("w");
+
+	// packs are {x, y} and {z, w}
+	private static final String PACKS = "class packs {\n"
+			+ "	main(x, y, z, w) {\n"
+			+ "		if (x < y)\n"
+			+ "			x = y - 1;\n"
+			+ "		if (z < w)\n"
+			+ "			z = 0;\n"
+			+ "	}\n"
+			+ "}\n";
+
+	private static Variable variable(String name) {
+		return new Variable(Int32Type.INSTANCE, name, SyntheticLocation.INSTANCE);
+	}
+
+	private static BinaryExpression lt(Identifier left, Identifier right) {
+		return new BinaryExpression(BoolType.INSTANCE, left, right, ComparisonLt.INSTANCE,
+				SyntheticLocation.INSTANCE);
+	}
+
+	private static Constant constant(int value) {
+		return new Constant(Int32Type.INSTANCE, value, SyntheticLocation.INSTANCE);
+	}
+
+	private static ProgramPoint programPoint() throws ParsingException {
+		return programPoint("class pentagons { main() { def x = 0; } }");
+	}
+
+	private static ProgramPoint programPoint(String program) throws ParsingException {
+		return IMPFrontend.processText(program).getAllCFGs().iterator().next().getEntrypoints().iterator().next();
+	}
+
+	/**
+	 * Asserts that the bounds of the given variables are transitively closed.
+	 */
+	private static void assertClosed(Pentagons state, Identifier... variables) {
+		for (Identifier x : variables)
+			for (Identifier y : state.getUpperBounds(x))
+				for (Identifier z : state.getUpperBounds(y))
+					assertTrue(x + " < " + y + " < " + z, state.getUpperBounds(x).contains(z));
+	}
+
+	private static File analyze(String program, AnalysisDomain domain, String workdir)
+			throws ParsingException, AnalysisException {
+		LiSAConfiguration conf = new LiSAConfiguration();
+		conf.jsonOutput = true;
+		conf.serializeResults = true;
+		conf.workdir = workdir;
+		conf.abstractState = domain.abstractState();
+		new LiSA(conf).run(IMPFrontend.processFile(program));
+		return new File(workdir);
+	}
+
+	private static void assertSameResults(String program, String name)
+			throws ParsingException, AnalysisException, IOException {
+		File expected = analyze(program, AnalysisDomain.ORIGINAL_PENTAGONS, "outputs/original-pentagons/" + name);
+		File actual = analyze(program, AnalysisDomain.PENTAGONS, "outputs/array-pentagons/" + name);
+		try (Reader exp = new FileReader(new File(expected, "report.json"));
+				Reader act = new FileReader(new File(actual, "report.json"))) {
+			assertTrue("Results are different", JsonReportComparer.compare(
+					JsonReport.read(exp), JsonReport.read(act), expected, actual));
+		}
+	}
+
+	@Test
+	public void testSameResultsAsOriginal() throws ParsingException, AnalysisException, IOException {
+		for (String input : new String[] { "signs", "ext-sign-eval", "ae-eval" })
+			assertSameResults("inputs/" + input + ".imp", input);
+	}
+
+	@Test
+	public void testSameResultsOnGeneratedProgram() throws ParsingException, AnalysisException, IOException {
+		ImpProgramGenerator generator = new ImpProgramGenerator();
+		generator.loopDepth = 2;
+		String file = generator.writeTo(new File("outputs/original-pentagons-generated.imp").toPath()).toString();
+		assertSameResults(file, "generated");
+	}
+
+	@Test
+	public void testJoinRestoresBounds() throws SemanticException, ParsingException {
+		ProgramPoint pp = programPoint();
+		Pentagons bounded = new Pentagons().assume(lt(X, Y), pp);
+		// x < y is not a bound of this state, but it holds for its intervals
+		Pentagons below = new Pentagons().assign(X, constant(0), pp).assign(Y, constant(5), pp);
+		assertFalse(below.getUpperBounds(X).contains(Y));
+		assertTrue(bounded.lub(below).getUpperBounds(X).contains(Y));
+		assertTrue(below.lub(bounded).getUpperBounds(X).contains(Y));
+
+		// the bound is lost if the intervals do not imply it
+		Pentagons above = new Pentagons().assign(X, constant(5), pp).assign(Y, constant(0), pp);
+		assertFalse(bounded.lub(above).getUpperBounds(X).contains(Y));
+		Pentagons equal = new Pentagons().assign(X, constant(5), pp).assign(Y, constant(5), pp);
+		assertFalse(bounded.lub(equal).getUpperBounds(X).contains(Y));
+	}
+
+	@Test
+	public void testClosedAssumptions() throws SemanticException, ParsingException {
+		ProgramPoint pp = programPoint();
+		Pentagons closed = new Pentagons(true).assume(lt(X, Y), pp).assume(lt(Y, Z), pp);
+		assertTrue(closed.getUpperBounds(X).contains(Z));
+		assertClosed(closed, X, Y, Z);
+
+		Pentagons open = new Pentagons().assume(lt(X, Y), pp).assume(lt(Y, Z), pp);
+		assertFalse(open.getUpperBounds(X).contains(Z));
+	}
+
+	@Test
+	public void testClosedAssignment() throws SemanticException, ParsingException {
+		ProgramPoint pp = programPoint();
+		Pentagons state = new Pentagons(true).assume(lt(Y, X), pp).assume(lt(X, Z), pp);
+		assertTrue(state.getUpperBounds(Y).contains(X));
+		assertTrue(state.getUpperBounds(Y).contains(Z));
+
+		// y < x does not hold for the new value of x, while y < z still does
+		Pentagons assigned = state.assign(X, constant(0), pp);
+		assertFalse(assigned.getUpperBounds(Y).contains(X));
+		assertTrue(assigned.getUpperBounds(Y).contains(Z));
+		assertClosed(assigned, X, Y, Z);
+	}
+
+	@Test
+	public void testClosedJoins() throws SemanticException, ParsingException {
+		ProgramPoint pp = programPoint();
+		Pentagons bounded = new Pentagons(true).assume(lt(X, Y), pp).assume(lt(Y, Z), pp);
+		// y < z is lost by the join, and restored from the intervals of this
+		// state: the result must be closed again, with x < z
+		Pentagons valued = new Pentagons(true).assign(Y, constant(0), pp).assign(Z, constant(5), pp)
+				.assume(lt(X, Y), pp);
+
+		Pentagons lub = bounded.lub(valued);
+		assertTrue(lub.getUpperBounds(Y).contains(Z));
+		assertTrue(lub.getUpperBounds(X).contains(Z));
+		assertClosed(lub, X, Y, Z);
+		assertClosed(bounded.widening(valued), X, Y, Z);
+		assertClosed(valued.widening(bounded), X, Y, Z);
+	}
+
+	@Test
+	public void testClosedCycle() throws SemanticException, ParsingException {
+		ProgramPoint pp = programPoint();
+		Pentagons state = new Pentagons(true).assume(lt(X, Y), pp);
+		assertFalse(state.isBottom());
+		assertTrue(state.assume(lt(Y, X), pp).isBottom());
+		assertTrue(state.assume(lt(Y, Z), pp).assume(lt(Z, X), pp).isBottom());
+	}
+
+	@Test
+	public void testPackedBounds() throws SemanticException, ParsingException {
+		ProgramPoint pp = programPoint(PACKS);
+		Pentagons packed = new Pentagons(false, true);
+
+		// bounds inside a pack are kept
+		assertTrue(packed.assume(lt(X, Y), pp).getUpperBounds(X).contains(Y));
+		assertTrue(packed.assume(lt(Z, W), pp).getUpperBounds(Z).contains(W));
+		assertTrue(packed.assign(X, new BinaryExpression(Int32Type.INSTANCE, Y, constant(1),
+				NumericNonOverflowingSub.INSTANCE, SyntheticLocation.INSTANCE), pp).getUpperBounds(X).contains(Y));
+
+		// bounds across packs are dropped, also the ones inherited from the
+		// bounds of another variable
+		assertFalse(packed.assume(lt(X, Z), pp).getUpperBounds(X).contains(Z));
+		assertFalse(packed.assume(lt(W, Y), pp).getUpperBounds(W).contains(Y));
+		assertFalse(packed.assume(lt(Y, Z), pp).assume(lt(X, Y), pp).getUpperBounds(X).contains(Z));
+
+		// without packing, the same bounds are kept
+		assertTrue(new Pentagons().assume(lt(X, Z), pp).getUpperBounds(X).contains(Z));
+	}
+}
@@ -0,0 +1,145 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.analysis.numeric.Interval;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.SyntheticLocation;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.BinaryExpression;
+import it.unive.lisa.symbolic.value.Constant;
+import it.unive.lisa.symbolic.value.Variable;
+import it.unive.lisa.symbolic.value.operator.binary.ComparisonLt;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingAdd;
+import it.unive.lisa.type.common.BoolType;
+import it.unive.lisa.type.common.Int32Type;
+import it.unive.lisa.util.numeric.MathNumber;
+
+public class PersistentEnvironmentTest {
+
+	private static final Variable[] VARIABLES = new Variable[40];
+
+	static {
+		for (int i = 0; i < VARIABLES.length; i++)
+			VARIABLES[i] = new Variable(Int32Type.INSTANCE, "x" + i, SyntheticLocation.INSTANCE);
+	}
+
+	private static Interval random(Random random) {
+		switch (random.nextInt(5)) {
+		case 0:
+			return null;
+		case 1:
+			return new Interval().top();
+		case 2:
+			return new Interval(MathNumber.MINUS_INFINITY, new MathNumber(random.nextInt(10)));
+		default:
+			int low = random.nextInt(20) - 10;
+			return new Interval(low, low + random.nextInt(10));
+		}
+	}
+
+	private static ProgramPoint programPoint() throws ParsingException {
+		return IMPFrontend.processText("class env { main() { def x = 0; } }").getAllCFGs().iterator().next()
+				.getEntrypoints().iterator().next();
+	}
+
+	private static void assertSame(ValueEnvironment<Interval> expected, PersistentEnvironment<Interval> actual) {
+		assertEquals(expected.isBottom(), actual.isBottom());
+		assertEquals(expected.isTop(), actual.isTop());
+		for (Variable v : VARIABLES)
+			assertEquals(v.getName(), expected.getState(v), actual.getState(v));
+		assertEquals(expected.getKeys().size(), actual.getKeys().size());
+	}
+
+	@Test
+	public void testSameAsValueEnvironment() throws SemanticException {
+		// fixed seed, so that failures are reproducible
+		Random random = new Random(42);
+		for (int round = 0; round < 200; round++) {
+			ValueEnvironment<Interval> left = new ValueEnvironment<>(new Interval()).top();
+			ValueEnvironment<Interval> right = left;
+			PersistentEnvironment<Interval> leftMap = new PersistentEnvironment<>(new Interval()).top();
+			PersistentEnvironment<Interval> rightMap = leftMap;
+			for (Variable v : VARIABLES) {
+				Interval l = random(random), r = random(random);
+				if (l != null) {
+					left = left.putState(v, l);
+					leftMap = leftMap.putState(v, l);
+				}
+				if (r != null) {
+					right = right.putState(v, r);
+					rightMap = rightMap.putState(v, r);
+				}
+			}
+
+			assertSame(left, leftMap);
+			assertSame(left.lub(right), leftMap.lub(rightMap));
+			assertSame(left.widening(right), leftMap.widening(rightMap));
+			assertEquals(left.lessOrEqual(right), leftMap.lessOrEqual(rightMap));
+			assertTrue(leftMap.lessOrEqual(leftMap.lub(rightMap)));
+
+			Variable forgotten = VARIABLES[random.nextInt(VARIABLES.length)];
+			assertSame(left.forgetIdentifier(forgotten), leftMap.forgetIdentifier(forgotten));
+		}
+	}
+
+	@Test
+	public void testEqualsAndHashCode() throws SemanticException {
+		Random random = new Random(7);
+		for (int round = 0; round < 100; round++) {
+			PersistentEnvironment<Interval> env = new PersistentEnvironment<>(new Interval()).top();
+			for (Variable v : VARIABLES) {
+				Interval i = random(random);
+				if (i != null)
+					env = env.putState(v, i);
+			}
+
+			// the same states, built in the opposite order
+			PersistentEnvironment<Interval> other = new PersistentEnvironment<>(new Interval()).top();
+			for (int i = VARIABLES.length - 1; i >= 0; i--)
+				if (env.getKeys().contains(VARIABLES[i]))
+					other = other.putState(VARIABLES[i], env.getState(VARIABLES[i]));
+
+			assertEquals(env, other);
+			assertEquals(env.hashCode(), other.hashCode());
+			assertEquals(env, env.lub(other));
+			assertFalse(env.equals(env.putState(VARIABLES[0], new Interval(100, 200))));
+		}
+	}
+
+	@Test
+	public void testExpressions() throws SemanticException, ParsingException {
+		ProgramPoint pp = programPoint();
+		Variable x = VARIABLES[0], y = VARIABLES[1], z = VARIABLES[2];
+		ValueEnvironment<Interval> expected = new ValueEnvironment<>(new Interval()).top()
+				.putState(x, new Interval(0, 5));
+		PersistentEnvironment<Interval> actual = new PersistentEnvironment<>(new Interval()).top()
+				.putState(x, new Interval(0, 5));
+
+		// x + 1 is computed from the state of x
+		BinaryExpression increment = new BinaryExpression(Int32Type.INSTANCE, x,
+				new Constant(Int32Type.INSTANCE, 1, SyntheticLocation.INSTANCE), NumericNonOverflowingAdd.INSTANCE,
+				SyntheticLocation.INSTANCE);
+		assertSame(expected.assign(z, increment, pp), actual.assign(z, increment, pp));
+
+		// y has no mapping, and it is bound to bottom, as in ValueEnvironment
+		BinaryExpression sum = new BinaryExpression(Int32Type.INSTANCE, x, y, NumericNonOverflowingAdd.INSTANCE,
+				SyntheticLocation.INSTANCE);
+		assertSame(expected.assign(z, sum, pp), actual.assign(z, sum, pp));
+
+		BinaryExpression condition = new BinaryExpression(BoolType.INSTANCE, x,
+				new Constant(Int32Type.INSTANCE, 3, SyntheticLocation.INSTANCE), ComparisonLt.INSTANCE,
+				SyntheticLocation.INSTANCE);
+		assertSame(expected.assume(condition, pp), actual.assume(condition, pp));
+		assertEquals(expected.satisfies(condition, pp), actual.satisfies(condition, pp));
+	}
+}
@@ -0,0 +1,201 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PersistentMapTest {
+
+	/**
+	 * A key whose hash is given, so that collisions can be forced
+	 */
+	private static final class Key {
+
+		private final int id;
+		private final int hash;
+
+		private Key(int id, int hash) {
+			this.id = id;
+			this.hash = hash;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Key && ((Key) obj).id == id;
+		}
+
+		@Override
+		public String toString() {
+			return "k" + id;
+		}
+	}
+
+	private static <K, V> void assertSameMapping(Map<K, V> expected, PersistentMap<K, V> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (Map.Entry<K, V> entry : expected.entrySet())
+			assertEquals(entry.getKey().toString(), entry.getValue(), actual.get(entry.getKey()));
+		Map<K, V> entries = new HashMap<>();
+		for (Map.Entry<K, V> entry : actual)
+			assertNull("duplicate " + entry.getKey(), entries.put(entry.getKey(), entry.getValue()));
+		assertEquals(expected, entries);
+		assertEquals(expected.keySet(), new HashSet<>(actual.keys()));
+	}
+
+	/**
+	 * Applies random updates to both maps, with keys whose hashes are in
+	 * {@code [0, hashes)}.
+	 */
+	private static PersistentMap<Key, Integer> update(Random random, Map<Key, Integer> expected,
+			PersistentMap<Key, Integer> actual, int operations, int hashes) {
+		for (int i = 0; i < operations; i++) {
+			int id = random.nextInt(200);
+			Key key = new Key(id, id % hashes);
+			if (random.nextInt(3) == 0) {
+				expected.remove(key);
+				actual = actual.remove(key);
+			} else {
+				int value = random.nextInt(10);
+				expected.put(key, value);
+				actual = actual.put(key, value);
+			}
+		}
+		return actual;
+	}
+
+	@Test
+	public void testSameAsHashMap() {
+		// fixed seed, so that failures are reproducible
+		Random random = new Random(42);
+		for (int hashes : new int[] { 1_000_000, 7, 1 }) {
+			Map<Key, Integer> expected = new HashMap<>();
+			PersistentMap<Key, Integer> actual = update(random, expected, PersistentMap.empty(), 2000, hashes);
+			assertSameMapping(expected, actual);
+		}
+	}
+
+	@Test
+	public void testPersistence() {
+		PersistentMap<String, Integer> empty = PersistentMap.empty();
+		PersistentMap<String, Integer> one = empty.put("a", 1);
+		PersistentMap<String, Integer> two = one.put("b", 2);
+		PersistentMap<String, Integer> updated = two.put("a", 3);
+
+		assertTrue(empty.isEmpty());
+		assertEquals(1, one.size());
+		assertEquals(Integer.valueOf(1), one.get("a"));
+		assertNull(one.get("b"));
+		assertEquals(Integer.valueOf(1), two.get("a"));
+		assertEquals(Integer.valueOf(3), updated.get("a"));
+		assertEquals(one, two.remove("b"));
+		assertTrue(updated.remove("a").remove("b").isEmpty());
+	}
+
+	@Test
+	public void testNoChanges() {
+		Integer value = 1000;
+		PersistentMap<String, Integer> map = PersistentMap.<String, Integer>empty().put("a", value);
+		assertSame(map, map.put("a", value));
+		assertSame(map, map.remove("b"));
+		assertSame(map, map.removeIf(k -> false));
+	}
+
+	@Test
+	public void testCollisions() {
+		Key a = new Key(1, 5), b = new Key(2, 5), c = new Key(3, 5), d = new Key(4, 37);
+		PersistentMap<Key, String> map = PersistentMap.<Key, String>empty().put(a, "a").put(b, "b").put(c, "c")
+				.put(d, "d");
+		assertEquals(4, map.size());
+		assertEquals("a", map.get(a));
+		assertEquals("b", map.get(b));
+		assertEquals("c", map.get(c));
+		assertEquals("d", map.get(d));
+		assertNull(map.get(new Key(5, 5)));
+
+		PersistentMap<Key, String> removed = map.remove(b);
+		assertEquals(3, removed.size());
+		assertNull(removed.get(b));
+		assertEquals("a", removed.get(a));
+		assertEquals("c", removed.get(c));
+		assertTrue(removed.remove(a).remove(c).remove(d).isEmpty());
+		assertEquals(map, removed.put(b, "b"));
+	}
+
+	@Test
+	public void testEqualsAndHashCode() {
+		Random random = new Random(7);
+		for (int hashes : new int[] { 1_000_000, 3 }) {
+			Map<Key, Integer> expected = new HashMap<>();
+			PersistentMap<Key, Integer> map = update(random, expected, PersistentMap.empty(), 500, hashes);
+
+			// the same entries, inserted in another order
+			PersistentMap<Key, Integer> other = PersistentMap.empty();
+			for (Map.Entry<Key, Integer> entry : expected.entrySet())
+				other = other.put(entry.getKey(), entry.getValue());
+			for (Map.Entry<Key, Integer> entry : expected.entrySet())
+				other = other.remove(entry.getKey()).put(entry.getKey(), entry.getValue());
+
+			assertEquals(map, other);
+			assertEquals(map.hashCode(), other.hashCode());
+			assertEquals(expected.hashCode(), map.hashCode());
+
+			Key first = expected.keySet().iterator().next();
+			assertNotEquals(map, other.put(first, expected.get(first) + 1));
+			assertNotEquals(map, other.remove(first));
+		}
+	}
+
+	@Test
+	public void testMerge() {
+		Random random = new Random(11);
+		for (int hashes : new int[] { 1_000_000, 3 }) {
+			Map<Key, Integer> base = new HashMap<>();
+			PersistentMap<Key, Integer> common = update(random, base, PersistentMap.empty(), 300, hashes);
+			// two maps derived from the same one, sharing most of it
+			Map<Key, Integer> left = new HashMap<>(base), right = new HashMap<>(base);
+			PersistentMap<Key, Integer> leftMap = update(random, left, common, 30, hashes);
+			PersistentMap<Key, Integer> rightMap = update(random, right, common, 30, hashes);
+
+			Map<Key, Integer> expected = new HashMap<>(left);
+			right.forEach((k, v) -> expected.merge(k, v, Math::max));
+			assertSameMapping(expected,
+					leftMap.merge(rightMap, (l, r) -> l == null ? r : r == null ? l : l >= r ? l : r));
+
+			Map<Key, Integer> both = new HashMap<>(left);
+			both.keySet().retainAll(right.keySet());
+			both.replaceAll((k, v) -> Math.min(v, right.get(k)));
+			assertSameMapping(both,
+					leftMap.merge(rightMap, (l, r) -> l == null || r == null ? null : l <= r ? l : r));
+
+			assertSame(leftMap, leftMap.merge(leftMap, (l, r) -> null));
+		}
+	}
+
+	@Test
+	public void testDifferingKeys() {
+		Map<Key, Integer> base = new HashMap<>();
+		PersistentMap<Key, Integer> map = update(new Random(3), base, PersistentMap.empty(), 300, 1_000_000);
+		assertTrue(map.differingKeys(map).isEmpty());
+
+		Key key = base.keySet().iterator().next();
+		PersistentMap<Key, Integer> updated = map.put(key, base.get(key) + 1);
+		assertTrue(map.differingKeys(updated).contains(key));
+		// only the path to the updated key is visited
+		assertTrue(map.differingKeys(updated).size() < base.size());
+		assertFalse(map.differingKeys(updated.remove(key)).isEmpty());
+	}
+}
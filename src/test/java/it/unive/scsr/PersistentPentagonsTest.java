@@ -0,0 +1,57 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+
+import org.junit.Test;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAConfiguration;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.outputs.compare.JsonReportComparer;
+import it.unive.lisa.outputs.json.JsonReport;
+
+public class PersistentPentagonsTest {
+
+	private static File analyze(String program, AnalysisDomain domain, String workdir)
+			throws ParsingException, AnalysisException {
+		LiSAConfiguration conf = new LiSAConfiguration();
+		conf.jsonOutput = true;
+		conf.serializeResults = true;
+		conf.workdir = workdir;
+		conf.abstractState = domain.abstractState();
+		new LiSA(conf).run(IMPFrontend.processFile(program));
+		return new File(workdir);
+	}
+
+	private static void assertSameResults(String program, String name)
+			throws ParsingException, AnalysisException, IOException {
+		File expected = analyze(program, AnalysisDomain.PENTAGONS, "outputs/pentagons/" + name);
+		File actual = analyze(program, AnalysisDomain.PERSISTENT_PENTAGONS, "outputs/persistent-pentagons/" + name);
+		try (Reader exp = new FileReader(new File(expected, "report.json"));
+				Reader act = new FileReader(new File(actual, "report.json"))) {
+			assertTrue("Results are different", JsonReportComparer.compare(
+					JsonReport.read(exp), JsonReport.read(act), expected, actual));
+		}
+	}
+
+	@Test
+	public void testSameResultsAsPentagons() throws ParsingException, AnalysisException, IOException {
+		for (String input : new String[] { "signs", "ext-sign-eval", "ae-eval" })
+			assertSameResults("inputs/" + input + ".imp", input);
+	}
+
+	@Test
+	public void testSameResultsOnGeneratedProgram() throws ParsingException, AnalysisException, IOException {
+		ImpProgramGenerator generator = new ImpProgramGenerator();
+		generator.loopDepth = 2;
+		String file = generator.writeTo(new File("outputs/pentagons-generated.imp").toPath()).toString();
+		assertSameResults(file, "generated");
+	}
+}
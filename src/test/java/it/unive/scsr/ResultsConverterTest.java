@@ -0,0 +1,57 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ResultsConverterTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		Path expected = Paths.get("expected", "available-expressions");
+		Path dir = folder.newFolder("results").toPath();
+		List<Path> files;
+		try (Stream<Path> list = Files.list(expected)) {
+			files = list.collect(Collectors.toList());
+		}
+		for (Path file : files)
+			Files.copy(file, dir.resolve(file.getFileName()));
+
+		// everything but the report is converted
+		assertEquals(files.size() - 1, ResultsConverter.toBinary(dir));
+		assertTrue(Files.exists(dir.resolve("report.json")));
+		for (Path file : files)
+			if (!file.getFileName().toString().equals("report.json")) {
+				String name = file.getFileName().toString();
+				Path binary = dir.resolve(name.replace(ResultsConverter.JSON, ResultsConverter.BINARY));
+				assertFalse(Files.exists(dir.resolve(name)));
+				assertTrue(Files.size(binary) < Files.size(file));
+			}
+
+		assertEquals(files.size() - 1, ResultsConverter.toJson(dir));
+		for (Path file : files) {
+			Path converted = dir.resolve(file.getFileName());
+			byte[] json = BinaryJson.encode(ByteBuffer.wrap(Files.readAllBytes(file)));
+			// same tokens, possibly with different whitespace
+			assertArrayEquals(file.toString(), json,
+					BinaryJson.encode(ByteBuffer.wrap(Files.readAllBytes(converted))));
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import org.junit.Test;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAConfiguration;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.SyntheticLocation;
+import it.unive.lisa.symbolic.value.Variable;
+import it.unive.lisa.type.common.Int32Type;
+import it.unive.scsr.ExtSignDomainSolution.Sign;
+
+public class SignEnvironmentTest {
+
+	@Test
+	public void testCodec() {
+		// the operations on codes must agree with the lookup tables of Sign
+		SignCodec<ExtSignDomainSolution> codec = ExtSignDomainSolution.CODEC;
+		for (Sign left : Sign.values()) {
+			byte l = codec.encode(ExtSignDomainSolution.of(left));
+			assertSame(ExtSignDomainSolution.of(left), codec.decode(l));
+			for (Sign right : Sign.values()) {
+				byte r = codec.encode(ExtSignDomainSolution.of(right));
+				assertSame(left + " lub " + right, ExtSignDomainSolution.of(left.lub(right)),
+						codec.decode(codec.lub(l, r)));
+				assertEquals(left + " <= " + right, left.lessOrEqual(right), SignCodec.lessOrEqual(l, r));
+			}
+		}
+	}
+
+	@Test
+	public void testSignsCodec() {
+		SignCodec<Signs> codec = Signs.CODEC;
+		byte neg = SignCodec.NEG, zero = SignCodec.ZERO, pos = SignCodec.POS;
+		// signs has no element for the union of two concrete signs
+		assertEquals(SignCodec.TOP, codec.lub(neg, zero));
+		assertEquals(SignCodec.TOP, codec.lub(pos, neg));
+		assertEquals(pos, codec.lub(pos, SignCodec.BOTTOM));
+		assertEquals(SignCodec.TOP, codec.encode(new Signs()));
+	}
+
+	@Test
+	public void testDifferentIndexes() throws SemanticException {
+		Variable x = new Variable(Int32Type.INSTANCE, "x", SyntheticLocation.INSTANCE);
+		Variable y = new Variable(Int32Type.INSTANCE, "y", SyntheticLocation.INSTANCE);
+		ExtSignDomainSolution pos = ExtSignDomainSolution.of(Sign.POS), zero = ExtSignDomainSolution.of(Sign.ZERO);
+
+		// the identifiers get different slots in the two environments
+		SignEnvironment<ExtSignDomainSolution> first = new SignEnvironment<>(ExtSignDomainSolution.CODEC)
+				.putState(x, pos).putState(y, zero);
+		SignEnvironment<ExtSignDomainSolution> second = new SignEnvironment<>(ExtSignDomainSolution.CODEC)
+				.putState(y, zero).putState(x, pos);
+		assertEquals(first, second);
+		assertEquals(first.hashCode(), second.hashCode());
+		assertTrue(first.lessOrEqual(second));
+
+		SignEnvironment<ExtSignDomainSolution> lub = first.lub(second.putState(y, pos));
+		assertSame(pos, lub.getState(x));
+		assertSame(ExtSignDomainSolution.of(Sign.POS_OR_ZERO), lub.getState(y));
+	}
+
+	@Test
+	public void testExtendedSigns() throws ParsingException, AnalysisException, IOException {
+		LiSAConfiguration conf = new LiSAConfiguration();
+		conf.jsonOutput = true;
+		conf.serializeResults = true;
+		conf.workdir = "outputs/byte-ext-sign";
+		conf.abstractState = AnalysisDomain.BYTE_EXT_SIGN.abstractState();
+		new LiSA(conf).run(IMPFrontend.processFile("inputs/ext-sign-eval.imp"));
+
+		// results are the same of ValueEnvironment
+		assertTrue("Results are different",
+				new StreamingReportComparer().sameResults(Paths.get("expected", "ext-sign"), Paths.get(conf.workdir)));
+	}
+}
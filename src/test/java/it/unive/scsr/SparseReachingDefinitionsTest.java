@@ -0,0 +1,151 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAConfiguration;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.program.cfg.CFG;
+
+public class SparseReachingDefinitionsTest {
+
+	/**
+	 * Runs the dense analysis of LiSA, with a
+	 * {@code PossibleForwardDataflowDomain<ReachingDefinitions>}, on
+	 * {@code program}, and the sparse one on the same program, comparing the
+	 * results dumped by both.
+	 */
+	private static void assertSameAsDense(String program, String name)
+			throws ParsingException, AnalysisException, IOException {
+		// dumped before running LiSA, that modifies the program
+		Path sparse = Paths.get("outputs", "sparse-rd", name, "sparse");
+		Files.createDirectories(sparse);
+		int index = 0;
+		for (CFG cfg : IMPFrontend.processFile(program).getAllCFGs())
+			try (Writer writer = Files.newBufferedWriter(sparse.resolve("cfg" + index++ + ".json"))) {
+				new SparseReachingDefinitions(cfg).dump(writer);
+			}
+
+		Path dense = Paths.get("outputs", "sparse-rd", name, "dense");
+		Program parsed = IMPFrontend.processFile(program);
+		LiSAConfiguration conf = new LiSAConfiguration();
+		conf.serializeResults = true;
+		conf.workdir = dense.toString();
+		conf.abstractState = AnalysisDomain.REACHING_DEFINITIONS.abstractState();
+		new LiSA(conf).run(parsed);
+
+		Map<String, Map<String, List<Set<String>>>> expected = states(dense);
+		assertFalse(expected.isEmpty());
+		assertEquals(expected, states(sparse));
+	}
+
+	/**
+	 * Yields the states of the graphs dumped in {@code dir}, either by LiSA
+	 * or by {@link SparseReachingDefinitions#dump(Writer)}, by cfg name and
+	 * grouped by the text of the nodes. Each state is the set of the
+	 * representations of the reaching definitions.
+	 */
+	private static Map<String, Map<String, List<Set<String>>>> states(Path dir) throws IOException {
+		List<Path> files;
+		try (Stream<Path> list = Files.list(dir)) {
+			files = list.filter(f -> f.toString().endsWith(".json") && !f.endsWith("report.json"))
+					.collect(Collectors.toList());
+		}
+
+		Map<String, Map<String, List<Set<String>>>> result = new HashMap<>();
+		ObjectMapper mapper = new ObjectMapper();
+		for (Path file : files) {
+			JsonNode graph = mapper.readTree(file.toFile());
+			Map<Integer, String> texts = new HashMap<>();
+			Set<Integer> inner = new HashSet<>();
+			for (JsonNode node : graph.path("nodes")) {
+				texts.put(node.get("id").asInt(), node.get("text").asText());
+				for (JsonNode sub : node.path("subNodes"))
+					inner.add(sub.asInt());
+			}
+
+			Map<String, List<Set<String>>> states = new TreeMap<>();
+			for (JsonNode description : graph.get("descriptions")) {
+				String text;
+				JsonNode value;
+				if (description.has("nodeId")) {
+					// a graph of LiSA, where only the value domain is compared
+					int id = description.get("nodeId").asInt();
+					if (inner.contains(id))
+						continue;
+					text = texts.get(id);
+					value = description.path("description").path("state").path("value");
+				} else {
+					text = description.get("text").asText();
+					value = description.get("value");
+				}
+				states.computeIfAbsent(text, k -> new ArrayList<>()).add(elements(value));
+			}
+			states.values().forEach(list -> list.sort((l, r) -> l.toString().compareTo(r.toString())));
+			// e.g. untyped reachingDefinitions::test1(reachingDefinitions* this)
+			String name = graph.get("name").asText();
+			result.put(name.substring(name.indexOf("::") + 2, name.indexOf('(')), states);
+		}
+		return result;
+	}
+
+	/**
+	 * Yields the elements of a serialized set of {@link ReachingDefinitions},
+	 * in the form of their representation (e.g. {@code [x, 'file':3:4]}).
+	 */
+	private static Set<String> elements(JsonNode value) {
+		if (value.isTextual())
+			// top or bottom
+			return Collections.singleton(value.asText());
+		Set<String> elements = new TreeSet<>();
+		for (JsonNode element : value)
+			if (element.isArray()) {
+				List<String> parts = new ArrayList<>();
+				for (JsonNode part : element)
+					parts.add(part.asText());
+				elements.add(parts.toString());
+			} else
+				elements.add(element.asText());
+		return elements;
+	}
+
+	@Test
+	public void testSameResultsAsDense() throws ParsingException, AnalysisException, IOException {
+		assertSameAsDense("inputs/reaching-definitions.imp", "rd");
+	}
+
+	@Test
+	public void testSameResultsOnGeneratedProgram() throws ParsingException, AnalysisException, IOException {
+		ImpProgramGenerator generator = new ImpProgramGenerator();
+		generator.loopDepth = 3;
+		generator.branchFanOut = 3;
+		Path file = generator.writeTo(Paths.get("outputs", "generated", "sparse-rd.imp"));
+		assertSameAsDense(file.toString(), "generated");
+	}
+}
@@ -0,0 +1,92 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import it.unive.scsr.StreamingReportComparer.Difference;
+
+public class StreamingReportComparerTest {
+
+	private static final Path EXPECTED = Paths.get("expected", "available-expressions");
+
+	private static final String F1 = "untyped_ae.f1(ae__this).json";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path copy() throws IOException {
+		Path dir = folder.newFolder().toPath();
+		try (Stream<Path> list = Files.list(EXPECTED)) {
+			for (Path file : (Iterable<Path>) list::iterator)
+				Files.copy(file, dir.resolve(file.getFileName()));
+		}
+		return dir;
+	}
+
+	private static void replace(Path file, String from, String to) throws IOException {
+		String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+		assertTrue(content.contains(from));
+		Files.write(file, content.replace(from, to).getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testSameResults() throws IOException {
+		Path actual = copy();
+		// whitespace and the order of the files in the report do not matter
+		ResultsConverter.toBinary(actual);
+		ResultsConverter.toJson(actual);
+		replace(actual.resolve("report.json"), "\"untyped_ae.f0(ae__this).json\", \"untyped_ae.f1(ae__this).json\"",
+				"\"untyped_ae.f1(ae__this).json\", \"untyped_ae.f0(ae__this).json\"");
+		assertTrue(new StreamingReportComparer().compare(EXPECTED, actual).isEmpty());
+	}
+
+	@Test
+	public void testDifferentDescription() throws IOException {
+		Path actual = copy();
+		replace(actual.resolve(F1), "\"nodeId\":5,\"description\":{\"expressions\":[\"0\"]",
+				"\"nodeId\":5,\"description\":{\"expressions\":[\"1\"]");
+
+		List<Difference> differences = new StreamingReportComparer(2).compare(EXPECTED, actual);
+		assertEquals(1, differences.size());
+		Difference difference = differences.get(0);
+		assertEquals(F1, difference.getFile());
+		assertEquals("$.descriptions[5].description.expressions[0]", difference.getPath());
+		assertEquals("\"0\"", difference.getExpected());
+		assertEquals("\"1\"", difference.getActual());
+	}
+
+	@Test
+	public void testReorderedFields() throws IOException {
+		Path actual = copy();
+		replace(actual.resolve(F1), "{\"id\":1,\"text\":\"b\"}", "{\"text\":\"b\",\"id\":1}");
+
+		// the streaming comparison is stricter than JsonReportComparer
+		StreamingReportComparer comparer = new StreamingReportComparer();
+		assertEquals(1, comparer.compare(EXPECTED, actual).size());
+		assertTrue(comparer.sameResults(EXPECTED, actual));
+	}
+
+	@Test
+	public void testMissingFile() throws IOException {
+		Path actual = copy();
+		Files.delete(actual.resolve(F1));
+		replace(actual.resolve("report.json"), "\"untyped_ae.f1(ae__this).json\", ", "");
+
+		List<Difference> differences = new StreamingReportComparer().compare(EXPECTED, actual);
+		assertEquals(2, differences.size());
+		assertEquals("$.files", differences.get(0).getPath());
+		assertEquals(F1, differences.get(1).getFile());
+	}
+}
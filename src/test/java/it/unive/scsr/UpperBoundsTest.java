@@ -0,0 +1,125 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.representation.SetRepresentation;
+import it.unive.lisa.analysis.representation.StringRepresentation;
+import it.unive.lisa.program.SyntheticLocation;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.Variable;
+import it.unive.lisa.type.common.Int32Type;
+
+public class UpperBoundsTest {
+
+	// more than the bits of a word, so that bitsets of different lengths are
+	// compared
+	private static final Variable[] VARIABLES = new Variable[100];
+
+	static {
+		for (int i = 0; i < VARIABLES.length; i++)
+			VARIABLES[i] = new Variable(Int32Type.INSTANCE, "x" + i, SyntheticLocation.INSTANCE);
+	}
+
+	private static Set<Identifier> random(Random random) {
+		Set<Identifier> bounds = new HashSet<>();
+		int limit = 1 + random.nextInt(VARIABLES.length);
+		for (int i = random.nextInt(3); i > 0; i--)
+			bounds.add(VARIABLES[random.nextInt(limit)]);
+		for (int i = 0; i < limit; i++)
+			if (random.nextInt(4) == 0)
+				bounds.add(VARIABLES[i]);
+		return bounds;
+	}
+
+	/**
+	 * Checks that {@code actual} holds the same bounds of the set in
+	 * {@code expected}, as the elements backed by a set did.
+	 */
+	private static void assertSameBounds(Set<Identifier> expected, UpperBounds actual) {
+		Set<Identifier> iterated = new HashSet<>();
+		for (Identifier id : actual)
+			assertTrue("duplicate " + id, iterated.add(id));
+		assertEquals(expected, iterated);
+		for (Variable v : VARIABLES)
+			assertEquals(v.getName(), expected.contains(v), actual.contains(v));
+		if (!actual.isTop() && !actual.isBottom())
+			assertEquals(new SetRepresentation(expected, StringRepresentation::new),
+					actual.representation());
+	}
+
+	@Test
+	public void testSameAsSets() throws SemanticException {
+		// fixed seed, so that failures are reproducible
+		Random random = new Random(42);
+		UpperBounds prototype = new UpperBounds(true);
+		for (int round = 0; round < 200; round++) {
+			Set<Identifier> left = random(random), right = random(random);
+			UpperBounds leftBounds = prototype.withBounds(left), rightBounds = prototype.withBounds(right);
+			assertSameBounds(left, leftBounds);
+			assertSameBounds(right, rightBounds);
+
+			// lub is the intersection, glb is the union
+			Set<Identifier> intersection = new HashSet<>(left);
+			intersection.retainAll(right);
+			assertSameBounds(intersection, leftBounds.lubAux(rightBounds));
+			Set<Identifier> union = new HashSet<>(left);
+			union.addAll(right);
+			assertSameBounds(union, leftBounds.glbAux(rightBounds));
+
+			assertEquals(left.containsAll(right), leftBounds.lessOrEqualAux(rightBounds));
+			UpperBounds widened = leftBounds.wideningAux(rightBounds);
+			if (right.containsAll(left))
+				assertSameBounds(right, widened);
+			else
+				assertTrue(widened.isTop());
+
+			assertEquals(left.equals(right), leftBounds.equals(rightBounds));
+			if (left.equals(right))
+				assertEquals(leftBounds.hashCode(), rightBounds.hashCode());
+		}
+	}
+
+	@Test
+	public void testTopAndBottom() {
+		UpperBounds prototype = new UpperBounds(true);
+		assertSameBounds(new HashSet<>(), prototype.top());
+		assertEquals("{}", prototype.top().representation().toString());
+		assertTrue(prototype.bottom().isBottom());
+		assertSameBounds(new HashSet<>(), prototype.bottom());
+	}
+
+	@Test
+	public void testDifferentAnalyses() throws SemanticException {
+		Random random = new Random(7);
+		for (int round = 0; round < 100; round++) {
+			Set<Identifier> bounds = random(random);
+			UpperBounds first = new UpperBounds(bounds), second = new UpperBounds(bounds);
+			int slots = first.index().size();
+
+			assertEquals(first, second);
+			assertEquals(second, first);
+			assertEquals(first.hashCode(), second.hashCode());
+			assertSameBounds(bounds, first.lubAux(second));
+
+			Set<Identifier> other = new HashSet<>(bounds);
+			other.add(VARIABLES[random.nextInt(VARIABLES.length)]);
+			if (!other.equals(bounds)) {
+				UpperBounds larger = new UpperBounds(other);
+				assertNotEquals(first, larger);
+				assertNotEquals(larger, first);
+			}
+
+			// equals does not add identifiers to the index
+			assertEquals(slots, first.index().size());
+		}
+	}
+}
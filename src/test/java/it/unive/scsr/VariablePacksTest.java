@@ -0,0 +1,51 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.SyntheticLocation;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.symbolic.value.Variable;
+import it.unive.lisa.type.common.Int32Type;
+
+public class VariablePacksTest {
+
+	private static final String PROGRAM = "class packs {\n"
+			+ "	main(a, b) {\n"
+			+ "		def i = 0;\n"
+			+ "		def j = b - 1;\n"
+			+ "		def k = a * 2;\n"
+			+ "		def u = 5;\n"
+			+ "		def v = u + 1;\n"
+			+ "		while (i < a + k)\n"
+			+ "			i = i + 1;\n"
+			+ "		return j;\n"
+			+ "	}\n"
+			+ "}\n";
+
+	private static Variable variable(String name) {
+		return new Variable(Int32Type.INSTANCE, name, SyntheticLocation.INSTANCE);
+	}
+
+	@Test
+	public void testPacks() throws ParsingException {
+		CFG cfg = IMPFrontend.processText(PROGRAM).getAllCFGs().iterator().next();
+		VariablePacks packs = VariablePacks.of(cfg);
+
+		// compared together
+		assertTrue(packs.together(variable("i"), variable("a")));
+		assertTrue(packs.together(variable("i"), variable("k")));
+		assertTrue(packs.together(variable("k"), variable("a")));
+		// assigned minus a constant
+		assertTrue(packs.together(variable("j"), variable("b")));
+
+		assertFalse(packs.together(variable("i"), variable("j")));
+		assertFalse(packs.together(variable("v"), variable("u")));
+		assertFalse(packs.together(variable("u"), variable("i")));
+		assertTrue(packs.together(variable("u"), variable("u")));
+	}
+}
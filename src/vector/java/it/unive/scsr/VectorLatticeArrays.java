@@ -0,0 +1,86 @@
+package it.unive.scsr;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The vectorized loops of {@link LatticeArrays}, written with the (incubating)
+ * Vector API. This class is compiled on its own, as the only one needing the
+ * {@code jdk.incubator.vector} module, and it is loaded reflectively by
+ * {@link LatticeArrays} only when the module is available and the vectorized
+ * loops are enabled.
+ */
+final class VectorLatticeArrays implements LatticeArrays.Kernels {
+
+	private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+
+	private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+
+	/**
+	 * The canonical codes of each codec, padded to fill a vector, keyed by
+	 * the (identity of the) array of canonical codes
+	 */
+	private final Map<byte[], ByteVector> tables = new ConcurrentHashMap<>();
+
+	/**
+	 * Builds the vectorized loops, failing if the preferred vectors are not
+	 * wide enough to hold a table of sign codes.
+	 */
+	VectorLatticeArrays() {
+		if (BYTES.length() < SignCodec.TOP + 1)
+			throw new UnsupportedOperationException("Vectors of " + BYTES.length() + " bytes are too short");
+	}
+
+	private static ByteVector table(byte[] canonical) {
+		byte[] padded = new byte[BYTES.length()];
+		System.arraycopy(canonical, 0, padded, 0, canonical.length);
+		return ByteVector.fromArray(BYTES, padded, 0);
+	}
+
+	@Override
+	public void lub(byte[] left, byte[] right, byte[] result, int length, byte[] canonical) {
+		// the canonical codes are looked up with a lane-wise shuffle of the
+		// unions
+		ByteVector table = tables.computeIfAbsent(canonical, VectorLatticeArrays::table);
+
+		int i = 0;
+		for (int bound = BYTES.loopBound(length); i < bound; i += BYTES.length()) {
+			ByteVector union = ByteVector.fromArray(BYTES, left, i).or(ByteVector.fromArray(BYTES, right, i));
+			union.selectFrom(table).intoArray(result, i);
+		}
+		LatticeArrays.scalarLub(left, right, result, i, length, canonical);
+	}
+
+	@Override
+	public boolean lessOrEqual(byte[] left, byte[] right, int length) {
+		int i = 0;
+		for (int bound = BYTES.loopBound(length); i < bound; i += BYTES.length())
+			if (ByteVector.fromArray(BYTES, left, i)
+					.lanewise(VectorOperators.AND_NOT, ByteVector.fromArray(BYTES, right, i))
+					.compare(VectorOperators.NE, 0)
+					.anyTrue())
+				return false;
+		return LatticeArrays.scalarLessOrEqual(left, right, i, length);
+	}
+
+	@Override
+	public void min(long[] left, long[] right, long[] result, int length) {
+		int i = 0;
+		for (int bound = LONGS.loopBound(length); i < bound; i += LONGS.length())
+			LongVector.fromArray(LONGS, left, i).min(LongVector.fromArray(LONGS, right, i)).intoArray(result, i);
+		LatticeArrays.scalarMin(left, right, result, i, length);
+	}
+
+	@Override
+	public void max(long[] left, long[] right, long[] result, int length) {
+		int i = 0;
+		for (int bound = LONGS.loopBound(length); i < bound; i += LONGS.length())
+			LongVector.fromArray(LONGS, left, i).max(LongVector.fromArray(LONGS, right, i)).intoArray(result, i);
+		LatticeArrays.scalarMax(left, right, result, i, length);
+	}
+}